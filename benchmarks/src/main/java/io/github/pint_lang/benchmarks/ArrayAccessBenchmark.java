@@ -0,0 +1,74 @@
+package io.github.pint_lang.benchmarks;
+
+import io.github.pint_lang.eval.ArrayValue;
+import io.github.pint_lang.eval.RopeArrayValue;
+import io.github.pint_lang.eval.Value;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Compares the checked accessors of ArrayValue, which every engine uses, with the unchecked ones that only assert their
+// bounds, to show what the checks cost; each operation reads every item or takes every slice once
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayAccessBenchmark {
+  
+  // a plain array, a slice viewing the middle of a larger one, and a rope spread together from many arrays
+  @Param({"flat", "view", "rope"})
+  public String shape;
+  
+  @Param({"10000"})
+  public int length;
+  
+  private ArrayValue array;
+  
+  @Setup
+  public void setup() {
+    var values = new int[length * 2];
+    for (var i = 0; i < values.length; i++) values[i] = i * 31 % 1009;
+    array = switch (shape) {
+      case "flat" -> (ArrayValue) Value.of(Arrays.copyOf(values, length));
+      case "view" -> ((ArrayValue) Value.of(values)).slice(length / 2, length / 2 + length);
+      case "rope" -> {
+        ArrayValue rope = (ArrayValue) Value.of(new int[0]);
+        for (var from = 0; from < length; from += 100) rope = RopeArrayValue.concat(rope, (ArrayValue) Value.of(Arrays.copyOfRange(values, from, from + 100)));
+        yield rope;
+      }
+      default -> throw new IllegalArgumentException("Unknown shape '" + shape + "'");
+    };
+  }
+  
+  @Benchmark
+  public int sumChecked() {
+    var total = 0;
+    for (var i = 0; i < array.length(); i++) total += array.getInt(i);
+    return total;
+  }
+  
+  @Benchmark
+  public int sumUnchecked() {
+    var total = 0;
+    for (var i = 0; i < array.length(); i++) total += array.getIntUnchecked(i);
+    return total;
+  }
+  
+  @Benchmark
+  public int sliceChecked() {
+    var total = 0;
+    for (var i = 0; i < array.length(); i++) total += array.slice(i, array.length()).length();
+    return total;
+  }
+  
+  @Benchmark
+  public int sliceUnchecked() {
+    var total = 0;
+    for (var i = 0; i < array.length(); i++) total += array.sliceUnchecked(i, array.length()).length();
+    return total;
+  }
+  
+}
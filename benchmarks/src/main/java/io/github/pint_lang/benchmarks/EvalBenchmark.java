@@ -0,0 +1,98 @@
+package io.github.pint_lang.benchmarks;
+
+import io.github.pint_lang.Builtins;
+import io.github.pint_lang.PintFrontEnd;
+import io.github.pint_lang.ast.ASTConversionVisitor;
+import io.github.pint_lang.ast.DefsAST;
+import io.github.pint_lang.eval.AstEvalVisitor;
+import io.github.pint_lang.eval.CstInterpreter;
+import io.github.pint_lang.eval.NativeFunction;
+import io.github.pint_lang.eval.Value;
+import io.github.pint_lang.gen.PintParser;
+import io.github.pint_lang.jvm.JvmCompiler;
+import io.github.pint_lang.jvm.JvmProgram;
+import io.github.pint_lang.node.NodeInterpreter;
+import io.github.pint_lang.opt.ConstantFoldVisitor;
+import io.github.pint_lang.typechecker.ErrorLogger;
+import io.github.pint_lang.typechecker.Type;
+import io.github.pint_lang.vm.BytecodeCompiler;
+import io.github.pint_lang.vm.Program;
+import io.github.pint_lang.vm.VM;
+import org.antlr.v4.runtime.CharStreams;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Runs one kernel's main() per operation; everything up to the engine's own input is prepared once in setup,
+// so this measures evaluation alone, the way Main times it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBenchmark {
+  
+  @Param({"loop", "recursion", "slicing", "strings"})
+  public String kernel;
+  
+  @Param({"cst", "ast", "node", "vm", "jvm"})
+  public String engine;
+  
+  private Map<String, NativeFunction> natives;
+  private PintParser.FileContext file;
+  private DefsAST<Type> typedDefs;
+  private Program program;
+  private JvmProgram jvmProgram;
+  private Value printed;
+  
+  @Setup
+  public void setup() {
+    var source = switch (kernel) {
+      case "loop" -> Programs.LOOP;
+      case "recursion" -> Programs.RECURSION;
+      case "slicing" -> Programs.SLICING;
+      case "strings" -> Programs.STRINGS;
+      default -> throw new IllegalArgumentException("Unknown kernel '" + kernel + "'");
+    };
+    natives = new LinkedHashMap<>();
+    Builtins.define(natives);
+    // the kernels print their result once, which run() returns for JMH to consume instead of writing it out
+    NativeFunction consume = vargs -> {
+      printed = vargs.isEmpty() ? Value.UNIT : vargs.get(0);
+      return Value.UNIT;
+    };
+    natives.put("prints", consume);
+    natives.put("printi", consume);
+    natives.put("printsln", consume);
+    natives.put("printiln", consume);
+    natives.put("println", consume);
+    file = PintFrontEnd.parse(CharStreams.fromString(source));
+    var logger = ErrorLogger.fixed(Type.ERROR);
+    typedDefs = PintFrontEnd.typecheck(new ASTConversionVisitor().visitFile(file), logger);
+    if (logger.dumpErrors(System.err)) throw new IllegalStateException("Kernel '" + kernel + "' has type errors");
+    typedDefs = new ConstantFoldVisitor().visitDefs(typedDefs);
+    switch (engine) {
+      case "vm" -> program = new BytecodeCompiler(natives.keySet()).compile(typedDefs);
+      case "jvm" -> jvmProgram = new JvmCompiler(natives.keySet()).compile(typedDefs);
+      case "cst", "ast", "node" -> {}
+      default -> throw new IllegalArgumentException("Unknown engine '" + engine + "'");
+    }
+  }
+  
+  @Benchmark
+  public Value run() {
+    printed = null;
+    switch (engine) {
+      case "cst" -> new CstInterpreter(file, natives).run();
+      case "ast" -> new AstEvalVisitor(typedDefs, natives).run();
+      case "node" -> new NodeInterpreter(typedDefs, natives).run();
+      case "vm" -> new VM(program, natives).run();
+      case "jvm" -> jvmProgram.run(natives);
+    }
+    return printed;
+  }
+  
+}
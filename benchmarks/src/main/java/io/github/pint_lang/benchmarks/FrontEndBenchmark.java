@@ -0,0 +1,110 @@
+package io.github.pint_lang.benchmarks;
+
+import io.github.pint_lang.PintFrontEnd;
+import io.github.pint_lang.ast.ASTConversionVisitor;
+import io.github.pint_lang.ast.DefsAST;
+import io.github.pint_lang.gen.PintLexer;
+import io.github.pint_lang.gen.PintParser;
+import io.github.pint_lang.parse.MappedCharStream;
+import io.github.pint_lang.parse.Parser;
+import io.github.pint_lang.typechecker.ErrorLogger;
+import io.github.pint_lang.typechecker.Type;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Each stage of the front end on its own, fed the output of the stage before it so only that stage is measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontEndBenchmark {
+  
+  @Param({"100", "1000"})
+  public int functions;
+  
+  private String source;
+  private Path sourceFile;
+  private PintParser.FileContext file;
+  private DefsAST<Void> defs;
+  
+  @Setup
+  public void setup() throws IOException {
+    source = Programs.generate(functions);
+    sourceFile = Files.createTempFile("pint-benchmark", ".pint");
+    Files.writeString(sourceFile, source);
+    file = parse();
+    defs = convert();
+    var logger = ErrorLogger.fixed(Type.ERROR);
+    PintFrontEnd.typecheck(defs, logger);
+    if (logger.dumpErrors(System.err)) throw new IllegalStateException("Generated program has type errors");
+  }
+  
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(sourceFile);
+  }
+  
+  @Benchmark
+  public int lex() {
+    return lex(CharStreams.fromString(source));
+  }
+  
+  // Loading the source is part of what's measured by these two; lexMapped loads faster but lexes slower, and comes out
+  // behind, since what MappedCharStream saves is heap (run with -prof gc to see it)
+  @Benchmark
+  public int lexFile() throws IOException {
+    return lex(CharStreams.fromPath(sourceFile));
+  }
+  
+  @Benchmark
+  public int lexMapped() throws IOException {
+    return lex(MappedCharStream.fromPath(sourceFile));
+  }
+  
+  private static int lex(CharStream input) {
+    var lexer = new PintLexer(input);
+    var tokens = 0;
+    while (lexer.nextToken().getType() != Token.EOF) tokens++;
+    return tokens;
+  }
+  
+  @Benchmark
+  public PintParser.FileContext parse() {
+    return PintFrontEnd.parse(CharStreams.fromString(source));
+  }
+  
+  // What parse() costs without trying SLL prediction first
+  @Benchmark
+  public PintParser.FileContext parseLL() {
+    var lexer = new PintLexer(CharStreams.fromString(source));
+    var parser = new PintParser(new CommonTokenStream(lexer));
+    return parser.file();
+  }
+  
+  // Source straight to the AST, standing in for both parse() and convert()
+  @Benchmark
+  public DefsAST<Void> parseDefs() {
+    return Parser.parse(source);
+  }
+  
+  @Benchmark
+  public DefsAST<Void> convert() {
+    return new ASTConversionVisitor().visitFile(file);
+  }
+  
+  @Benchmark
+  public DefsAST<Type> typecheck() {
+    return PintFrontEnd.typecheck(defs, ErrorLogger.fixed(Type.ERROR));
+  }
+  
+}
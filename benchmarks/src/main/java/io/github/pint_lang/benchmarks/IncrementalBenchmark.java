@@ -0,0 +1,54 @@
+package io.github.pint_lang.benchmarks;
+
+import io.github.pint_lang.IncrementalFrontEnd;
+import io.github.pint_lang.ast.DefsAST;
+import io.github.pint_lang.typechecker.Type;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// A keystroke in the middle of a large program, once in a function body and once in a signature its callers depend on,
+// to compare with parseDefs() followed by typecheck() in FrontEndBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalBenchmark {
+  
+  @Param({"1000", "5000"})
+  public int functions;
+  
+  private IncrementalFrontEnd frontEnd;
+  private int literal;
+  private int returnType;
+  private boolean bodyEdited = false;
+  private boolean signatureEdited = false;
+  
+  @Setup
+  public void setup() {
+    var source = Programs.generate(functions);
+    frontEnd = new IncrementalFrontEnd(source);
+    if (!frontEnd.typeErrors().isEmpty()) throw new IllegalStateException("Generated program has type errors");
+    var middle = source.indexOf("let f" + functions / 2 + "(");
+    literal = source.indexOf("n + 1", middle) + "n + ".length();
+    // the next function's, so that neither edit moves the other
+    returnType = source.indexOf("-> int", literal) + "-> ".length();
+  }
+  
+  @Benchmark
+  public DefsAST<Type> editBody() {
+    bodyEdited = !bodyEdited;
+    frontEnd.edit(literal, 1, bodyEdited ? "2" : "1");
+    return frontEnd.typedDefs();
+  }
+  
+  @Benchmark
+  public DefsAST<Type> editSignature() {
+    signatureEdited = !signatureEdited;
+    frontEnd.edit(returnType, signatureEdited ? 3 : 4, signatureEdited ? "bool" : "int");
+    return frontEnd.typedDefs();
+  }
+  
+}
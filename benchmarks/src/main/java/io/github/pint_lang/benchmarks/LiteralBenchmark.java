@@ -0,0 +1,73 @@
+package io.github.pint_lang.benchmarks;
+
+import io.github.pint_lang.PintFrontEnd;
+import io.github.pint_lang.eval.Value;
+import io.github.pint_lang.gen.PintBaseVisitor;
+import io.github.pint_lang.gen.PintParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.TimeUnit;
+
+// What the cst evaluator does each time it reaches an int or string literal: parse its token text into a new value, or
+// look up the value it parsed the first time; each operation evaluates every literal of a kernel once
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LiteralBenchmark {
+  
+  // small ints come out of the IntValue cache, large ones and strings are allocated when parsed
+  @Param({"small", "large", "string"})
+  public String kind;
+  
+  private PintParser.LiteralContext[] literals;
+  private final IdentityHashMap<PintParser.LiteralContext, Value> cache = new IdentityHashMap<>();
+  
+  @Setup
+  public void setup() {
+    var source = new StringBuilder("let main() -> unit {\n");
+    for (var i = 0; i < 64; i++) {
+      source.append(switch (kind) {
+        case "small" -> "  printiln(" + i + ");\n";
+        case "large" -> "  printiln(" + (1_000_000 + i) + ");\n";
+        case "string" -> "  printsln(\"literal number " + i + "\");\n";
+        default -> throw new IllegalArgumentException("Unknown kind '" + kind + "'");
+      });
+    }
+    source.append("}\n");
+    var found = new ArrayList<PintParser.LiteralContext>();
+    PintFrontEnd.parse(CharStreams.fromString(source.toString())).accept(new PintBaseVisitor<Void>() {
+      
+      @Override
+      public Void visitLiteral(PintParser.LiteralContext ctx) {
+        if (ctx.int_ != null || ctx.string != null) found.add(ctx);
+        return null;
+      }
+      
+    });
+    literals = found.toArray(PintParser.LiteralContext[]::new);
+  }
+  
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    for (var literal : literals) blackhole.consume(parse(literal));
+  }
+  
+  @Benchmark
+  public void cached(Blackhole blackhole) {
+    for (var literal : literals) blackhole.consume(cache.computeIfAbsent(literal, LiteralBenchmark::parse));
+  }
+  
+  private static Value parse(PintParser.LiteralContext literal) {
+    if (literal.int_ != null) return Value.of(Integer.parseInt(literal.int_.getText()));
+    var str = literal.string.getText();
+    return Value.of(str.substring(1, str.length() - 1));
+  }
+  
+}
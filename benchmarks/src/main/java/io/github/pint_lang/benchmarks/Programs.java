@@ -0,0 +1,104 @@
+package io.github.pint_lang.benchmarks;
+
+// Sources the benchmarks run on: small kernels that each stress one part of evaluation, and large generated programs for the front end
+public final class Programs {
+  
+  public static final String LOOP = """
+    let main() -> unit {
+      let total: int := 0;
+      let i: int := 0;
+      while i < 100000 loop {
+        if i / 3 * 3 = i or i / 5 * 5 = i then total :+= i else total :-= 1;
+        i :+= 1;
+      };
+      printiln(total);
+    }
+    """;
+  
+  public static final String RECURSION = """
+    let fib(n: int) -> int {
+      if n < 2 then n else fib(n - 1) + fib(n - 2)
+    }
+  
+    let main() -> unit {
+      printiln(fib(20));
+    }
+    """;
+  
+  public static final String SLICING = """
+    let sum(a: int[]) -> int {
+      let total: int := 0;
+      let i: int := 0;
+      while i >= 0 and i < |a| loop {
+        total :+= a[i];
+        i :+= 1;
+      };
+      total
+    }
+  
+    let halves(a: int[]) -> int {
+      let mid: int := |a| / 2;
+      if mid >= 0 and mid <= |a| then sum(a[...mid]) - sum(a[mid...]) else 0
+    }
+  
+    let main() -> unit {
+      let a: int[] := [3, 1, 4, 1, 5, 9, 2, 6, 5, 3, 5, 8, 9, 7, 9, 3, 2, 3, 8, 4];
+      let a2: int[] := [...a, ...a, ...a, ...a, ...a];
+      let total: int := 0;
+      let round: int := 0;
+      while round < 1000 loop {
+        total :+= sum(a2) + halves(a2);
+        round :+= 1;
+      };
+      printiln(total);
+    }
+    """;
+  
+  public static final String STRINGS = """
+    let main() -> unit {
+      let words: string[] := ["pear", "apple", "plum", "apricot", "peach", "fig", "apple", "banana", "cherry", "pear"];
+      let count: int := 0;
+      let round: int := 0;
+      while round < 2000 loop {
+        let previous: string := "";
+        let i: int := 0;
+        while i >= 0 and i < |words| loop {
+          let word: string := words[i];
+          if word < previous then count :+= 1 else {};
+          if word = previous then count :-= 1 else {};
+          if word >= "m" then count :+= |word| else {};
+          previous := word;
+          i :+= 1;
+        };
+        round :+= 1;
+      };
+      printiln(count);
+    }
+    """;
+  
+  private Programs() {}
+  
+  // Every function calls the one before it, so the typechecker resolves calls against a large global scope
+  public static String generate(int functions) {
+    var source = new StringBuilder();
+    for (var f = 0; f < functions; f++) {
+      source.append("let f").append(f).append("(n: int, s: string) -> int {\n");
+      source.append("  let a: int[] := [n, n + 1, n * 2, ").append(f).append("];\n");
+      source.append("  let total: int := 0;\n");
+      source.append("  let i: int := 0;\n");
+      source.append("  while i >= 0 and i < |a| loop {\n");
+      source.append("    total :+= a[i] * 2 - i;\n");
+      source.append("    i :+= 1;\n");
+      source.append("  };\n");
+      source.append("  if s < \"m").append(f).append("\" and not (total = 0) then total :+= |s| else total :-= 1;\n");
+      if (f == 0) source.append("  total\n");
+      else source.append("  if n > 0 then total + f").append(f - 1).append("(n - 1, s) else total\n");
+      source.append("}\n\n");
+    }
+    source.append("let main() -> unit {\n");
+    source.append("  printiln(f").append(functions - 1).append("(3, \"pint\"));\n");
+    source.append("}\n");
+    return source.toString();
+  }
+  
+}
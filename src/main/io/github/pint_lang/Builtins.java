@@ -0,0 +1,80 @@
+package io.github.pint_lang;
+
+import io.github.pint_lang.eval.*;
+
+import java.util.Map;
+import java.util.Scanner;
+
+import static java.lang.Integer.parseInt;
+
+// The native functions every program can call; kept apart from Main so compiled programs don't need the front end
+public class Builtins {
+  
+  public static void define(Map<String, NativeFunction> natives) {
+    natives.put("prints", vargs -> {
+      if (!(vargs.get(0) instanceof StringValue arg)) throw new BadExpressionException("Expected a string");
+      System.out.print(arg.value());
+      return Value.UNIT;
+    });
+    natives.put("printi", vargs -> {
+      System.out.print(vargs.get(0).valueToString());
+      return Value.UNIT;
+    });
+    natives.put("printsln", vargs -> {
+      if (!(vargs.get(0) instanceof StringValue arg)) throw new BadExpressionException("Expected a string");
+      System.out.println(arg.value());
+      return Value.UNIT;
+    });
+    natives.put("printiln", vargs -> {
+      System.out.println(vargs.get(0).valueToString());
+      return Value.UNIT;
+    });
+    natives.put("println", vargs -> {
+      System.out.println();
+      return Value.UNIT;
+    });
+    var in = new Scanner(System.in);
+    natives.put("reads", vargs -> {
+      var line = in.nextLine();
+      return Value.of(line);
+    });
+    natives.put("readi", vargs -> {
+      try {
+        var i = parseInt(in.nextLine());
+        return Value.of(i);
+      } catch (NumberFormatException e) {
+        System.err.println("IO error: expected an int");
+        throw exit(-1);
+      }
+    });
+    natives.put("asks", vargs -> {
+      if (!(vargs.get(0) instanceof StringValue arg)) throw new BadExpressionException("Expected a string");
+      System.out.print(arg.value());
+      var line = in.nextLine();
+      return Value.of(line);
+    });
+    natives.put("aski", vargs -> {
+      if (!(vargs.get(0) instanceof StringValue arg)) throw new BadExpressionException("Expected a string");
+      System.out.print(arg.value());
+      try {
+        var i = parseInt(in.nextLine());
+        return Value.of(i);
+      } catch (NumberFormatException e) {
+        System.err.println("IO error: expected an int");
+        throw exit(-1);
+      }
+    });
+    natives.put("exit", vargs -> {
+      if (!(vargs.get(0) instanceof IntValue arg)) throw new BadExpressionException("Expected an int");
+      System.err.println("Exited with code " + arg.value());
+      throw exit(arg.value());
+    });
+  }
+  
+  // A hack to allow control flow analysis to understand that this exits from a function
+  public static RuntimeException exit(int code) {
+    System.exit(code);
+    throw new IllegalStateException("Good job, you broke Java!");
+  }
+  
+}
@@ -0,0 +1,162 @@
+package io.github.pint_lang;
+
+import io.github.pint_lang.ast.DefAST;
+import io.github.pint_lang.ast.DefsAST;
+import io.github.pint_lang.parse.Parser;
+import io.github.pint_lang.parse.SyntaxException;
+import io.github.pint_lang.typechecker.IncrementalTypechecker;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Keeps a program parsed and typechecked across text edits, for editors that want diagnostics on every keystroke
+// Each top-level definition owns the text from its 'let' up to the next one, and an edit only reparses the definitions whose
+// text it touches; anything that could lex differently once cut out of the whole file is reparsed in full instead
+// While the text has a syntax error, the definitions and types of the last text without one are kept, so half-typed source
+// never throws; otherwise the results always match running parseDefs and typecheck from PintFrontEnd on the whole text
+public class IncrementalFrontEnd {
+  
+  private final IncrementalTypechecker typechecker = new IncrementalTypechecker(PintFrontEnd::declareFunctions);
+  // the text as edited so far, which edit offsets refer to
+  private String text;
+  // the last text that parsed, which defs, starts and typed all describe
+  private String source = "";
+  private List<DefAST<Void>> defs = List.of();
+  // where each definition starts in source
+  private List<Integer> starts = List.of();
+  private String syntaxError;
+  private DefsAST<Type> typed;
+  
+  public IncrementalFrontEnd(String text) {
+    this.text = text;
+    parseAll();
+    typed = typechecker.typecheck(new DefsAST<>(defs, null));
+  }
+  
+  // Replaces length characters at offset with replacement
+  public void edit(int offset, int length, String replacement) {
+    if (offset < 0 || length < 0 || offset + length > text.length()) throw new IndexOutOfBoundsException("edit out of bounds");
+    text = text.substring(0, offset) + replacement + text.substring(offset + length);
+    // the starts only line up with the edit while the text before it was the source they were found in
+    var parsed = syntaxError == null && !defs.isEmpty() && parseAround(offset, length, replacement.length()) || parseAll();
+    if (parsed) typed = typechecker.typecheck(new DefsAST<>(defs, null));
+  }
+  
+  public String text() {
+    return text;
+  }
+  
+  // The text that defs, typedDefs and typeErrors describe, which is the last text without a syntax error
+  public String source() {
+    return source;
+  }
+  
+  public DefsAST<Void> defs() {
+    return new DefsAST<>(defs, null);
+  }
+  
+  public DefsAST<Type> typedDefs() {
+    return typed;
+  }
+  
+  // The first syntax error in the text, or null if there is none
+  public String syntaxError() {
+    return syntaxError;
+  }
+  
+  public List<String> typeErrors() {
+    return typechecker.errors();
+  }
+  
+  // Parses the whole text, returning false and keeping the last definitions that parsed if it has a syntax error
+  private boolean parseAll() {
+    Parser parser;
+    List<DefAST<Void>> parsed;
+    try {
+      parser = new Parser(text);
+      parsed = parser.parseFile().defs();
+    } catch (SyntaxException e) {
+      syntaxError = e.getMessage();
+      return false;
+    }
+    var newStarts = new ArrayList<Integer>(parsed.size());
+    for (var i = 0; i < parsed.size(); i++) newStarts.add(parser.defStart(i));
+    defs = reuse(parsed, defs);
+    starts = newStarts;
+    source = text;
+    syntaxError = null;
+    return true;
+  }
+  
+  // Reparses only the definitions around the edit, returning false if that might not give the same result as reparsing everything
+  private boolean parseAround(int offset, int length, int inserted) {
+    // the edit joins the definitions on both sides if it touches where one ends and the next starts
+    var first = Math.max(0, spanContaining(offset - 1));
+    var last = spanContaining(offset + length);
+    var oldStart = first == 0 ? 0 : starts.get(first);
+    var oldEnd = last + 1 < starts.size() ? starts.get(last + 1) : source.length();
+    var newEnd = oldEnd + inserted - length;
+    // block comments may nest and take the longest match, so one could reach across the edges of the text being reparsed
+    if (hasBlockComment(source, oldStart, oldEnd) || hasBlockComment(text, oldStart, newEnd)) return false;
+    // the text after has to begin with a fresh token, and a line comment can't run on into it
+    if (newEnd < text.length() && newEnd > oldStart && text.charAt(newEnd - 1) != '\n' && text.charAt(newEnd - 1) != '\r') return false;
+    Parser parser;
+    List<DefAST<Void>> parsed;
+    try {
+      parser = new Parser(text.substring(oldStart, newEnd));
+      parsed = parser.parseFile().defs();
+    } catch (SyntaxException e) {
+      return false;
+    }
+    var newDefs = new ArrayList<DefAST<Void>>(defs.size() - (last - first + 1) + parsed.size());
+    var newStarts = new ArrayList<Integer>(newDefs.size());
+    newDefs.addAll(defs.subList(0, first));
+    newStarts.addAll(starts.subList(0, first));
+    newDefs.addAll(reuse(parsed, defs.subList(first, last + 1)));
+    for (var i = 0; i < parsed.size(); i++) newStarts.add(oldStart + parser.defStart(i));
+    newDefs.addAll(defs.subList(last + 1, defs.size()));
+    for (var start : starts.subList(last + 1, starts.size())) newStarts.add(start + inserted - length);
+    defs = newDefs;
+    starts = newStarts;
+    source = text;
+    return true;
+  }
+  
+  // The index of the last definition starting at or before offset, or -1 if there's none
+  private int spanContaining(int offset) {
+    var low = 0;
+    var high = starts.size() - 1;
+    while (low <= high) {
+      var middle = (low + high) >>> 1;
+      if (starts.get(middle) <= offset) low = middle + 1;
+      else high = middle - 1;
+    }
+    return high;
+  }
+  
+  // Looks one character past each end, since "/*" or "*/" could be split between the text and its neighbours
+  private static boolean hasBlockComment(String text, int start, int end) {
+    for (var i = Math.max(0, start - 1); i + 1 < Math.min(text.length(), end + 1); i++) {
+      var c = text.charAt(i);
+      var next = text.charAt(i + 1);
+      if (c == '/' && next == '*' || c == '*' && next == '/') return true;
+    }
+    return false;
+  }
+  
+  // Keeps the old object for any reparsed definition that didn't change, so the typechecker can reuse what it found for it
+  private static List<DefAST<Void>> reuse(List<DefAST<Void>> parsed, List<DefAST<Void>> old) {
+    var unchanged = new HashMap<DefAST<Void>, ArrayDeque<DefAST<Void>>>();
+    for (var def : old) unchanged.computeIfAbsent(def, key -> new ArrayDeque<>()).add(def);
+    var result = new ArrayList<DefAST<Void>>(parsed.size());
+    for (var def : parsed) {
+      var same = unchanged.get(def);
+      result.add(same == null || same.isEmpty() ? def : same.poll());
+    }
+    return result;
+  }
+  
+}
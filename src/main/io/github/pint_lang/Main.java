@@ -1,167 +1,140 @@
 package io.github.pint_lang;
 
 import io.github.pint_lang.ast.ASTConversionVisitor;
+import io.github.pint_lang.ast.DefsAST;
 import io.github.pint_lang.eval.*;
-import io.github.pint_lang.gen.PintLexer;
-import io.github.pint_lang.gen.PintParser;
-import io.github.pint_lang.eval.ExprEvalControlFlow.*;
-
+import io.github.pint_lang.jvm.JarBuilder;
+import io.github.pint_lang.jvm.JvmCompiler;
+import io.github.pint_lang.node.NodeInterpreter;
+import io.github.pint_lang.opt.ConstantFoldVisitor;
+import io.github.pint_lang.opt.PurityAnalysis;
 import io.github.pint_lang.typechecker.*;
-import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import io.github.pint_lang.vm.BytecodeCompiler;
+import io.github.pint_lang.vm.VM;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Scanner;
-
-import static java.lang.Integer.parseInt;
+import java.util.*;
 
 public class Main {
   
+  // below this many bytes a source is read and parsed once in full; past it, reading it twice to avoid holding all of its
+  // text, tokens and untyped definitions at once is worth the time
+  private static final long STREAM_THRESHOLD = 16 << 20;
+  
   public static void main(String[] args) throws IOException {
-    if (args.length == 0) {
+    String source = null;
+    String output = null;
+    var engine = "vm";
+    var stats = false;
+    var optimize = true;
+    var maxDepth = VM.DEFAULT_MAX_DEPTH;
+    var memoNames = new LinkedHashSet<String>();
+    var pintc = args.length > 0 && args[0].equals("pintc");
+    for (var i = pintc ? 1 : 0; i < args.length; i++) {
+      var arg = args[i];
+      if (pintc && arg.equals("-o") && i + 1 < args.length) output = args[++i];
+      else if (!pintc && arg.startsWith("--engine=")) engine = arg.substring("--engine=".length());
+      else if (!pintc && arg.equals("--stats")) stats = true;
+      else if (!pintc && arg.equals("--no-opt")) optimize = false;
+      else if (!pintc && arg.startsWith("--memo=")) memoNames.addAll(List.of(arg.substring("--memo=".length()).split(",")));
+      else if (!pintc && arg.startsWith("--max-depth=")) {
+        try {
+          maxDepth = Integer.parseInt(arg.substring("--max-depth=".length()));
+        } catch (NumberFormatException e) {
+          maxDepth = 0;
+        }
+        if (maxDepth < 1) {
+          System.err.println("error: invalid maximum call depth '" + arg.substring("--max-depth=".length()) + "' (expected a positive integer)");
+          System.exit(-1);
+        }
+      }
+      else if (source == null) source = arg;
+      else System.err.println("warning: ignoring extra command-line argument '" + arg + "'");
+    }
+    if (source == null) {
       System.err.println("error: missing a source file");
       System.exit(-1);
     }
-    if (args.length > 1) {
-      System.err.println("warning: ignoring extra command-line arguments");
+    if (!List.of("vm", "jvm", "ast", "node", "cst").contains(engine)) {
+      System.err.println("error: unknown engine '" + engine + "' (expected vm, jvm, ast, node or cst)");
+      System.exit(-1);
+    }
+    if (maxDepth != VM.DEFAULT_MAX_DEPTH && !engine.equals("vm")) System.err.println("warning: --max-depth only applies to the vm engine");
+    if (!memoNames.isEmpty() && !engine.equals("vm") && !engine.equals("ast")) System.err.println("warning: --memo only applies to the vm and ast engines");
+    Path jar = null;
+    byte[] sourceBytes = null;
+    if (pintc) {
+      jar = Path.of(output != null ? output : source.replaceFirst("\\.pint$", "") + ".jar");
+      sourceBytes = Files.readAllBytes(Path.of(source));
+      if (JarBuilder.isUpToDate(jar, sourceBytes)) {
+        System.out.println(jar + " is up to date");
+        return;
+      }
     }
-    var chars = CharStreams.fromPath(Path.of(args[0]));
-    var lexer = new PintLexer(chars);
-    var tokens = new CommonTokenStream(lexer);
-    var parser = new PintParser(tokens);
-    var file = parser.file();
+    // only the legacy evaluator walks the parse tree, so everything else skips building one
+    var file = engine.equals("cst") ? PintFrontEnd.parse(Path.of(source)) : null;
     boolean errors;
+    DefsAST<Type> typedDefs;
     {
       var logger = ErrorLogger.fixed(Type.ERROR);
-      var globals = new GlobalLookup();
-      declareFunctions(globals, logger.parent());
-      var defs = new ASTConversionVisitor().visitFile(file);
-      new TypecheckVisitor(logger, globals).visitDefs(defs);
+      if (file != null) typedDefs = PintFrontEnd.typecheck(new ASTConversionVisitor().visitFile(file), logger);
+      else if (Files.size(Path.of(source)) < STREAM_THRESHOLD) typedDefs = PintFrontEnd.typecheck(PintFrontEnd.parseDefs(Path.of(source)), logger);
+      else typedDefs = PintFrontEnd.readDefs(Path.of(source), logger);
       errors = logger.dumpErrors(System.err);
       if (!errors) System.out.println("No type errors detected");
     }
+    if (!errors && optimize && !engine.equals("cst")) typedDefs = new ConstantFoldVisitor().visitDefs(typedDefs);
+    if (pintc) {
+      if (errors) System.exit(-1);
+      var natives = new LinkedHashMap<String, NativeFunction>();
+      Builtins.define(natives);
+      JarBuilder.write(jar, typedDefs, natives.keySet(), sourceBytes);
+      System.out.println("Wrote " + jar);
+      return;
+    }
     System.out.println();
     if (!errors) {
-      var global = new GlobalScope();
-      defineFunctions(global);
-      var varNames = new HashSet<String>();
-      var vars = new ArrayList<Definition.Variable>();
-      var defVisitor = new DefEvalVisitor();
-      for (var def : file.def()) {
-        var definition = def.accept(defVisitor);
-        if (definition instanceof Definition.Function function) {
-          if (varNames.contains(function.name()) || !global.defineFunction(function.name(), function))
-            throw new BadDefinitionException("Duplicate global definition '" + function.name() + "'");
-        } else if (definition instanceof Definition.Variable variable) {
-          if (varNames.contains(variable.name()) || global.hasFunction(variable.name()))
-            throw new BadDefinitionException("Duplicate global definition '" + variable.name() + "'");
-          varNames.add(variable.name());
-          vars.add(variable);
-        } else {
-          throw new IllegalStateException("Invalid definition");
-        }
-      }
-      var main = global.getFunction("main").orElseThrow(() -> new BadDefinitionException("Missing a main method"));
-      var exprVisitor = new ExprEvalVisitor(new ScopeStack(global));
-      for (var v : vars) {
-        var vFlow = v.valueCst().accept(exprVisitor);
-        if (!(vFlow instanceof Finish vFinish)) {
-          if (vFlow instanceof Return) throw new BadJumpException("Returned from variable definition");
-          else if (vFlow instanceof Labeled vLabeled)
-            throw new BadJumpException(vLabeled.label() != null ? "Missing label '" + vLabeled.label() + "' (did you make a typo?)" : "Unlabeled jump outside of any loop");
-          else throw new IllegalStateException("Invalid variable definition exit");
+      var natives = new LinkedHashMap<String, NativeFunction>();
+      Builtins.define(natives);
+      var memo = memoTables(typedDefs, memoNames);
+      var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      var startBytes = threads.getCurrentThreadAllocatedBytes();
+      var startTime = System.nanoTime();
+      try {
+        switch (engine) {
+          case "vm" -> new VM(new BytecodeCompiler(natives.keySet(), memo.keySet()).compile(typedDefs), natives, maxDepth, memo).run();
+          case "jvm" -> new JvmCompiler(natives.keySet()).compile(typedDefs).run(natives);
+          case "ast" -> new AstEvalVisitor(typedDefs, natives, memo).run();
+          case "node" -> new NodeInterpreter(typedDefs, natives).run();
+          case "cst" -> new CstInterpreter(file, natives).run();
         }
-        global.defineVariable(v.name(), vFinish.value());
+      } catch (CallDepthException e) {
+        System.out.println();
+        System.err.println("error: " + e.getMessage());
+        System.exit(-1);
       }
-      var mainValue = main.call(exprVisitor);
-      if (!(mainValue instanceof UnitValue)) throw new BadTypeException("main() must return unit");
+      var time = System.nanoTime() - startTime;
+      var bytes = threads.getCurrentThreadAllocatedBytes() - startBytes;
       System.out.println();
       System.out.println("Successfully returned from main()");
+      if (stats) System.err.println("Ran in " + time / 1_000_000 + " ms, allocating " + bytes + " bytes");
+      if (stats) memo.forEach((name, table) -> System.err.println("Memoized " + name + "(): " + table.hits() + " hits, " + table.misses() + " misses, " + table.size() + " entries"));
     }
   }
   
-  private static void declareFunctions(GlobalLookup globals, ErrorLogger logger) {
-    globals.addFunction("prints", new GlobalLookup.FunctionType(Type.UNIT, List.of(new GlobalLookup.Param("s", Type.STRING))), logger);
-    globals.addFunction("printi", new GlobalLookup.FunctionType(Type.UNIT, List.of(new GlobalLookup.Param("i", Type.INT))), logger);
-    globals.addFunction("printsln", new GlobalLookup.FunctionType(Type.UNIT, List.of(new GlobalLookup.Param("s", Type.STRING))), logger);
-    globals.addFunction("printiln", new GlobalLookup.FunctionType(Type.UNIT, List.of(new GlobalLookup.Param("i", Type.INT))), logger);
-    globals.addFunction("println", new GlobalLookup.FunctionType(Type.UNIT, List.of()), logger);
-    globals.addFunction("reads", new GlobalLookup.FunctionType(Type.STRING, List.of()), logger);
-    globals.addFunction("readi", new GlobalLookup.FunctionType(Type.INT, List.of()), logger);
-    globals.addFunction("asks", new GlobalLookup.FunctionType(Type.STRING, List.of(new GlobalLookup.Param("s", Type.STRING))), logger);
-    globals.addFunction("aski", new GlobalLookup.FunctionType(Type.INT, List.of(new GlobalLookup.Param("s", Type.STRING))), logger);
-    globals.addFunction("exit", new GlobalLookup.FunctionType(Type.NEVER, List.of(new GlobalLookup.Param("code", Type.INT))), logger);
-  }
-  
-  private static void defineFunctions(GlobalScope global) {
-    global.defineFunction("prints", (exprEval, vargs) -> {
-      if (!(vargs.get(0) instanceof StringValue arg)) throw new BadExpressionException("Expected a string");
-      System.out.print(arg.value());
-      return Value.UNIT;
-    });
-    global.defineFunction("printi", (exprEval, vargs) -> {
-      System.out.print(vargs.get(0).valueToString());
-      return Value.UNIT;
-    });
-    global.defineFunction("printsln", (exprEval, vargs) -> {
-      if (!(vargs.get(0) instanceof StringValue arg)) throw new BadExpressionException("Expected a string");
-      System.out.println(arg.value());
-      return Value.UNIT;
-    });
-    global.defineFunction("printiln", (exprEval, vargs) -> {
-      System.out.println(vargs.get(0).valueToString());
-      return Value.UNIT;
-    });
-    global.defineFunction("println", (exprEval, vargs) -> {
-      System.out.println();
-      return Value.UNIT;
-    });
-    var in = new Scanner(System.in);
-    global.defineFunction("reads", (exprEval, vargs) -> {
-      var line = in.nextLine();
-      return Value.of(line);
-    });
-    global.defineFunction("readi", (exprEval, vargs) -> {
-      try {
-        var i = parseInt(in.nextLine());
-        return Value.of(i);
-      } catch (NumberFormatException e) {
-        System.err.println("IO error: expected an int");
-        throw exit(-1);
-      }
-    });
-    global.defineFunction("asks", (exprEval, vargs) -> {
-      if (!(vargs.get(0) instanceof StringValue arg)) throw new BadExpressionException("Expected a string");
-      System.out.print(arg.value());
-      var line = in.nextLine();
-      return Value.of(line);
-    });
-    global.defineFunction("aski", (exprEval, vargs) -> {
-      if (!(vargs.get(0) instanceof StringValue arg)) throw new BadExpressionException("Expected a string");
-      System.out.print(arg.value());
-      try {
-        var i = parseInt(in.nextLine());
-        return Value.of(i);
-      } catch (NumberFormatException e) {
-        System.err.println("IO error: expected an int");
-        throw exit(-1);
-      }
-    });
-    global.defineFunction("exit", (exprEval, vargs) -> {
-      if (!(vargs.get(0) instanceof IntValue arg)) throw new BadExpressionException("Expected an int");
-      System.err.println("Exited with code " + arg.value());
-      throw exit(arg.value());
-    });
-  }
-  
-  // A hack to allow control flow analysis to understand that this exits from a function
-  public static RuntimeException exit(int code) {
-    System.exit(code);
-    throw new IllegalStateException("Good job, you broke Java!");
+  static Map<String, MemoTable> memoTables(DefsAST<Type> defs, Set<String> names) {
+    var tables = new LinkedHashMap<String, MemoTable>();
+    if (names.isEmpty()) return tables;
+    var purity = new PurityAnalysis(defs);
+    for (var name : names) {
+      if (!purity.isFunction(name)) System.err.println("warning: cannot memoize '" + name + "', which is not a function");
+      else if (!purity.isPure(name)) System.err.println("warning: cannot memoize '" + name + "', which is not pure");
+      else tables.put(name, new MemoTable());
+    }
+    return tables;
   }
   
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package io.github.pint_lang;
+
+import io.github.pint_lang.ast.ASTConversionVisitor;
+import io.github.pint_lang.ast.DefAST;
+import io.github.pint_lang.ast.DefsAST;
+import io.github.pint_lang.ast.FuncDefAST;
+import io.github.pint_lang.gen.PintLexer;
+import io.github.pint_lang.gen.PintParser;
+import io.github.pint_lang.parse.DefReader;
+import io.github.pint_lang.parse.MappedCharStream;
+import io.github.pint_lang.parse.Parser;
+import io.github.pint_lang.parse.SyntaxException;
+import io.github.pint_lang.typechecker.ErrorLogger;
+import io.github.pint_lang.typechecker.GlobalLookup;
+import io.github.pint_lang.typechecker.Type;
+import io.github.pint_lang.typechecker.TypecheckVisitor;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Turns source text into a parse tree and typechecks converted definitions, for Main and anything else that needs a front end
+public class PintFrontEnd {
+  
+  public static DefsAST<Void> parseDefs(Path source) throws IOException {
+    // decoded like CharStreams.fromPath, replacing malformed input rather than failing on it
+    return parseDefs(new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+  }
+  
+  // Goes straight to the AST with the hand-written parser, leaving any source it rejects to ANTLR so that syntax errors
+  // are reported and recovered from exactly as before
+  public static DefsAST<Void> parseDefs(String source) {
+    try {
+      return Parser.parse(source);
+    } catch (SyntaxException e) {
+      return new ASTConversionVisitor().visitFile(parse(CharStreams.fromString(source)));
+    }
+  }
+  
+  // Parses and typechecks source without ever holding all of its text, tokens, or untyped definitions: the source is read
+  // once to declare every function and again to check each definition in turn, so only the typed definitions are kept
+  // Anything DefReader rejects is read again in full by ANTLR, which reports syntax errors as usual
+  public static DefsAST<Type> readDefs(Path source, ErrorLogger.Fixed<Type> logger) throws IOException {
+    // errors are only passed on once reading succeeds, or they would be logged again after falling back
+    var streamLogger = ErrorLogger.fixed(Type.ERROR);
+    var globals = new GlobalLookup();
+    declareFunctions(globals, streamLogger.parent());
+    var typechecker = new TypecheckVisitor(streamLogger, globals);
+    // the typechecker knows signature types by identity, so each function is checked with the signature it was declared with
+    var signatures = new ArrayDeque<FuncDefAST<Void>>();
+    var defs = new ArrayList<DefAST<Type>>();
+    var error = false;
+    try {
+      try (var reader = defReader(source)) {
+        for (var def = reader.next(); def != null; def = reader.next()) {
+          typechecker.declare(def);
+          if (def instanceof FuncDefAST<Void> func) signatures.add(new FuncDefAST<>(func.name(), func.params(), func.returnType(), null, null));
+        }
+      }
+      try (var reader = defReader(source)) {
+        for (var def = reader.next(); def != null; def = reader.next()) {
+          if (def instanceof FuncDefAST<Void> func) {
+            var signature = signatures.poll();
+            // only if the file changed in between
+            if (signature == null || !signature.name().equals(func.name()) || !signature.params().equals(func.params()) || !signature.returnType().equals(func.returnType())) throw new SyntaxException("source changed while reading");
+            def = new FuncDefAST<>(func.name(), signature.params(), signature.returnType(), func.body(), null);
+          }
+          var typed = def.accept(typechecker);
+          if (typed.data() == Type.ERROR) error = true;
+          defs.add(typed);
+        }
+      }
+    } catch (SyntaxException e) {
+      // Parser would only reject the source again
+      return typecheck(new ASTConversionVisitor().visitFile(parse(source)), logger);
+    }
+    for (var message : streamLogger.parent().errors()) logger.error(message);
+    return new DefsAST<>(defs, error ? Type.ERROR : Type.UNIT);
+  }
+  
+  private static DefReader defReader(Path source) throws IOException {
+    // decoded like parseDefs, replacing malformed input
+    return new DefReader(new InputStreamReader(Files.newInputStream(source), StandardCharsets.UTF_8));
+  }
+  
+  // Only the cst engine and readDefs's fallback build a parse tree, so only they load through MappedCharStream; parseDefs
+  // lexes a String with the hand-written Lexer, and DefReader never holds more than one definition's text anyway
+  public static PintParser.FileContext parse(Path source) throws IOException {
+    return parse(MappedCharStream.fromPath(source));
+  }
+  
+  // Parses with the cheaper SLL prediction first, which is enough for nearly every valid program,
+  // and only falls back to full LL (which also reports any syntax errors) when that fails
+  public static PintParser.FileContext parse(CharStream input) {
+    var tokens = new CommonTokenStream(new PintLexer(input));
+    var parser = new PintParser(tokens);
+    parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+    parser.removeErrorListeners();
+    parser.setErrorHandler(new BailErrorStrategy());
+    try {
+      return parser.file();
+    } catch (ParseCancellationException e) {
+      tokens.seek(0);
+      parser.reset();
+      parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+      parser.setErrorHandler(new DefaultErrorStrategy());
+      parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+      return parser.file();
+    }
+  }
+  
+  public static DefsAST<Type> typecheck(DefsAST<Void> defs, ErrorLogger.Fixed<Type> logger) {
+    var globals = new GlobalLookup();
+    declareFunctions(globals, logger.parent());
+    return new TypecheckVisitor(logger, globals).visitDefs(defs);
+  }
+  
+  public static void declareFunctions(GlobalLookup globals, ErrorLogger logger) {
+    globals.addFunction("prints", new GlobalLookup.FunctionType(Type.UNIT, List.of(new GlobalLookup.Param("s", Type.STRING))), logger);
+    globals.addFunction("printi", new GlobalLookup.FunctionType(Type.UNIT, List.of(new GlobalLookup.Param("i", Type.INT))), logger);
+    globals.addFunction("printsln", new GlobalLookup.FunctionType(Type.UNIT, List.of(new GlobalLookup.Param("s", Type.STRING))), logger);
+    globals.addFunction("printiln", new GlobalLookup.FunctionType(Type.UNIT, List.of(new GlobalLookup.Param("i", Type.INT))), logger);
+    globals.addFunction("println", new GlobalLookup.FunctionType(Type.UNIT, List.of()), logger);
+    globals.addFunction("reads", new GlobalLookup.FunctionType(Type.STRING, List.of()), logger);
+    globals.addFunction("readi", new GlobalLookup.FunctionType(Type.INT, List.of()), logger);
+    globals.addFunction("asks", new GlobalLookup.FunctionType(Type.STRING, List.of(new GlobalLookup.Param("s", Type.STRING))), logger);
+    globals.addFunction("aski", new GlobalLookup.FunctionType(Type.INT, List.of(new GlobalLookup.Param("s", Type.STRING))), logger);
+    globals.addFunction("exit", new GlobalLookup.FunctionType(Type.NEVER, List.of(new GlobalLookup.Param("code", Type.INT))), logger);
+  }
+  
+}
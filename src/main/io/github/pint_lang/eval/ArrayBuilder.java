@@ -0,0 +1,109 @@
+package io.github.pint_lang.eval;
+
+import java.util.Arrays;
+
+// Builds an array in the representation of its first item, boxing everything if later items don't fit it
+public final class ArrayBuilder {
+  
+  // Spreading an array at least this long links it into a rope rather than copying it
+  private static final int LINK_LENGTH = 64;
+  
+  private final int capacity;
+  private ArrayValue linked;
+  private int[] ints;
+  private boolean[] bools;
+  private Value[] refs;
+  private int size = 0;
+  
+  public ArrayBuilder(int capacity) {
+    this.capacity = capacity;
+  }
+  
+  public ArrayBuilder addInt(int value) {
+    if (bools != null || refs != null) return addRef(Value.of(value));
+    if (ints == null) ints = new int[capacity];
+    if (size == ints.length) ints = Arrays.copyOf(ints, grow(ints.length, size + 1));
+    ints[size++] = value;
+    return this;
+  }
+  
+  public ArrayBuilder addBool(boolean value) {
+    if (ints != null || refs != null) return addRef(Value.of(value));
+    if (bools == null) bools = new boolean[capacity];
+    if (size == bools.length) bools = Arrays.copyOf(bools, grow(bools.length, size + 1));
+    bools[size++] = value;
+    return this;
+  }
+  
+  public ArrayBuilder add(Value value) {
+    if (value instanceof IntValue intValue && bools == null && refs == null) return addInt(intValue.value());
+    if (value instanceof BoolValue boolValue && ints == null && refs == null) return addBool(boolValue.value());
+    return addRef(value);
+  }
+  
+  private ArrayBuilder addRef(Value value) {
+    if (refs == null) box();
+    if (size == refs.length) refs = Arrays.copyOf(refs, grow(refs.length, size + 1));
+    refs[size++] = value;
+    return this;
+  }
+  
+  public ArrayBuilder addAll(Value array) {
+    if (!(array instanceof ArrayValue arrayValue)) throw new BadTypeException("Only arrays can be spread into arrays");
+    var length = arrayValue.length();
+    if (length == 0) return this;
+    if (length >= LINK_LENGTH) {
+      linked = linked != null ? RopeArrayValue.concat(linked, flush()) : flush();
+      linked = RopeArrayValue.concat(linked, arrayValue);
+      return this;
+    }
+    if (arrayValue instanceof RopeArrayValue rope) return addAll(rope.left()).addAll(rope.right());
+    if (arrayValue instanceof IntArrayValue intArray && bools == null && refs == null) {
+      if (ints == null) ints = new int[Math.max(capacity, length)];
+      else if (size + length > ints.length) ints = Arrays.copyOf(ints, grow(ints.length, size + length));
+      System.arraycopy(intArray.values(), intArray.offset(), ints, size, length);
+    } else if (arrayValue instanceof BoolArrayValue boolArray && ints == null && refs == null) {
+      if (bools == null) bools = new boolean[Math.max(capacity, length)];
+      else if (size + length > bools.length) bools = Arrays.copyOf(bools, grow(bools.length, size + length));
+      System.arraycopy(boolArray.values(), boolArray.offset(), bools, size, length);
+    } else if (arrayValue instanceof RefArrayValue refArray) {
+      if (refs == null) box();
+      if (size + length > refs.length) refs = Arrays.copyOf(refs, grow(refs.length, size + length));
+      System.arraycopy(refArray.values(), refArray.offset(), refs, size, length);
+    } else {
+      for (var i = 0; i < length; i++) add(arrayValue.get(i));
+      return this;
+    }
+    size += length;
+    return this;
+  }
+  
+  public ArrayValue build() {
+    return linked != null ? RopeArrayValue.concat(linked, flush()) : flush();
+  }
+  
+  // Takes the items added since the last flush as a flat array
+  private ArrayValue flush() {
+    ArrayValue array;
+    if (ints != null) array = new IntArrayValue(size == ints.length ? ints : Arrays.copyOf(ints, size));
+    else if (bools != null) array = new BoolArrayValue(size == bools.length ? bools : Arrays.copyOf(bools, size));
+    else array = new RefArrayValue(refs == null ? new Value[0] : size == refs.length ? refs : Arrays.copyOf(refs, size));
+    ints = null;
+    bools = null;
+    refs = null;
+    size = 0;
+    return array;
+  }
+  
+  private void box() {
+    refs = new Value[ints != null ? ints.length : bools != null ? bools.length : capacity];
+    for (var i = 0; i < size; i++) refs[i] = ints != null ? Value.of(ints[i]) : Value.of(bools[i]);
+    ints = null;
+    bools = null;
+  }
+  
+  private static int grow(int length, int needed) {
+    return Math.max(Math.max(length * 2, 4), needed);
+  }
+  
+}
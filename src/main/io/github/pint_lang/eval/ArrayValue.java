@@ -1,28 +1,65 @@
 package io.github.pint_lang.eval;
 
-import static java.util.Arrays.stream;
-import static java.util.stream.Collectors.joining;
+import java.util.StringJoiner;
 
-public record ArrayValue(Value[] values) implements Value {
+// Arrays of ints and bools keep their items unboxed, and only box them when they're read as values
+// Arrays are immutable, so a slice is a view of its array's storage rather than a copy
+public sealed interface ArrayValue extends Value permits RefArrayValue, IntArrayValue, BoolArrayValue, RopeArrayValue {
   
-  public ArrayValue {
-    if (values == null) throw new NullPointerException("values must not be null");
+  int length();
+  
+  Value get(int index);
+  
+  default int getInt(int index) {
+    return ((IntValue) get(index)).value();
+  }
+  
+  default boolean getBool(int index) {
+    return ((BoolValue) get(index)).value();
+  }
+  
+  ArrayValue slice(int from, int to);
+  
+  // The unchecked accessors only assert their bounds, for representations that have already checked them; every engine goes
+  // through the checked ones above, since a proof about a global's length doesn't survive a call that reassigns it
+  Value getUnchecked(int index);
+  
+  default int getIntUnchecked(int index) {
+    return ((IntValue) getUnchecked(index)).value();
   }
   
+  default boolean getBoolUnchecked(int index) {
+    return ((BoolValue) getUnchecked(index)).value();
+  }
+  
+  ArrayValue sliceUnchecked(int from, int to);
+  
   @Override
-  public boolean valueEquals(Value value) {
-    if (value instanceof ArrayValue other) {
-      if (other.values.length != this.values.length) return false;
-      for (var i = 0; i < this.values.length; i++) {
-        if (!other.values[i].valueEquals(this.values[i])) return false;
-      }
+  default boolean valueEquals(Value value) {
+    if (value == this) return true;
+    if (!(value instanceof ArrayValue other) || other.length() != this.length()) return false;
+    for (var i = 0; i < this.length(); i++) {
+      if (!other.get(i).valueEquals(this.get(i))) return false;
     }
     return true;
   }
   
+  // Flat arrays at least this long cache their hash, since a memo table rehashes a function's arguments on every call
+  int HASHED_LENGTH = 64;
+  
+  // Combines the items' hashes like Arrays.hashCode, so every representation of the same items hashes the same
+  @Override
+  default int valueHash() {
+    var hash = 1;
+    for (var i = 0; i < length(); i++) hash = 31 * hash + get(i).valueHash();
+    return hash;
+  }
+  
   @Override
-  public String valueToString() {
-    return stream(values).map(Value::valueToString).collect(joining(", ", "[", "]"));
+  default String valueToString() {
+    var joiner = new StringJoiner(", ", "[", "]");
+    for (var i = 0; i < length(); i++) joiner.add(get(i).valueToString());
+    return joiner.toString();
   }
   
 }
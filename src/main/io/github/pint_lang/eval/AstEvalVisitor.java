@@ -0,0 +1,616 @@
+package io.github.pint_lang.eval;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Evaluates the typed AST with every local variable stored in a per-call frame array, using slots ResolveVisitor stored on the nodes
+// A visit cut short by a jump expression returns null, and the jump is described by the jump fields until something catches it
+public class AstEvalVisitor implements StatASTVisitor<Resolved, Value> {
+  
+  private static final Value[] NO_VALUES = new Value[0];
+  private static final int[] NO_INTS = new int[0];
+  
+  private final DefsAST<Resolved> defs;
+  private final Map<String, NativeFunction> natives;
+  private final Map<String, MemoTable> memo;
+  private final HashMap<String, FuncDefAST<Resolved>> functions = new HashMap<>();
+  private final ResolveVisitor slots;
+  private final Value[] globals;
+  private final IdentityHashMap<FuncCallExprAST<Resolved>, CallTarget> callTargets = new IdentityHashMap<>();
+  private Value[] frame;
+  private int[] ints;
+  // Frames the current invocation finished with, which its next tail call can fill in instead of allocating
+  private Value[] spareFrame;
+  private int[] spareInts;
+  // A tail call unwinds like a return and leaves its callee here for the enclosing invoke to run
+  private FuncDefAST<Resolved> tailFunction;
+  private Value[] tailFrame;
+  private int[] tailInts;
+  private JumpKind jumpKind;
+  private String jumpLabel;
+  private Value jumpValue;
+  
+  // What a call site resolved to the first time it ran: either a function with its frame layout or a native function
+  private record CallTarget(FuncDefAST<Resolved> function, SlotResolver.Slot[] params, int frameSize, int intFrameSize, boolean tail, MemoTable memo, NativeFunction nativeFunction) {}
+  
+  public AstEvalVisitor(DefsAST<Type> defs, Map<String, NativeFunction> natives) {
+    this(defs, natives, Map.of());
+  }
+  
+  // Calls to the functions in memo are looked up in their table first; they must be pure
+  public AstEvalVisitor(DefsAST<Type> defs, Map<String, NativeFunction> natives, Map<String, MemoTable> memo) {
+    if (defs == null) throw new NullPointerException("defs must not be null");
+    if (natives == null) throw new NullPointerException("natives must not be null");
+    if (memo == null) throw new NullPointerException("memo must not be null");
+    this.natives = natives;
+    this.memo = memo;
+    this.slots = new ResolveVisitor(defs);
+    this.defs = slots.visitDefs(defs);
+    this.globals = new Value[slots.globalCount()];
+  }
+  
+  public void run() {
+    var vars = new ArrayList<VarDefAST<Resolved>>();
+    for (var def : defs.defs()) {
+      if (natives.containsKey(def.name()) || functions.containsKey(def.name()) || vars.stream().anyMatch(other -> other.name().equals(def.name())))
+        throw new BadDefinitionException("Duplicate global definition '" + def.name() + "'");
+      if (def instanceof FuncDefAST<Resolved> funcDef) {
+        if (funcDef.params().stream().map(FuncDefAST.Param::name).distinct().count() != funcDef.params().size()) throw new BadDefinitionException("Function with duplicate parameters");
+        functions.put(funcDef.name(), funcDef);
+      } else if (def instanceof VarDefAST<Resolved> varDef) {
+        vars.add(varDef);
+      }
+    }
+    var main = functions.get("main");
+    if (main == null) throw new BadDefinitionException("Missing a main method");
+    for (var v : vars) {
+      frame = newFrame(slots.frameSize(v));
+      ints = newInts(slots.intFrameSize(v));
+      var value = v.value().accept(this);
+      if (jumpKind == JumpKind.RETURN) throw new BadJumpException("Returned from variable definition");
+      else if (jumpKind != null) throw missingLabel();
+      globals[slots.globalIndex(v.name())] = value;
+    }
+    if (!main.params().isEmpty()) throw new IllegalArgumentException("Expected " + main.params().size() + " arguments; got 0");
+    var mainValue = invoke(main, newFrame(slots.frameSize(main)), newInts(slots.intFrameSize(main)));
+    if (!(mainValue instanceof UnitValue)) throw new BadTypeException("main() must return unit");
+  }
+  
+  private static Value[] newFrame(int size) {
+    return size == 0 ? NO_VALUES : new Value[size];
+  }
+  
+  private static int[] newInts(int size) {
+    return size == 0 ? NO_INTS : new int[size];
+  }
+  
+  private Value invoke(FuncDefAST<Resolved> function, Value[] calleeFrame, int[] calleeInts) {
+    var callerFrame = frame;
+    var callerInts = ints;
+    var callerSpareFrame = spareFrame;
+    var callerSpareInts = spareInts;
+    frame = calleeFrame;
+    ints = calleeInts;
+    spareFrame = null;
+    spareInts = null;
+    try {
+      while (true) {
+        var value = function.body().accept(this);
+        if (jumpKind == null) return value;
+        else if (jumpKind != JumpKind.RETURN) throw missingLabel();
+        else if (tailFunction == null) return catchJump();
+        function = tailFunction;
+        spareFrame = frame;
+        spareInts = ints;
+        frame = tailFrame;
+        ints = tailInts;
+        tailFunction = null;
+        tailFrame = null;
+        tailInts = null;
+        catchJump();
+      }
+    } finally {
+      frame = callerFrame;
+      ints = callerInts;
+      spareFrame = callerSpareFrame;
+      spareInts = callerSpareInts;
+    }
+  }
+  
+  private BadJumpException missingLabel() {
+    return new BadJumpException(jumpLabel != null ? "Missing label '" + jumpLabel + "' (did you make a typo?)" : "Unlabeled jump outside of any loop");
+  }
+  
+  private Value catchJump() {
+    var value = jumpValue;
+    jumpKind = null;
+    jumpLabel = null;
+    jumpValue = null;
+    return value;
+  }
+  
+  private SlotResolver.Slot slot(VarExprAST<Resolved> ast) {
+    var slot = ast.data().slot();
+    if (slot == null) throw NoSuchNameException.variable(ast.name());
+    return slot;
+  }
+  
+  private Value getVariable(VarExprAST<Resolved> ast) {
+    var slot = slot(ast);
+    return switch (slot.storage()) {
+      case GLOBAL -> {
+        var value = globals[slot.index()];
+        if (value == null) throw NoSuchNameException.variable(ast.name());
+        yield value;
+      }
+      case REF -> frame[slot.index()];
+      case INT -> Value.of(ints[slot.index()]);
+      case BOOL -> Value.of(ints[slot.index()] != 0);
+    };
+  }
+  
+  private void setVariable(SlotResolver.Slot slot, Value value) {
+    switch (slot.storage()) {
+      case GLOBAL -> globals[slot.index()] = value;
+      case REF -> frame[slot.index()] = value;
+      case INT -> ints[slot.index()] = ((IntValue) value).value();
+      case BOOL -> ints[slot.index()] = ((BoolValue) value).value() ? 1 : 0;
+    }
+  }
+  
+  // Evaluates an int-typed expression without boxing; check jumpKind afterwards
+  private int evalInt(ExprAST<Resolved> ast) {
+    if (ast instanceof IntLiteralExprAST<Resolved> literal) return literal.value();
+    if (ast instanceof VarExprAST<Resolved> variable) {
+      var slot = slot(variable);
+      if (slot.storage() == SlotResolver.Storage.INT) return ints[slot.index()];
+    } else if (ast instanceof BinaryExprAST<Resolved> binary) {
+      switch (binary.op()) {
+        case ADD, SUB, MUL, DIV -> {
+          var left = evalInt(binary.left());
+          if (jumpKind != null) return 0;
+          var right = evalInt(binary.right());
+          if (jumpKind != null) return 0;
+          return switch (binary.op()) {
+            case ADD -> left + right;
+            case SUB -> left - right;
+            case MUL -> left * right;
+            default -> left / right;
+          };
+        }
+      }
+    } else if (ast instanceof UnaryExprAST<Resolved> unary) {
+      switch (unary.op()) {
+        case PLUS -> {
+          return evalInt(unary.operand());
+        }
+        case NEG -> {
+          return -evalInt(unary.operand());
+        }
+        case ABS -> {
+          if (unary.operand().data().type().unconditioned() == Type.INT) return Math.abs(evalInt(unary.operand()));
+          var operand = unary.operand().accept(this);
+          if (jumpKind != null) return 0;
+          if (operand instanceof IntValue value) return Math.abs(value.value());
+          else if (operand instanceof StringValue value) return value.value().length();
+          else if (operand instanceof ArrayValue value) return value.length();
+          else throw new BadTypeException("Unary | | operator only applies to ints, strings and arrays");
+        }
+      }
+    } else if (ast instanceof IndexExprAST<Resolved> index) {
+      var indexee = index.indexee().accept(this);
+      if (jumpKind != null) return 0;
+      var i = evalInt(index.index());
+      if (jumpKind != null) return 0;
+      return ((ArrayValue) indexee).getInt(i);
+    }
+    var result = ast.accept(this);
+    if (jumpKind != null) return 0;
+    if (!(result instanceof IntValue value)) throw new BadTypeException("Expected an int");
+    return value.value();
+  }
+  
+  // Evaluates a bool-typed expression without boxing; check jumpKind afterwards
+  private boolean evalBool(ExprAST<Resolved> ast) {
+    if (ast instanceof BoolLiteralExprAST<Resolved> literal) return literal.value();
+    if (ast instanceof VarExprAST<Resolved> variable) {
+      var slot = slot(variable);
+      if (slot.storage() == SlotResolver.Storage.BOOL) return ints[slot.index()] != 0;
+    } else if (ast instanceof UnaryExprAST<Resolved> unary && unary.op() == UnaryOp.NOT) {
+      return !evalBool(unary.operand());
+    } else if (ast instanceof BinaryExprAST<Resolved> binary) {
+      switch (binary.op()) {
+        case AND, OR -> {
+          var and = binary.op() == BinaryOp.AND;
+          var left = evalBool(binary.left());
+          if (jumpKind != null || left != and) return left; // short-circuit
+          return evalBool(binary.right());
+        }
+        case EQ, NEQ, LT, NLT, LE, NLE, GT, NGT, GE, NGE -> {
+          return evalComparison(binary);
+        }
+      }
+    } else if (ast instanceof IndexExprAST<Resolved> index) {
+      var indexee = index.indexee().accept(this);
+      if (jumpKind != null) return false;
+      var i = evalInt(index.index());
+      if (jumpKind != null) return false;
+      return ((ArrayValue) indexee).getBool(i);
+    }
+    var result = ast.accept(this);
+    if (jumpKind != null) return false;
+    if (!(result instanceof BoolValue value)) throw new BadTypeException("Expected a bool");
+    return value.value();
+  }
+  
+  private boolean evalComparison(BinaryExprAST<Resolved> ast) {
+    var leftType = ast.left().data().type().unconditioned();
+    var rightType = ast.right().data().type().unconditioned();
+    boolean result;
+    if (leftType == Type.INT && rightType == Type.INT) {
+      var left = evalInt(ast.left());
+      if (jumpKind != null) return false;
+      var right = evalInt(ast.right());
+      if (jumpKind != null) return false;
+      result = switch (ast.op()) {
+        case EQ, NEQ -> left == right;
+        case LT, NLT -> left < right;
+        case LE, NLE -> left <= right;
+        case GT, NGT -> left > right;
+        default -> left >= right;
+      };
+    } else if (leftType == Type.BOOL && rightType == Type.BOOL && (ast.op() == BinaryOp.EQ || ast.op() == BinaryOp.NEQ)) {
+      var left = evalBool(ast.left());
+      if (jumpKind != null) return false;
+      var right = evalBool(ast.right());
+      if (jumpKind != null) return false;
+      result = left == right;
+    } else {
+      var leftValue = ast.left().accept(this);
+      if (jumpKind != null) return false;
+      var rightValue = ast.right().accept(this);
+      if (jumpKind != null) return false;
+      result = switch (ast.op()) {
+        case EQ, NEQ -> leftValue.valueEquals(rightValue);
+        case LT, NLT -> compare(leftValue, rightValue) < 0;
+        case LE, NLE -> compare(leftValue, rightValue) <= 0;
+        case GT, NGT -> compare(leftValue, rightValue) > 0;
+        default -> compare(leftValue, rightValue) >= 0;
+      };
+    }
+    var not = switch (ast.op()) {
+      case NEQ, NLT, NLE, NGT, NGE -> true;
+      default -> false;
+    };
+    return not != result; // i.e. not ? !result : result
+  }
+  
+  private static int compare(Value leftValue, Value rightValue) {
+    if (leftValue instanceof IntValue leftInt) {
+      if (!(rightValue instanceof IntValue rightInt)) throw new BadTypeException("ints can only be compared with ints");
+      return Integer.compare(leftInt.value(), rightInt.value());
+    } else if (leftValue instanceof StringValue leftString) {
+      if (!(rightValue instanceof StringValue rightString)) throw new BadTypeException("strings can only be compared with strings");
+      return leftString.value().compareTo(rightString.value());
+    } else {
+      throw new BadTypeException("Binary comparison operators only apply to ints and strings");
+    }
+  }
+  
+  @Override
+  public Value visitVarDef(VarDefAST<Resolved> ast) {
+    var slot = ast.data().slot();
+    switch (slot.storage()) {
+      case INT -> ints[slot.index()] = evalInt(ast.value());
+      case BOOL -> ints[slot.index()] = evalBool(ast.value()) ? 1 : 0;
+      default -> frame[slot.index()] = ast.value().accept(this);
+    }
+    return jumpKind != null ? null : Value.UNIT;
+  }
+  
+  @Override
+  public Value visitNopStat(NopStatAST<Resolved> ast) {
+    return Value.UNIT;
+  }
+  
+  @Override
+  public Value visitUnaryExpr(UnaryExprAST<Resolved> ast) {
+    if (ast.op() == UnaryOp.NOT) {
+      var value = evalBool(ast);
+      return jumpKind != null ? null : Value.of(value);
+    }
+    var value = evalInt(ast);
+    return jumpKind != null ? null : Value.of(value);
+  }
+  
+  @Override
+  public Value visitBinaryExpr(BinaryExprAST<Resolved> ast) {
+    switch (ast.op()) {
+      case ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN -> {
+        return evalAssign(ast);
+      }
+      case ADD, SUB, MUL, DIV -> {
+        var value = evalInt(ast);
+        return jumpKind != null ? null : Value.of(value);
+      }
+      default -> {
+        var value = evalBool(ast);
+        return jumpKind != null ? null : Value.of(value);
+      }
+    }
+  }
+  
+  private Value evalAssign(BinaryExprAST<Resolved> ast) {
+    if (!(ast.left() instanceof VarExprAST<Resolved> left)) throw new BadExpressionException("Only variables can be assigned to");
+    var slot = slot(left);
+    if (slot.unboxed()) {
+      var leftValue = ints[slot.index()];
+      var rightValue = slot.storage() == SlotResolver.Storage.BOOL ? evalBool(ast.right()) ? 1 : 0 : evalInt(ast.right());
+      if (jumpKind != null) return null;
+      ints[slot.index()] = switch (ast.op()) {
+        case ASSIGN -> rightValue;
+        case ADD_ASSIGN -> leftValue + rightValue;
+        case SUB_ASSIGN -> leftValue - rightValue;
+        case MUL_ASSIGN -> leftValue * rightValue;
+        case DIV_ASSIGN -> leftValue / rightValue;
+        default -> throw new IllegalStateException("Invalid assignment operator");
+      };
+      return Value.UNIT;
+    }
+    var leftValue = getVariable(left);
+    var rightValue = ast.right().accept(this);
+    if (jumpKind != null) return null;
+    if (ast.op() == BinaryOp.ASSIGN) {
+      setVariable(slot, rightValue);
+    } else {
+      if (!(leftValue instanceof IntValue leftInt) || !(rightValue instanceof IntValue rightInt)) throw new BadTypeException("Arithmetic assignment operators only apply to ints");
+      setVariable(slot, Value.of(switch (ast.op()) {
+        case ADD_ASSIGN -> leftInt.value() + rightInt.value();
+        case SUB_ASSIGN -> leftInt.value() - rightInt.value();
+        case MUL_ASSIGN -> leftInt.value() * rightInt.value();
+        case DIV_ASSIGN -> leftInt.value() / rightInt.value();
+        default -> throw new IllegalStateException("Invalid assignment operator");
+      }));
+    }
+    return Value.UNIT;
+  }
+  
+  @Override
+  public Value visitBlockExpr(BlockExprAST<Resolved> ast) {
+    Value lastValue = Value.UNIT;
+    for (var stat : ast.stats()) {
+      lastValue = stat.accept(this);
+      if (jumpKind != null) break;
+    }
+    var label = ast.label();
+    if (label != null) {
+      if (jumpKind == JumpKind.BREAK) {
+        if (jumpLabel == null) throw new BadExpressionException("Unlabeled break not allowed in labeled block");
+        if (jumpLabel.equals(label)) return catchJump();
+      } else if (jumpKind == JumpKind.CONTINUE) {
+        if (jumpLabel == null) throw new BadExpressionException("Unlabeled continue not allowed in labeled block");
+        if (jumpLabel.equals(label)) throw new BadExpressionException("Labeled continues cannot target labeled blocks");
+      }
+      // any breaks or continues that make it here target other labels
+    }
+    return lastValue;
+  }
+  
+  @Override
+  public Value visitVarExprAST(VarExprAST<Resolved> ast) {
+    return getVariable(ast);
+  }
+  
+  @Override
+  public Value visitFuncCall(FuncCallExprAST<Resolved> ast) {
+    var target = callTargets.get(ast);
+    if (target == null) {
+      target = resolveCall(ast);
+      callTargets.put(ast, target);
+    }
+    if (target.nativeFunction() != null) {
+      var args = new Value[ast.args().size()];
+      for (var i = 0; i < args.length; i++) {
+        args[i] = ast.args().get(i).accept(this);
+        if (jumpKind != null) return null;
+      }
+      return target.nativeFunction().call(Arrays.asList(args));
+    }
+    var params = target.params();
+    var reuse = target.tail() && spareFrame != null && spareFrame.length >= target.frameSize() && spareInts.length >= target.intFrameSize();
+    var calleeFrame = reuse ? spareFrame : newFrame(target.frameSize());
+    var calleeInts = reuse ? spareInts : newInts(target.intFrameSize());
+    for (var i = 0; i < params.length; i++) {
+      var arg = ast.args().get(i);
+      var param = params[i];
+      switch (param.storage()) {
+        case INT -> calleeInts[param.index()] = evalInt(arg);
+        case BOOL -> calleeInts[param.index()] = evalBool(arg) ? 1 : 0;
+        default -> calleeFrame[param.index()] = arg.accept(this);
+      }
+      if (jumpKind != null) return null;
+    }
+    if (target.memo() != null) return memoInvoke(target, calleeFrame, calleeInts);
+    if (target.tail()) {
+      tailFunction = target.function();
+      tailFrame = calleeFrame;
+      tailInts = calleeInts;
+      jumpKind = JumpKind.RETURN;
+      return null;
+    }
+    return invoke(target.function(), calleeFrame, calleeInts);
+  }
+  
+  private Value memoInvoke(CallTarget target, Value[] calleeFrame, int[] calleeInts) {
+    var params = target.params();
+    var args = new Value[params.length];
+    for (var i = 0; i < params.length; i++) {
+      var param = params[i];
+      args[i] = switch (param.storage()) {
+        case INT -> Value.of(calleeInts[param.index()]);
+        case BOOL -> Value.of(calleeInts[param.index()] != 0);
+        default -> calleeFrame[param.index()];
+      };
+    }
+    var key = new MemoTable.Key(args);
+    var result = target.memo().get(key);
+    if (result != null) return result;
+    result = invoke(target.function(), calleeFrame, calleeInts);
+    target.memo().put(key, result);
+    return result;
+  }
+  
+  private CallTarget resolveCall(FuncCallExprAST<Resolved> ast) {
+    var function = functions.get(ast.funcName());
+    if (function == null) {
+      var nativeFunction = natives.get(ast.funcName());
+      if (nativeFunction == null) throw NoSuchNameException.function(ast.funcName());
+      return new CallTarget(null, null, 0, 0, false, null, nativeFunction);
+    }
+    var params = slots.paramSlots(function);
+    if (ast.args().size() != params.length) throw new IllegalArgumentException("Expected " + params.length + " arguments; got " + ast.args().size());
+    var table = memo.get(function.name());
+    return new CallTarget(function, params, slots.frameSize(function), slots.intFrameSize(function), table == null && ast.data().tailCall(), table, null);
+  }
+  
+  @Override
+  public Value visitIndexExpr(IndexExprAST<Resolved> ast) {
+    var indexee = ast.indexee().accept(this);
+    if (jumpKind != null) return null;
+    var index = evalInt(ast.index());
+    if (jumpKind != null) return null;
+    // typechecking proved this is an array, but a call may have reassigned a global since its bounds were proved
+    return ((ArrayValue) indexee).get(index);
+  }
+  
+  @Override
+  public Value visitSliceExpr(SliceExprAST<Resolved> ast) {
+    var slicee = ast.slicee().accept(this);
+    if (jumpKind != null) return null;
+    var sliceeValue = (ArrayValue) slicee;
+    var from = 0;
+    if (ast.from() != null) {
+      from = evalInt(ast.from());
+      if (jumpKind != null) return null;
+    }
+    var to = sliceeValue.length();
+    if (ast.to() != null) {
+      to = evalInt(ast.to());
+      if (jumpKind != null) return null;
+    }
+    return sliceeValue.slice(from, to);
+  }
+  
+  @Override
+  public Value visitItExpr(ItExprAST<Resolved> ast) {
+    throw new BadExpressionException("it does not have a value");
+  }
+  
+  @Override
+  public Value visitIfExpr(IfExprAST<Resolved> ast) {
+    var cond = evalBool(ast.condition());
+    if (jumpKind != null) return null;
+    if (ast.elseBody() == null) {
+      if (cond) ast.thenBody().accept(this);
+      return jumpKind != null ? null : Value.UNIT; // without an else, the if is unit whatever its body is
+    }
+    return cond ? ast.thenBody().accept(this) : ast.elseBody().accept(this);
+  }
+  
+  @Override
+  public Value visitLoopExpr(LoopExprAST<Resolved> ast) {
+    var label = ast.label();
+    while (true) {
+      ast.body().accept(this);
+      if (jumpKind == null) continue; // ignore body value
+      if (jumpKind == JumpKind.RETURN || jumpLabel != null && !jumpLabel.equals(label)) return null; // a return, or a jump for an outer label
+      if (jumpKind == JumpKind.BREAK) return catchJump(); // break out of this loop, with given value or unit
+      catchJump(); // continue to next loop
+    }
+  }
+  
+  @Override
+  public Value visitWhileExpr(WhileExprAST<Resolved> ast) {
+    var label = ast.label();
+    while (true) {
+      var cond = evalBool(ast.condition());
+      if (jumpKind != null) return null; // note that break and continue don't work in the condition
+      if (!cond) break;
+      ast.body().accept(this);
+      if (jumpKind == null) continue; // ignore body value
+      if (jumpKind == JumpKind.RETURN || jumpLabel != null && !jumpLabel.equals(label)) return null; // a return, or a jump for an outer label
+      if (jumpKind == JumpKind.BREAK) {
+        if (!(catchJump() instanceof UnitValue)) throw new BadTypeException("Cannot break out of a while with any value other than unit");
+        break; // break out of loop
+      }
+      catchJump(); // continue to next loop
+    }
+    return Value.UNIT;
+  }
+  
+  @Override
+  public Value visitJumpExpr(JumpExprAST<Resolved> ast) {
+    if (ast.kind() == JumpKind.RETURN && ast.targetLabel() != null) throw new IllegalStateException("return cannot target a label");
+    if (ast.kind() == JumpKind.CONTINUE && ast.value() != null) throw new IllegalStateException("continue cannot accept value");
+    Value value = Value.UNIT;
+    if (ast.value() != null) {
+      value = ast.value().accept(this);
+      if (jumpKind != null) return null;
+    }
+    jumpKind = ast.kind();
+    jumpLabel = ast.targetLabel();
+    jumpValue = value;
+    return null;
+  }
+  
+  @Override
+  public Value visitArrayLiteralExpr(ArrayLiteralExprAST<Resolved> ast) {
+    var items = ast.items();
+    var builder = new ArrayBuilder(items.size());
+    for (var item : items) {
+      var type = item.item().data().type().unconditioned();
+      if (!item.spread() && type == Type.INT) {
+        var value = evalInt(item.item());
+        if (jumpKind != null) return null;
+        builder.addInt(value);
+      } else if (!item.spread() && type == Type.BOOL) {
+        var value = evalBool(item.item());
+        if (jumpKind != null) return null;
+        builder.addBool(value);
+      } else {
+        var value = item.item().accept(this);
+        if (jumpKind != null) return null;
+        if (item.spread()) builder.addAll(value);
+        else builder.add(value);
+      }
+    }
+    return builder.build();
+  }
+  
+  @Override
+  public Value visitStringLiteralExpr(StringLiteralExprAST<Resolved> ast) {
+    return ast.data().constant();
+  }
+  
+  @Override
+  public Value visitIntLiteralExpr(IntLiteralExprAST<Resolved> ast) {
+    return Value.of(ast.value());
+  }
+  
+  @Override
+  public Value visitBoolLiteralExpr(BoolLiteralExprAST<Resolved> ast) {
+    return Value.of(ast.value());
+  }
+  
+  @Override
+  public Value visitUnitLiteralExpr(UnitLiteralExprAST<Resolved> ast) {
+    return Value.UNIT;
+  }
+  
+}
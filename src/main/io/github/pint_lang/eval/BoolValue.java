@@ -7,6 +7,11 @@ public record BoolValue(boolean value) implements Value {
     return value instanceof BoolValue other && other.value == this.value;
   }
   
+  @Override
+  public int valueHash() {
+    return Boolean.hashCode(value);
+  }
+  
   @Override
   public String valueToString() {
     return String.valueOf(value);
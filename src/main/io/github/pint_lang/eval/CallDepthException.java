@@ -0,0 +1,21 @@
+package io.github.pint_lang.eval;
+
+public class CallDepthException extends RuntimeException {
+  
+  public CallDepthException() {
+    super();
+  }
+  
+  public CallDepthException(String message) {
+    super(message);
+  }
+  
+  public CallDepthException(String message, Throwable cause) {
+    super(message, cause);
+  }
+  
+  public CallDepthException(Throwable cause) {
+    super(cause);
+  }
+  
+}
@@ -0,0 +1,59 @@
+package io.github.pint_lang.eval;
+
+import io.github.pint_lang.eval.ExprEvalControlFlow.*;
+import io.github.pint_lang.gen.PintParser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+
+// Runs a program by walking its parse tree, as the legacy evaluator always has
+public class CstInterpreter {
+  
+  private final PintParser.FileContext file;
+  private final Map<String, NativeFunction> natives;
+  
+  public CstInterpreter(PintParser.FileContext file, Map<String, NativeFunction> natives) {
+    if (file == null) throw new NullPointerException("file must not be null");
+    if (natives == null) throw new NullPointerException("natives must not be null");
+    this.file = file;
+    this.natives = natives;
+  }
+  
+  public void run() {
+    var global = new GlobalScope();
+    natives.forEach(global::defineFunction);
+    var varNames = new HashSet<String>();
+    var vars = new ArrayList<Definition.Variable>();
+    var defVisitor = new DefEvalVisitor();
+    for (var def : file.def()) {
+      var definition = def.accept(defVisitor);
+      if (definition instanceof Definition.Function function) {
+        if (varNames.contains(function.name()) || !global.defineFunction(function.name(), function))
+          throw new BadDefinitionException("Duplicate global definition '" + function.name() + "'");
+      } else if (definition instanceof Definition.Variable variable) {
+        if (varNames.contains(variable.name()) || global.hasFunction(variable.name()))
+          throw new BadDefinitionException("Duplicate global definition '" + variable.name() + "'");
+        varNames.add(variable.name());
+        vars.add(variable);
+      } else {
+        throw new IllegalStateException("Invalid definition");
+      }
+    }
+    var main = global.getFunction("main").orElseThrow(() -> new BadDefinitionException("Missing a main method"));
+    var exprVisitor = new ExprEvalVisitor(new ScopeStack(global));
+    for (var v : vars) {
+      var vFlow = v.valueCst().accept(exprVisitor);
+      if (!(vFlow instanceof Finish vFinish)) {
+        if (vFlow instanceof Return) throw new BadJumpException("Returned from variable definition");
+        else if (vFlow instanceof Labeled vLabeled)
+          throw new BadJumpException(vLabeled.label() != null ? "Missing label '" + vLabeled.label() + "' (did you make a typo?)" : "Unlabeled jump outside of any loop");
+        else throw new IllegalStateException("Invalid variable definition exit");
+      }
+      global.defineVariable(v.name(), vFinish.value());
+    }
+    var mainValue = main.call(exprVisitor);
+    if (!(mainValue instanceof UnitValue)) throw new BadTypeException("main() must return unit");
+  }
+  
+}
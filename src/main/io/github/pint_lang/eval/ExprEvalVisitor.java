@@ -4,14 +4,33 @@ import io.github.pint_lang.gen.PintBaseVisitor;
 import io.github.pint_lang.gen.PintParser.*;
 import io.github.pint_lang.eval.ExprEvalControlFlow.*;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 
 import static java.lang.Integer.parseInt;
 
 public class ExprEvalVisitor extends PintBaseVisitor<ExprEvalControlFlow> {
   
   public final ScopeStack stack;
+  // Int and string literals are parsed on their first evaluation only
+  private final IdentityHashMap<LiteralContext, Value> literals = new IdentityHashMap<>();
+  // Globals can't be redefined once evaluation starts, so each call site resolves its function once
+  private final IdentityHashMap<FuncCallExprContext, CallSite> callSites = new IdentityHashMap<>();
+  
+  // Arguments are evaluated into args unless an argument reenters the same call site, which gets a fresh array instead
+  // Functions bind their arguments before running anything else, so args is free again once the call starts
+  private static final class CallSite {
+    
+    private final Function function;
+    private final Value[] args;
+    private boolean evaluating = false;
+    
+    private CallSite(Function function, int arity) {
+      this.function = function;
+      this.args = new Value[arity];
+    }
+    
+  }
   
   public ExprEvalVisitor(ScopeStack stack) {
     this.stack = stack;
@@ -213,7 +232,7 @@ public class ExprEvalVisitor extends PintBaseVisitor<ExprEvalControlFlow> {
     if (!(exprFlow instanceof Finish exprFinish)) return exprFlow;
     if (exprFinish.value() instanceof IntValue exprValue) return new Finish(Value.of(Math.abs(exprValue.value())));
     else if (exprFinish.value() instanceof StringValue exprValue) return new Finish(Value.of(exprValue.value().length()));
-    else if (exprFinish.value() instanceof ArrayValue exprValue) return new Finish(Value.of(exprValue.values().length));
+    else if (exprFinish.value() instanceof ArrayValue exprValue) return new Finish(Value.of(exprValue.length()));
     else throw new BadTypeException("Unary | | operator only applies to ints, strings and arrays");
   }
   
@@ -242,7 +261,7 @@ public class ExprEvalVisitor extends PintBaseVisitor<ExprEvalControlFlow> {
       var indexFlow = indexIndexOpCtx.expr().accept(this);
       if (!(indexFlow instanceof Finish indexFinish)) return indexFlow;
       if (!(indexFinish.value() instanceof IntValue indexValue)) throw new BadTypeException("Array indices must be ints");
-      return new Finish(factorValue.values()[indexValue.value()]);
+      return new Finish(factorValue.get(indexValue.value()));
     } else if (ctx.indexOp() instanceof SliceIndexOpContext sliceIndexOpCtx) {
       var from = 0;
       if (sliceIndexOpCtx.from != null) {
@@ -252,7 +271,7 @@ public class ExprEvalVisitor extends PintBaseVisitor<ExprEvalControlFlow> {
           throw new BadTypeException("Array indices must be ints");
         from = fromValue.value();
       }
-      var to = factorValue.values().length;
+      var to = factorValue.length();
       if (sliceIndexOpCtx.to != null) {
         var toFlow = sliceIndexOpCtx.to.accept(this);
         if (!(toFlow instanceof Finish toFinish)) return toFlow;
@@ -260,9 +279,7 @@ public class ExprEvalVisitor extends PintBaseVisitor<ExprEvalControlFlow> {
         to = toValue.value();
       }
       if (to < from) throw new BadTypeException("Array slice from index must be less than or equal to to index");
-      var newValues = new Value[to - from];
-      System.arraycopy(factorValue.values(), from, newValues, 0, newValues.length);
-      return new Finish(Value.of(newValues));
+      return new Finish(factorValue.slice(from, to));
     } else {
       throw new IllegalStateException("Invalid array index operation");
     }
@@ -331,17 +348,28 @@ public class ExprEvalVisitor extends PintBaseVisitor<ExprEvalControlFlow> {
   
   @Override
   public ExprEvalControlFlow visitFuncCallExpr(FuncCallExprContext ctx) {
-    var funcName = ctx.ID().getText();
-    var func = stack.peek().getFunction(funcName).orElseThrow(() -> NoSuchNameException.function(funcName));
+    var site = callSites.get(ctx);
+    if (site == null) {
+      var funcName = ctx.ID().getText();
+      var func = stack.peek().global().getFunction(funcName).orElseThrow(() -> NoSuchNameException.function(funcName));
+      site = new CallSite(func, ctx.expr().size());
+      callSites.put(ctx, site);
+    }
     var exprs = ctx.expr();
-    var args = new ArrayList<Value>(exprs.size());
-    for (var expr : exprs) {
-      var exprFlow = expr.accept(this);
-      if (!(exprFlow instanceof Finish exprFinish)) return exprFlow;
-      args.add(exprFinish.value());
+    var args = site.evaluating ? new Value[site.args.length] : site.args;
+    var reentered = site.evaluating;
+    site.evaluating = true;
+    try {
+      for (var i = 0; i < args.length; i++) {
+        var exprFlow = exprs.get(i).accept(this);
+        if (!(exprFlow instanceof Finish exprFinish)) return exprFlow;
+        args[i] = exprFinish.value();
+      }
+    } finally {
+      site.evaluating = reentered;
     }
     try (var ignored = stack.guardFunction()) {
-      return new Finish(func.call(this, args));
+      return new Finish(site.function.call(this, Arrays.asList(args)));
     }
   }
   
@@ -361,6 +389,11 @@ public class ExprEvalVisitor extends PintBaseVisitor<ExprEvalControlFlow> {
     var condFlow = ctx.cond.accept(this);
     if (!(condFlow instanceof Finish condFinish)) return condFlow;
     if (!(condFinish.value() instanceof BoolValue condValue)) throw new BadTypeException("if condition must be a bool");
+    if (ctx.elseBody == null) {
+      if (!condValue.value()) return new Finish(Value.UNIT);
+      var thenFlow = ctx.thenBody.accept(this);
+      return thenFlow instanceof Finish ? new Finish(Value.UNIT) : thenFlow; // without an else, the if is unit whatever its body is
+    }
     return condValue.value() ? ctx.thenBody.accept(this) : ctx.elseBody.accept(this);
   }
   
@@ -454,27 +487,25 @@ public class ExprEvalVisitor extends PintBaseVisitor<ExprEvalControlFlow> {
   @Override
   public ExprEvalControlFlow visitArrayLiteral(ArrayLiteralContext ctx) {
     var items = ctx.arrayLiteralItem();
-    var values = new ArrayList<Value>(items.size());
+    var builder = new ArrayBuilder(items.size());
     for (var item : items) {
       var flow = item.expr().accept(this);
       if (!(flow instanceof Finish finish)) return flow;
-      if (item.spread != null) {
-        if (!(finish.value() instanceof ArrayValue arrayValue)) throw new BadTypeException("Only arrays can be spread into arrays");
-        values.addAll(List.of(arrayValue.values()));
-      } else {
-        values.add(finish.value());
-      }
+      if (item.spread != null) builder.addAll(finish.value());
+      else builder.add(finish.value());
     }
-    return new Finish(Value.of(values.toArray(Value[]::new)));
+    return new Finish(builder.build());
   }
   
   @Override
   public ExprEvalControlFlow visitLiteral(LiteralContext ctx) {
     if (ctx.int_ != null) {
-      return new Finish(Value.of(parseInt(ctx.int_.getText())));
+      return new Finish(literals.computeIfAbsent(ctx, literal -> Value.of(parseInt(literal.int_.getText()))));
     } else if (ctx.string != null) {
-      var str = ctx.string.getText();
-      return new Finish(Value.of(str.substring(1, str.length() - 1)));
+      return new Finish(literals.computeIfAbsent(ctx, literal -> {
+        var str = literal.string.getText();
+        return Value.of(str.substring(1, str.length() - 1));
+      }));
     } else if (ctx.bool !=  null) {
       return new Finish(Value.of(switch (ctx.bool.getText()) {
         case "true" -> true;
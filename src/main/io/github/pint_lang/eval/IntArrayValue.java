@@ -0,0 +1,91 @@
+package io.github.pint_lang.eval;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Not a record, so that it can cache its hash (see ArrayValue.HASHED_LENGTH)
+public final class IntArrayValue implements ArrayValue {
+  
+  private final int[] values;
+  private final int offset;
+  private final int length;
+  private int hash; // 0 until computed, and only cached from HASHED_LENGTH items up
+  
+  public IntArrayValue(int[] values, int offset, int length) {
+    if (values == null) throw new NullPointerException("values must not be null");
+    // only slicing makes views, and it has already checked the bounds or had them proved
+    assert offset >= 0 && length >= 0 && offset + length <= values.length;
+    this.values = values;
+    this.offset = offset;
+    this.length = length;
+  }
+  
+  public IntArrayValue(int[] values) {
+    this(values, 0, values.length);
+  }
+  
+  public int[] values() {
+    return values;
+  }
+  
+  public int offset() {
+    return offset;
+  }
+  
+  @Override
+  public int length() {
+    return length;
+  }
+  
+  @Override
+  public Value get(int index) {
+    return getUnchecked(Objects.checkIndex(index, length));
+  }
+  
+  @Override
+  public int getInt(int index) {
+    return getIntUnchecked(Objects.checkIndex(index, length));
+  }
+  
+  @Override
+  public Value getUnchecked(int index) {
+    assert index >= 0 && index < length;
+    return Value.of(values[offset + index]);
+  }
+  
+  @Override
+  public int getIntUnchecked(int index) {
+    assert index >= 0 && index < length;
+    return values[offset + index];
+  }
+  
+  @Override
+  public boolean valueEquals(Value value) {
+    if (value instanceof IntArrayValue other) return Arrays.equals(values, offset, offset + length, other.values, other.offset, other.offset + other.length);
+    return ArrayValue.super.valueEquals(value);
+  }
+  
+  @Override
+  public int valueHash() {
+    var hash = this.hash;
+    if (hash == 0) {
+      hash = 1;
+      for (var i = offset; i < offset + length; i++) hash = 31 * hash + Integer.hashCode(values[i]);
+      if (length >= HASHED_LENGTH) this.hash = hash;
+    }
+    return hash;
+  }
+  
+  @Override
+  public IntArrayValue slice(int from, int to) {
+    Objects.checkFromToIndex(from, to, length);
+    return sliceUnchecked(from, to);
+  }
+  
+  @Override
+  public IntArrayValue sliceUnchecked(int from, int to) {
+    assert from >= 0 && from <= to && to <= length;
+    return new IntArrayValue(values, offset + from, to - from);
+  }
+  
+}
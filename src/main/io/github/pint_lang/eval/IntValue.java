@@ -2,11 +2,33 @@ package io.github.pint_lang.eval;
 
 public record IntValue(int value) implements Value {
   
+  // Like Integer.valueOf, ints in a range are boxed to shared instances; the range is set with -Dpint.intCache.low and -Dpint.intCache.high
+  static final class Cache {
+    
+    static final int LOW = Integer.getInteger("pint.intCache.low", -128);
+    static final int HIGH = Integer.getInteger("pint.intCache.high", 1023);
+    static final IntValue[] VALUES;
+    
+    static {
+      if (HIGH < LOW - 1) throw new IllegalStateException("pint.intCache.high must not be less than pint.intCache.low");
+      VALUES = new IntValue[Math.toIntExact((long) HIGH - LOW + 1)];
+      for (var i = 0; i < VALUES.length; i++) VALUES[i] = new IntValue(LOW + i);
+    }
+    
+    private Cache() {}
+    
+  }
+  
   @Override
   public boolean valueEquals(Value value) {
     return value instanceof IntValue other && other.value == this.value;
   }
   
+  @Override
+  public int valueHash() {
+    return Integer.hashCode(value);
+  }
+  
   @Override
   public String valueToString() {
     return String.valueOf(value);
@@ -0,0 +1,80 @@
+package io.github.pint_lang.eval;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Results of one pure function keyed by its arguments, dropping the least recently used once full
+public final class MemoTable {
+  
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+  
+  private final LinkedHashMap<Key, Value> results;
+  private long hits = 0;
+  private long misses = 0;
+  
+  public MemoTable() {
+    this(DEFAULT_CAPACITY);
+  }
+  
+  public MemoTable(int capacity) {
+    if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+    this.results = new LinkedHashMap<>(16, 0.75f, true) {
+      
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Value> eldest) {
+        return size() > capacity;
+      }
+      
+    };
+  }
+  
+  // The arguments of one call, compared with valueEquals
+  public record Key(Value[] args) {
+    
+    public Key {
+      if (args == null) throw new NullPointerException("args must not be null");
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key key) || key.args.length != args.length) return false;
+      for (var i = 0; i < args.length; i++) {
+        if (!args[i].valueEquals(key.args[i])) return false;
+      }
+      return true;
+    }
+    
+    @Override
+    public int hashCode() {
+      var hash = 1;
+      for (var arg : args) hash = 31 * hash + arg.valueHash();
+      return hash;
+    }
+    
+  }
+  
+  // Returns null on a miss
+  public Value get(Key key) {
+    var result = results.get(key);
+    if (result != null) hits++;
+    else misses++;
+    return result;
+  }
+  
+  public void put(Key key, Value result) {
+    results.put(key, result);
+  }
+  
+  public long hits() {
+    return hits;
+  }
+  
+  public long misses() {
+    return misses;
+  }
+  
+  public int size() {
+    return results.size();
+  }
+  
+}
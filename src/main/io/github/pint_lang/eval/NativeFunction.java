@@ -0,0 +1,15 @@
+package io.github.pint_lang.eval;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface NativeFunction extends Function {
+  
+  Value call(List<Value> args);
+  
+  @Override
+  default Value call(ExprEvalVisitor eval, List<Value> args) {
+    return call(args);
+  }
+  
+}
@@ -0,0 +1,188 @@
+package io.github.pint_lang.eval;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.opt.TailCallAnalysis;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+// Rebuilds the typed AST for the ast engine with slots from SlotResolver and tail calls from TailCallAnalysis stored on
+// the nodes themselves, so that reading a variable is an array load with no lookup in between
+// Frame layouts are only needed once per definition or call site, so they're still looked up by the definition
+public class ResolveVisitor implements DefASTVisitor<Type, DefAST<Resolved>>, StatASTVisitor<Type, StatAST<Resolved>>, TypeASTVisitor<Type, TypeAST<Resolved>> {
+  
+  private final SlotResolver slots;
+  private final TailCallAnalysis tailCalls;
+  private final IdentityHashMap<DefAST<Resolved>, DefAST<Type>> originals = new IdentityHashMap<>();
+  
+  public ResolveVisitor(DefsAST<Type> ast) {
+    this.slots = new SlotResolver(ast);
+    this.tailCalls = new TailCallAnalysis(ast);
+  }
+  
+  public int globalCount() {
+    return slots.globalCount();
+  }
+  
+  public int globalIndex(String name) {
+    return slots.globalIndex(name);
+  }
+  
+  public SlotResolver.Slot[] paramSlots(FuncDefAST<Resolved> ast) {
+    return slots.paramSlots((FuncDefAST<Type>) originals.get(ast));
+  }
+  
+  public int frameSize(DefAST<Resolved> ast) {
+    return slots.frameSize(originals.get(ast));
+  }
+  
+  public int intFrameSize(DefAST<Resolved> ast) {
+    return slots.intFrameSize(originals.get(ast));
+  }
+  
+  public DefsAST<Resolved> visitDefs(DefsAST<Type> ast) {
+    var defs = new ArrayList<DefAST<Resolved>>(ast.defs().size());
+    for (var def : ast.defs()) {
+      var resolved = visitDef(def);
+      originals.put(resolved, def);
+      defs.add(resolved);
+    }
+    return new DefsAST<>(defs, Resolved.of(ast.data()));
+  }
+  
+  private ExprAST<Resolved> resolve(ExprAST<Type> ast) {
+    return ast != null ? (ExprAST<Resolved>) ast.accept(this) : null;
+  }
+  
+  @Override
+  public FuncDefAST<Resolved> visitFuncDef(FuncDefAST<Type> ast) {
+    var params = new ArrayList<FuncDefAST.Param<Resolved>>(ast.params().size());
+    for (var param : ast.params()) params.add(new FuncDefAST.Param<>(param.name(), visitType(param.type())));
+    return new FuncDefAST<>(ast.name(), params, visitType(ast.returnType()), visitBlockExpr(ast.body()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public VarDefAST<Resolved> visitVarDef(VarDefAST<Type> ast) {
+    // globals have no slot of their own here, since they're set by name
+    var data = new Resolved(ast.data(), slots.slot(ast), null, false);
+    return new VarDefAST<>(ast.name(), visitType(ast.type()), resolve(ast.value()), data);
+  }
+  
+  @Override
+  public StatAST<Resolved> visitNopStat(NopStatAST<Type> ast) {
+    return new NopStatAST<>(Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitUnaryExpr(UnaryExprAST<Type> ast) {
+    return new UnaryExprAST<>(ast.op(), resolve(ast.operand()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitBinaryExpr(BinaryExprAST<Type> ast) {
+    return new BinaryExprAST<>(ast.op(), resolve(ast.left()), resolve(ast.right()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public BlockExprAST<Resolved> visitBlockExpr(BlockExprAST<Type> ast) {
+    var stats = new ArrayList<StatAST<Resolved>>(ast.stats().size());
+    for (var stat : ast.stats()) stats.add(stat.accept(this));
+    return new BlockExprAST<>(ast.label(), stats, Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitVarExprAST(VarExprAST<Type> ast) {
+    return new VarExprAST<>(ast.name(), new Resolved(ast.data(), slots.slot(ast), null, false));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitFuncCall(FuncCallExprAST<Type> ast) {
+    var args = new ArrayList<ExprAST<Resolved>>(ast.args().size());
+    for (var arg : ast.args()) args.add(resolve(arg));
+    return new FuncCallExprAST<>(ast.funcName(), args, new Resolved(ast.data(), null, null, tailCalls.isTailCall(ast)));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitIndexExpr(IndexExprAST<Type> ast) {
+    return new IndexExprAST<>(resolve(ast.indexee()), resolve(ast.index()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitSliceExpr(SliceExprAST<Type> ast) {
+    return new SliceExprAST<>(resolve(ast.slicee()), resolve(ast.from()), resolve(ast.to()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitItExpr(ItExprAST<Type> ast) {
+    return new ItExprAST<>(Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitIfExpr(IfExprAST<Type> ast) {
+    return new IfExprAST<>(resolve(ast.condition()), resolve(ast.thenBody()), resolve(ast.elseBody()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitLoopExpr(LoopExprAST<Type> ast) {
+    return new LoopExprAST<>(ast.label(), resolve(ast.body()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitWhileExpr(WhileExprAST<Type> ast) {
+    return new WhileExprAST<>(ast.label(), resolve(ast.condition()), resolve(ast.body()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitJumpExpr(JumpExprAST<Type> ast) {
+    return new JumpExprAST<>(ast.kind(), ast.targetLabel(), resolve(ast.value()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitArrayLiteralExpr(ArrayLiteralExprAST<Type> ast) {
+    var items = new ArrayList<ArrayLiteralExprAST.Item<Resolved>>(ast.items().size());
+    for (var item : ast.items()) items.add(new ArrayLiteralExprAST.Item<>(resolve(item.item()), item.spread()));
+    return new ArrayLiteralExprAST<>(items, Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitStringLiteralExpr(StringLiteralExprAST<Type> ast) {
+    return new StringLiteralExprAST<>(ast.value(), new Resolved(ast.data(), null, slots.constant(ast), false));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitIntLiteralExpr(IntLiteralExprAST<Type> ast) {
+    return new IntLiteralExprAST<>(ast.value(), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitBoolLiteralExpr(BoolLiteralExprAST<Type> ast) {
+    return new BoolLiteralExprAST<>(ast.value(), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public ExprAST<Resolved> visitUnitLiteralExpr(UnitLiteralExprAST<Type> ast) {
+    return new UnitLiteralExprAST<>(Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public TypeAST<Resolved> visitSimpleType(SimpleTypeAST<Type> ast) {
+    return new SimpleTypeAST<>(ast.name(), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public TypeAST<Resolved> visitUnitType(UnitTypeAST<Type> ast) {
+    return new UnitTypeAST<>(Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public TypeAST<Resolved> visitArrayType(ArrayTypeAST<Type> ast) {
+    return new ArrayTypeAST<>(visitType(ast.innerType()), Resolved.of(ast.data()));
+  }
+  
+  @Override
+  public TypeAST<Resolved> visitConditionType(ConditionTypeAST<Type> ast) {
+    return new ConditionTypeAST<>(visitType(ast.type()), resolve(ast.condition()), Resolved.of(ast.data()));
+  }
+  
+}
@@ -0,0 +1,13 @@
+package io.github.pint_lang.eval;
+
+import io.github.pint_lang.typechecker.Type;
+
+// What the ast engine knows about a node besides its type: a variable's slot, a string literal's boxed value, or whether a
+// call is in tail position, each worked out once by ResolveVisitor rather than looked up every time the node is evaluated
+public record Resolved(Type type, SlotResolver.Slot slot, Value constant, boolean tailCall) {
+  
+  public static Resolved of(Type type) {
+    return new Resolved(type, null, null, false);
+  }
+  
+}
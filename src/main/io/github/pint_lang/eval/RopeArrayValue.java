@@ -0,0 +1,168 @@
+package io.github.pint_lang.eval;
+
+import java.util.Objects;
+
+// A balanced concatenation of two arrays, so spreading a large array into a new one links it instead of copying it
+// Not a record, since it caches its hash: ropes are the arrays that get large, and their subtrees are shared between arrays
+public final class RopeArrayValue implements ArrayValue {
+  
+  // Flat arrays up to this long are merged when concatenated, which keeps the leaves from degenerating into single items
+  private static final int LEAF_LENGTH = 32;
+  
+  private final ArrayValue left;
+  private final ArrayValue right;
+  private final int length;
+  private final int height;
+  private int hash; // 0 until computed
+  
+  public RopeArrayValue(ArrayValue left, ArrayValue right, int length, int height) {
+    if (left == null) throw new NullPointerException("left must not be null");
+    if (right == null) throw new NullPointerException("right must not be null");
+    this.left = left;
+    this.right = right;
+    this.length = length;
+    this.height = height;
+  }
+  
+  public ArrayValue left() {
+    return left;
+  }
+  
+  public ArrayValue right() {
+    return right;
+  }
+  
+  @Override
+  public int length() {
+    return length;
+  }
+  
+  public int height() {
+    return height;
+  }
+  
+  public static ArrayValue concat(ArrayValue left, ArrayValue right) {
+    if (left.length() == 0) return right;
+    if (right.length() == 0) return left;
+    var leftHeight = height(left);
+    var rightHeight = height(right);
+    if (leftHeight == 0 && rightHeight == 0) {
+      if (left.length() + right.length() > LEAF_LENGTH) return node(left, right);
+      return new ArrayBuilder(left.length() + right.length()).addAll(left).addAll(right).build();
+    }
+    // descend the taller side until the heights meet, appending a short array to the leaf at the end
+    if (left instanceof RopeArrayValue rope && (leftHeight > rightHeight + 1 || rightHeight == 0 && right.length() < LEAF_LENGTH)) return balance(rope.left, concat(rope.right, right));
+    if (right instanceof RopeArrayValue rope && (rightHeight > leftHeight + 1 || leftHeight == 0 && left.length() < LEAF_LENGTH)) return balance(concat(left, rope.left), rope.right);
+    return node(left, right);
+  }
+  
+  private static int height(ArrayValue array) {
+    return array instanceof RopeArrayValue rope ? rope.height : 0;
+  }
+  
+  private static RopeArrayValue node(ArrayValue left, ArrayValue right) {
+    return new RopeArrayValue(left, right, left.length() + right.length(), Math.max(height(left), height(right)) + 1);
+  }
+  
+  // The AVL rotations, for when one side has grown two taller than the other
+  private static RopeArrayValue balance(ArrayValue left, ArrayValue right) {
+    var leftHeight = height(left);
+    var rightHeight = height(right);
+    if (leftHeight > rightHeight + 1) {
+      var rope = (RopeArrayValue) left;
+      if (height(rope.left) >= height(rope.right)) return node(rope.left, node(rope.right, right));
+      var inner = (RopeArrayValue) rope.right;
+      return node(node(rope.left, inner.left), node(inner.right, right));
+    }
+    if (rightHeight > leftHeight + 1) {
+      var rope = (RopeArrayValue) right;
+      if (height(rope.right) >= height(rope.left)) return node(node(left, rope.left), rope.right);
+      var inner = (RopeArrayValue) rope.left;
+      return node(node(left, inner.left), node(inner.right, rope.right));
+    }
+    return node(left, right);
+  }
+  
+  @Override
+  public Value get(int index) {
+    return getUnchecked(Objects.checkIndex(index, length));
+  }
+  
+  @Override
+  public int getInt(int index) {
+    return getIntUnchecked(Objects.checkIndex(index, length));
+  }
+  
+  @Override
+  public boolean getBool(int index) {
+    return getBoolUnchecked(Objects.checkIndex(index, length));
+  }
+  
+  @Override
+  public Value getUnchecked(int index) {
+    assert index >= 0 && index < length;
+    var leftLength = left.length();
+    return index < leftLength ? left.getUnchecked(index) : right.getUnchecked(index - leftLength);
+  }
+  
+  @Override
+  public int getIntUnchecked(int index) {
+    assert index >= 0 && index < length;
+    var leftLength = left.length();
+    return index < leftLength ? left.getIntUnchecked(index) : right.getIntUnchecked(index - leftLength);
+  }
+  
+  @Override
+  public boolean getBoolUnchecked(int index) {
+    assert index >= 0 && index < length;
+    var leftLength = left.length();
+    return index < leftLength ? left.getBoolUnchecked(index) : right.getBoolUnchecked(index - leftLength);
+  }
+  
+  // Arrays hash to 31^n plus the sum of item i's hash times 31^(n-1-i), so the halves' hashes combine
+  // as left * 31^|right| + right - 31^|right|
+  @Override
+  public int valueHash() {
+    var hash = this.hash;
+    if (hash == 0) {
+      var power = power31(right.length());
+      hash = left.valueHash() * power + right.valueHash() - power;
+      this.hash = hash;
+    }
+    return hash;
+  }
+  
+  private static int power31(int exponent) {
+    var result = 1;
+    var base = 31;
+    for (; exponent > 0; exponent >>= 1) {
+      if ((exponent & 1) != 0) result *= base;
+      base *= base;
+    }
+    return result;
+  }
+  
+  @Override
+  public boolean valueEquals(Value value) {
+    // the hashes are cached, so this rejects most unequal ropes without walking them
+    if (value instanceof RopeArrayValue other && other != this && other.valueHash() != valueHash()) return false;
+    return ArrayValue.super.valueEquals(value);
+  }
+  
+  @Override
+  public ArrayValue slice(int from, int to) {
+    Objects.checkFromToIndex(from, to, length);
+    return sliceUnchecked(from, to);
+  }
+  
+  @Override
+  public ArrayValue sliceUnchecked(int from, int to) {
+    assert from >= 0 && from <= to && to <= length;
+    if (from == 0 && to == length) return this;
+    var leftLength = left.length();
+    if (to <= leftLength) return left.sliceUnchecked(from, to);
+    if (from >= leftLength) return right.sliceUnchecked(from - leftLength, to - leftLength);
+    return concat(left.sliceUnchecked(from, leftLength), right.sliceUnchecked(0, to - leftLength));
+  }
+  
+}
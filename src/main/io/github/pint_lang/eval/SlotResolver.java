@@ -0,0 +1,257 @@
+package io.github.pint_lang.eval;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+// Resolves every variable to a slot in its function's frame, or in the globals
+public class SlotResolver implements DefASTVisitor<Type, Void>, StatASTVisitor<Type, Void> {
+  
+  // Ints and bools (as 0 or 1) are stored unboxed in a separate int frame
+  public enum Storage {
+    
+    GLOBAL,
+    REF,
+    INT,
+    BOOL
+    
+  }
+  
+  public record Slot(Storage storage, int index) {
+    
+    public Slot {
+      if (storage == null) throw new NullPointerException("storage must not be null");
+    }
+    
+    public boolean unboxed() {
+      return storage == Storage.INT || storage == Storage.BOOL;
+    }
+    
+  }
+  
+  private final IdentityHashMap<AST<Type>, Slot> slots = new IdentityHashMap<>();
+  private final IdentityHashMap<DefAST<Type>, int[]> frameSizes = new IdentityHashMap<>();
+  private final IdentityHashMap<FuncDefAST<Type>, Slot[]> paramSlots = new IdentityHashMap<>();
+  // string literals are boxed once here rather than every time they're evaluated; ints come out of Value.of's cache instead
+  private final IdentityHashMap<ExprAST<Type>, Value> constants = new IdentityHashMap<>();
+  private final HashMap<String, Slot> globals = new HashMap<>();
+  private final ArrayDeque<HashMap<String, Slot>> scopes = new ArrayDeque<>();
+  private int refTop = 0, refMax = 0;
+  private int intTop = 0, intMax = 0;
+  
+  public SlotResolver(DefsAST<Type> ast) {
+    for (var def : ast.defs()) {
+      if (def instanceof VarDefAST<Type> varDef) globals.putIfAbsent(varDef.name(), new Slot(Storage.GLOBAL, globals.size()));
+    }
+    for (var def : ast.defs()) visitDef(def);
+  }
+  
+  public int globalCount() {
+    return globals.size();
+  }
+  
+  public int globalIndex(String name) {
+    var slot = globals.get(name);
+    if (slot == null) throw NoSuchNameException.variable(name);
+    return slot.index();
+  }
+  
+  public Slot slot(VarExprAST<Type> ast) {
+    return slots.get(ast);
+  }
+  
+  public Slot slot(VarDefAST<Type> ast) {
+    return slots.get(ast);
+  }
+  
+  public Value constant(StringLiteralExprAST<Type> ast) {
+    return constants.get(ast);
+  }
+  
+  public Slot[] paramSlots(FuncDefAST<Type> ast) {
+    return paramSlots.get(ast);
+  }
+  
+  public int frameSize(DefAST<Type> ast) {
+    return frameSizes.get(ast)[0];
+  }
+  
+  public int intFrameSize(DefAST<Type> ast) {
+    return frameSizes.get(ast)[1];
+  }
+  
+  public static boolean isUnboxed(Type type) {
+    var unconditioned = type.unconditioned();
+    return unconditioned == Type.INT || unconditioned == Type.BOOL;
+  }
+  
+  private Slot allocate(Type type) {
+    if (isUnboxed(type)) {
+      intMax = Math.max(intMax, intTop + 1);
+      return new Slot(type.unconditioned() == Type.INT ? Storage.INT : Storage.BOOL, intTop++);
+    }
+    refMax = Math.max(refMax, refTop + 1);
+    return new Slot(Storage.REF, refTop++);
+  }
+  
+  @Override
+  public Void visitFuncDef(FuncDefAST<Type> ast) {
+    refTop = refMax = intTop = intMax = 0;
+    var scope = new HashMap<String, Slot>();
+    var params = new Slot[ast.params().size()];
+    for (var i = 0; i < params.length; i++) {
+      var param = ast.params().get(i);
+      params[i] = allocate(param.type().data());
+      scope.putIfAbsent(param.name(), params[i]);
+    }
+    paramSlots.put(ast, params);
+    scopes.push(scope);
+    visitBlockExpr(ast.body());
+    scopes.pop();
+    frameSizes.put(ast, new int[] {refMax, intMax});
+    return null;
+  }
+  
+  @Override
+  public Void visitVarDef(VarDefAST<Type> ast) {
+    if (scopes.isEmpty()) {
+      refTop = refMax = intTop = intMax = 0;
+      ast.value().accept(this);
+      frameSizes.put(ast, new int[] {refMax, intMax});
+    } else {
+      ast.value().accept(this);
+      var slot = allocate(ast.type().data());
+      scopes.peek().put(ast.name(), slot);
+      slots.put(ast, slot);
+    }
+    return null;
+  }
+  
+  @Override
+  public Void visitNopStat(NopStatAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitUnaryExpr(UnaryExprAST<Type> ast) {
+    ast.operand().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitBinaryExpr(BinaryExprAST<Type> ast) {
+    ast.left().accept(this);
+    ast.right().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitBlockExpr(BlockExprAST<Type> ast) {
+    var refMark = refTop;
+    var intMark = intTop;
+    scopes.push(new HashMap<>());
+    for (var stat : ast.stats()) stat.accept(this);
+    scopes.pop();
+    refTop = refMark;
+    intTop = intMark;
+    return null;
+  }
+  
+  @Override
+  public Void visitVarExprAST(VarExprAST<Type> ast) {
+    for (var scope : scopes) {
+      var slot = scope.get(ast.name());
+      if (slot != null) {
+        slots.put(ast, slot);
+        return null;
+      }
+    }
+    var global = globals.get(ast.name());
+    if (global != null) slots.put(ast, global);
+    return null;
+  }
+  
+  @Override
+  public Void visitFuncCall(FuncCallExprAST<Type> ast) {
+    for (var arg : ast.args()) arg.accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitIndexExpr(IndexExprAST<Type> ast) {
+    ast.indexee().accept(this);
+    ast.index().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitSliceExpr(SliceExprAST<Type> ast) {
+    ast.slicee().accept(this);
+    if (ast.from() != null) ast.from().accept(this);
+    if (ast.to() != null) ast.to().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitItExpr(ItExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitIfExpr(IfExprAST<Type> ast) {
+    ast.condition().accept(this);
+    ast.thenBody().accept(this);
+    if (ast.elseBody() != null) ast.elseBody().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitLoopExpr(LoopExprAST<Type> ast) {
+    ast.body().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitWhileExpr(WhileExprAST<Type> ast) {
+    ast.condition().accept(this);
+    ast.body().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitJumpExpr(JumpExprAST<Type> ast) {
+    if (ast.value() != null) ast.value().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitArrayLiteralExpr(ArrayLiteralExprAST<Type> ast) {
+    for (var item : ast.items()) item.item().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitStringLiteralExpr(StringLiteralExprAST<Type> ast) {
+    constants.put(ast, Value.of(ast.value()));
+    return null;
+  }
+  
+  @Override
+  public Void visitIntLiteralExpr(IntLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitBoolLiteralExpr(BoolLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitUnitLiteralExpr(UnitLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+}
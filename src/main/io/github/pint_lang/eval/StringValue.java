@@ -11,6 +11,11 @@ public record StringValue(String value) implements Value {
     return value instanceof StringValue other && other.value.equals(this.value);
   }
   
+  @Override
+  public int valueHash() {
+    return value.hashCode();
+  }
+  
   @Override
   public String valueToString() {
     return '"' + value + '"';
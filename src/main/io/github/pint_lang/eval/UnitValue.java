@@ -7,6 +7,11 @@ public record UnitValue() implements Value {
     return value instanceof UnitValue;
   }
   
+  @Override
+  public int valueHash() {
+    return 0;
+  }
+  
   @Override
   public String valueToString() {
     return "unit";
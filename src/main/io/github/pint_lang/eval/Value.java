@@ -6,6 +6,9 @@ public sealed interface Value permits ArrayValue, StringValue, IntValue, BoolVal
   
   boolean valueEquals(Value value);
   
+  // Values that are valueEquals must have the same valueHash, so values can key hash tables
+  int valueHash();
+  
   String valueToString();
   
   static ArrayValue array(Value... values) {
@@ -25,21 +28,19 @@ public sealed interface Value permits ArrayValue, StringValue, IntValue, BoolVal
   }
   
   static ArrayValue of(Value[] values) {
-    return new ArrayValue(values);
+    return new RefArrayValue(values);
   }
   
   static ArrayValue of(String[] values) {
-    return new ArrayValue(stream(values).map(Value::of).toArray(StringValue[]::new));
+    return new RefArrayValue(stream(values).map(Value::of).toArray(StringValue[]::new));
   }
   
   static ArrayValue of(int[] values) {
-    return new ArrayValue(stream(values).mapToObj(Value::of).toArray(IntValue[]::new));
+    return new IntArrayValue(values);
   }
   
   static ArrayValue of(boolean[] values) {
-    var newValues = new BoolValue[values.length];
-    for (var i = 0; i < values.length; i++) newValues[i] = Value.of(values[i]);
-    return new ArrayValue(newValues);
+    return new BoolArrayValue(values);
   }
   
   static StringValue of(String value) {
@@ -47,7 +48,7 @@ public sealed interface Value permits ArrayValue, StringValue, IntValue, BoolVal
   }
   
   static IntValue of(int value) {
-    return new IntValue(value);
+    return value >= IntValue.Cache.LOW && value <= IntValue.Cache.HIGH ? IntValue.Cache.VALUES[value - IntValue.Cache.LOW] : new IntValue(value);
   }
   
   static BoolValue of(boolean value) {
@@ -0,0 +1,131 @@
+package io.github.pint_lang.jvm;
+
+import io.github.pint_lang.Builtins;
+import io.github.pint_lang.PintFrontEnd;
+import io.github.pint_lang.ast.ASTConversionVisitor;
+import io.github.pint_lang.ast.DefsAST;
+import io.github.pint_lang.opt.ConstantFoldVisitor;
+import io.github.pint_lang.parse.Parser;
+import io.github.pint_lang.typechecker.Type;
+import io.github.pint_lang.typechecker.TypecheckVisitor;
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+// Writes runnable jars for pintc, holding the compiled program plus the runtime classes it references
+public class JarBuilder {
+  
+  public static final String MAIN_CLASS = "PintProgram";
+  
+  private static final String PACKAGE = "io/github/pint_lang/";
+  private static final String HASH_ATTRIBUTE = "Pint-Build-Hash";
+  // The front end, optimizer, compiler and runtime classes that decide what a jar contains, so any change to them invalidates
+  // cached jars; a front-end change can accept, reject or type a program differently without touching the compiler
+  private static final List<Class<?>> TOOLCHAIN = List.of(PintFrontEnd.class, Parser.class, ASTConversionVisitor.class, TypecheckVisitor.class, ConstantFoldVisitor.class, JvmCompiler.class, JvmProgram.class, JvmRuntime.class, JarBuilder.class, Builtins.class);
+  
+  private JarBuilder() {}
+  
+  // Returns true if the jar was built from the same source by the same toolchain
+  public static boolean isUpToDate(Path jar, byte[] source) {
+    if (!Files.isRegularFile(jar)) return false;
+    try (var file = new JarFile(jar.toFile())) {
+      var manifest = file.getManifest();
+      return manifest != null && buildHash(source).equals(manifest.getMainAttributes().getValue(HASH_ATTRIBUTE));
+    } catch (IOException e) {
+      return false; // unreadable, so just rebuild it
+    }
+  }
+  
+  public static void write(Path jar, DefsAST<Type> defs, Collection<String> nativeNames, byte[] source) throws IOException {
+    var program = new JvmCompiler(nativeNames).compileStandalone(defs, MAIN_CLASS);
+    var classes = new TreeMap<String, byte[]>();
+    collect(references(program), classes);
+    var manifest = new Manifest();
+    var attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.put(Attributes.Name.MAIN_CLASS, MAIN_CLASS);
+    attributes.putValue(HASH_ATTRIBUTE, buildHash(source));
+    // write next to the target and move it into place, so an interrupted build never looks up to date
+    var directory = jar.toAbsolutePath().getParent();
+    var temp = Files.createTempFile(directory, ".pintc", ".jar");
+    try {
+      try (var out = new JarOutputStream(Files.newOutputStream(temp), manifest)) {
+        out.putNextEntry(new JarEntry(MAIN_CLASS + ".class"));
+        out.write(program);
+        out.closeEntry();
+        for (var entry : classes.entrySet()) {
+          out.putNextEntry(new JarEntry(entry.getKey() + ".class"));
+          out.write(entry.getValue());
+          out.closeEntry();
+        }
+      }
+      Files.move(temp, jar, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+  
+  private static String buildHash(byte[] source) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    digest.update(source);
+    var classes = new TreeMap<String, byte[]>();
+    for (var type : TOOLCHAIN) collect(Set.of(type.getName().replace('.', '/')), classes);
+    for (var bytes : classes.values()) digest.update(bytes);
+    return HexFormat.of().formatHex(digest.digest());
+  }
+  
+  // Adds the named classes of this project and every project class they reference
+  private static void collect(Set<String> names, Map<String, byte[]> classes) {
+    var pending = new ArrayDeque<>(names);
+    while (!pending.isEmpty()) {
+      var name = pending.pop();
+      if (!name.startsWith(PACKAGE) || classes.containsKey(name)) continue;
+      var bytes = readClass(name);
+      classes.put(name, bytes);
+      pending.addAll(references(bytes));
+    }
+  }
+  
+  private static byte[] readClass(String name) {
+    try (var in = JarBuilder.class.getClassLoader().getResourceAsStream(name + ".class")) {
+      if (in == null) throw new IllegalStateException("Missing runtime class " + name);
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot read runtime class " + name, e);
+    }
+  }
+  
+  // The classes named by CONSTANT_Class entries, which is every class the code can load
+  private static Set<String> references(byte[] bytes) {
+    var reader = new ClassReader(bytes);
+    var buffer = new char[reader.getMaxStringLength()];
+    var names = new HashSet<String>();
+    for (var i = 1; i < reader.getItemCount(); i++) {
+      var offset = reader.getItem(i);
+      if (offset == 0 || reader.readByte(offset - 1) != 7) continue; // 7 is CONSTANT_Class
+      var name = reader.readUTF8(offset, buffer);
+      // array classes name their element type as a descriptor
+      var element = name.lastIndexOf('[');
+      if (element >= 0) name = name.charAt(element + 1) == 'L' ? name.substring(element + 2, name.length() - 1) : "";
+      names.add(name);
+    }
+    return names;
+  }
+  
+}
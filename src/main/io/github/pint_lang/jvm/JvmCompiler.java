@@ -0,0 +1,782 @@
+package io.github.pint_lang.jvm;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.eval.*;
+import io.github.pint_lang.opt.TailCallAnalysis;
+import io.github.pint_lang.typechecker.Type;
+import io.github.pint_lang.vm.Kind;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+
+import static io.github.pint_lang.jvm.JvmProgram.*;
+import static org.objectweb.asm.Opcodes.*;
+
+// Compiles each function to a static method of a hidden class, with ints and bools in JVM int locals
+public class JvmCompiler {
+  
+  private static final String PROGRAM = "io/github/pint_lang/jvm/JvmProgram";
+  private static final String RUNTIME = "io/github/pint_lang/jvm/JvmRuntime";
+  private static final String BUILDER = "io/github/pint_lang/eval/ArrayBuilder";
+  private static final String VALUE = "io/github/pint_lang/eval/Value";
+  private static final String INT_VALUE = "io/github/pint_lang/eval/IntValue";
+  private static final String BOOL_VALUE = "io/github/pint_lang/eval/BoolValue";
+  private static final String ARRAY_VALUE = "io/github/pint_lang/eval/ArrayValue";
+  private static final String STRING_VALUE = "io/github/pint_lang/eval/StringValue";
+  private static final String NATIVE_FUNCTION = "io/github/pint_lang/eval/NativeFunction";
+  private static final String VALUE_DESC = "L" + VALUE + ";";
+  private static final Handle STRING_BOOTSTRAP = new Handle(H_INVOKESTATIC, RUNTIME, "string", "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/Class;Ljava/lang/String;)L" + STRING_VALUE + ";", false);
+  
+  private final HashMap<String, Integer> natives = new HashMap<>();
+  private final HashMap<String, FuncDefAST<Type>> functions = new HashMap<>();
+  private final HashMap<String, Integer> globals = new HashMap<>();
+  private String className = "io/github/pint_lang/jvm/PintCode";
+  private TailCallAnalysis tailCalls;
+  
+  public JvmCompiler(Collection<String> nativeNames) {
+    for (var name : nativeNames) natives.put(name, natives.size());
+  }
+  
+  public JvmProgram compile(DefsAST<Type> ast) {
+    var bytes = generate(ast, false);
+    MethodHandles.Lookup lookup;
+    try {
+      lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot define the generated class", e);
+    }
+    return new JvmProgram(lookup, nativeNames(), globals.size());
+  }
+  
+  // Compiles to a named class whose main(String[]) runs the program with the builtins, for pintc
+  public byte[] compileStandalone(DefsAST<Type> ast, String className) {
+    this.className = className;
+    return generate(ast, true);
+  }
+  
+  private byte[] generate(DefsAST<Type> ast, boolean standalone) {
+    var varDefs = new ArrayList<VarDefAST<Type>>();
+    var funcDefs = new ArrayList<FuncDefAST<Type>>();
+    for (var def : ast.defs()) {
+      if (natives.containsKey(def.name()) || functions.containsKey(def.name()) || globals.containsKey(def.name()))
+        throw new BadDefinitionException("Duplicate global definition '" + def.name() + "'");
+      if (def instanceof FuncDefAST<Type> funcDef) {
+        if (funcDef.params().stream().map(FuncDefAST.Param::name).distinct().count() != funcDef.params().size()) throw new BadDefinitionException("Function with duplicate parameters");
+        functions.put(funcDef.name(), funcDef);
+        funcDefs.add(funcDef);
+      } else if (def instanceof VarDefAST<Type> varDef) {
+        globals.put(varDef.name(), varDefs.size());
+        varDefs.add(varDef);
+      }
+    }
+    var main = functions.get("main");
+    if (main == null) throw new BadDefinitionException("Missing a main method");
+    if (!main.params().isEmpty()) throw new IllegalArgumentException("Expected " + main.params().size() + " arguments; got 0");
+    if (returnKind(main) != Kind.REF) throw new BadTypeException("main() must return unit");
+    tailCalls = new TailCallAnalysis(ast);
+    var writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    writer.visit(V17, (standalone ? ACC_PUBLIC : 0) | ACC_FINAL | ACC_SUPER, className, null, "java/lang/Object", null);
+    writer.visitField(ACC_STATIC, GLOBALS, "[" + VALUE_DESC, null, null).visitEnd();
+    writer.visitField(ACC_STATIC, NATIVES, "[L" + NATIVE_FUNCTION + ";", null, null).visitEnd();
+    for (var funcDef : funcDefs) new MethodCompiler(writer, funcDef).compileFunction();
+    new MethodCompiler(writer, null).compileInit(varDefs);
+    if (standalone) compileLauncher(writer);
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+  
+  private String[] nativeNames() {
+    var nativeNames = new String[natives.size()];
+    for (var entry : natives.entrySet()) nativeNames[entry.getValue()] = entry.getKey();
+    return nativeNames;
+  }
+  
+  // public static void main(String[] args) { JvmProgram.launch(MethodHandles.lookup(), nativeNames, globalCount); }
+  private void compileLauncher(ClassWriter writer) {
+    var mv = writer.visitMethod(ACC_PUBLIC | ACC_STATIC, "main", "([Ljava/lang/String;)V", null, null);
+    mv.visitCode();
+    mv.visitMethodInsn(INVOKESTATIC, "java/lang/invoke/MethodHandles", "lookup", "()Ljava/lang/invoke/MethodHandles$Lookup;", false);
+    var nativeNames = nativeNames();
+    mv.visitLdcInsn(nativeNames.length);
+    mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+    for (var i = 0; i < nativeNames.length; i++) {
+      mv.visitInsn(DUP);
+      mv.visitLdcInsn(i);
+      mv.visitLdcInsn(nativeNames[i]);
+      mv.visitInsn(AASTORE);
+    }
+    mv.visitLdcInsn(globals.size());
+    mv.visitMethodInsn(INVOKESTATIC, PROGRAM, "launch", "(Ljava/lang/invoke/MethodHandles$Lookup;[Ljava/lang/String;I)V", false);
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+  
+  // Never-returning functions still get a method returning a Value, which just never returns normally
+  private static Kind descriptorKind(Type type) {
+    var kind = Kind.of(type);
+    return kind == Kind.NONE ? Kind.REF : kind;
+  }
+  
+  private static Kind returnKind(FuncDefAST<Type> funcDef) {
+    return descriptorKind(funcDef.returnType().data());
+  }
+  
+  private static String descriptor(Kind kind) {
+    return kind == Kind.INT ? "I" : VALUE_DESC;
+  }
+  
+  private static String descriptor(FuncDefAST<Type> funcDef) {
+    var builder = new StringBuilder("(");
+    for (var param : funcDef.params()) builder.append(descriptor(descriptorKind(param.type().data())));
+    return builder.append(')').append(descriptor(returnKind(funcDef))).toString();
+  }
+  
+  private record Local(Kind kind, int index) {}
+  
+  private static final class JumpTarget {
+    
+    final String label;
+    final boolean loop;
+    final Kind kind;
+    final int local;
+    final int depth;
+    final Label breakLabel = new Label();
+    final Label continueLabel = new Label();
+    
+    JumpTarget(String label, boolean loop, Kind kind, int local, int depth) {
+      this.label = label;
+      this.loop = loop;
+      this.kind = kind;
+      this.local = local;
+      this.depth = depth;
+    }
+    
+  }
+  
+  // Every visit returns the kind of value it left on the operand stack; depth counts the operands left below it by enclosing expressions,
+  // which jumps pop before leaving so every label is reached with the same stack
+  private class MethodCompiler implements StatASTVisitor<Type, Kind> {
+    
+    private final FuncDefAST<Type> funcDef;
+    private final MethodVisitor mv;
+    private final ArrayDeque<HashMap<String, Local>> scopes = new ArrayDeque<>();
+    private final ArrayDeque<JumpTarget> targets = new ArrayDeque<>();
+    private final Label start = new Label();
+    private int nextLocal = 0;
+    private int depth = 0;
+    
+    private MethodCompiler(ClassWriter writer, FuncDefAST<Type> funcDef) {
+      this.funcDef = funcDef;
+      this.mv = funcDef != null
+        ? writer.visitMethod(ACC_STATIC, funcDef.name(), descriptor(funcDef), null, null)
+        : writer.visitMethod(ACC_STATIC, INIT, "()V", null, null);
+    }
+    
+    private void compileFunction() {
+      mv.visitCode();
+      mv.visitLabel(start);
+      var params = new HashMap<String, Local>();
+      for (var param : funcDef.params()) params.put(param.name(), new Local(descriptorKind(param.type().data()), nextLocal++));
+      scopes.push(params);
+      var kind = returnKind(funcDef);
+      compileAs(funcDef.body(), kind);
+      mv.visitInsn(kind == Kind.INT ? IRETURN : ARETURN);
+      finish();
+    }
+    
+    private void compileInit(List<VarDefAST<Type>> varDefs) {
+      mv.visitCode();
+      for (var varDef : varDefs) {
+        mv.visitFieldInsn(GETSTATIC, className, GLOBALS, "[" + VALUE_DESC);
+        pushInt(globals.get(varDef.name()));
+        depth += 2;
+        compileAs(varDef.value(), Kind.REF);
+        depth -= 2;
+        mv.visitInsn(AASTORE);
+      }
+      mv.visitInsn(RETURN);
+      finish();
+    }
+    
+    private void finish() {
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+    }
+    
+    private void compileAs(ExprAST<Type> ast, Kind kind) {
+      var pushed = ast.accept(this);
+      if (pushed == kind) return;
+      if (pushed == Kind.INT) {
+        if (kind == Kind.NONE) mv.visitInsn(POP);
+        else box(ast.data());
+        return;
+      }
+      if (pushed == Kind.REF) {
+        if (kind == Kind.NONE) {
+          mv.visitInsn(POP);
+          return;
+        }
+        if (Kind.of(ast.data()) == Kind.INT) {
+          unbox(ast.data());
+          return;
+        }
+        mv.visitInsn(POP);
+      }
+      // the value is unreachable, but the stack still has to line up
+      if (kind == Kind.INT) mv.visitInsn(ICONST_0);
+      else if (kind == Kind.REF) mv.visitInsn(ACONST_NULL);
+    }
+    
+    private void compileEffect(StatAST<Type> ast) {
+      if (ast.accept(this) != Kind.NONE) mv.visitInsn(POP);
+    }
+    
+    private void box(Type type) {
+      if (type.unconditioned() == Type.BOOL) mv.visitMethodInsn(INVOKESTATIC, VALUE, "of", "(Z)L" + BOOL_VALUE + ";", true);
+      else mv.visitMethodInsn(INVOKESTATIC, VALUE, "of", "(I)L" + INT_VALUE + ";", true);
+    }
+    
+    private void unbox(Type type) {
+      if (type.unconditioned() == Type.BOOL) {
+        mv.visitTypeInsn(CHECKCAST, BOOL_VALUE);
+        mv.visitMethodInsn(INVOKEVIRTUAL, BOOL_VALUE, "value", "()Z", false);
+      } else {
+        mv.visitTypeInsn(CHECKCAST, INT_VALUE);
+        mv.visitMethodInsn(INVOKEVIRTUAL, INT_VALUE, "value", "()I", false);
+      }
+    }
+    
+    private void pushInt(int value) {
+      if (value >= -1 && value <= 5) mv.visitInsn(ICONST_0 + value);
+      else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) mv.visitIntInsn(BIPUSH, value);
+      else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) mv.visitIntInsn(SIPUSH, value);
+      else mv.visitLdcInsn(value);
+    }
+    
+    private void pushUnit() {
+      mv.visitFieldInsn(GETSTATIC, VALUE, "UNIT", "Lio/github/pint_lang/eval/UnitValue;");
+    }
+    
+    private void load(Local local) {
+      mv.visitVarInsn(local.kind() == Kind.INT ? ILOAD : ALOAD, local.index());
+    }
+    
+    private void store(Local local) {
+      mv.visitVarInsn(local.kind() == Kind.INT ? ISTORE : ASTORE, local.index());
+    }
+    
+    private void loadGlobal(int global, String name) {
+      mv.visitFieldInsn(GETSTATIC, className, GLOBALS, "[" + VALUE_DESC);
+      pushInt(global);
+      mv.visitLdcInsn(name);
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "global", "([" + VALUE_DESC + "ILjava/lang/String;)" + VALUE_DESC, false);
+    }
+    
+    private Local lookupLocal(String name) {
+      for (var scope : scopes) {
+        var local = scope.get(name);
+        if (local != null) return local;
+      }
+      return null;
+    }
+    
+    @Override
+    public Kind visitVarDef(VarDefAST<Type> ast) {
+      var kind = descriptorKind(ast.type().data());
+      compileAs(ast.value(), kind);
+      var local = new Local(kind, nextLocal++);
+      store(local);
+      scopes.peek().put(ast.name(), local);
+      return Kind.NONE;
+    }
+    
+    @Override
+    public Kind visitNopStat(NopStatAST<Type> ast) {
+      return Kind.NONE;
+    }
+    
+    @Override
+    public Kind visitUnaryExpr(UnaryExprAST<Type> ast) {
+      var operandType = ast.operand().data().unconditioned();
+      switch (ast.op()) {
+        case PLUS -> compileAs(ast.operand(), Kind.INT);
+        case NEG -> {
+          compileAs(ast.operand(), Kind.INT);
+          mv.visitInsn(INEG);
+        }
+        case NOT -> {
+          compileAs(ast.operand(), Kind.INT);
+          mv.visitInsn(ICONST_1);
+          mv.visitInsn(IXOR);
+        }
+        case ABS -> {
+          if (operandType == Type.STRING) {
+            compileAs(ast.operand(), Kind.REF);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "stringLength", "(" + VALUE_DESC + ")I", false);
+          } else if (operandType != Type.NEVER && operandType.canBeArray()) {
+            compileAs(ast.operand(), Kind.REF);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "arrayLength", "(" + VALUE_DESC + ")I", false);
+          } else {
+            compileAs(ast.operand(), Kind.INT);
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "abs", "(I)I", false);
+          }
+        }
+      }
+      return Kind.INT;
+    }
+    
+    @Override
+    public Kind visitBinaryExpr(BinaryExprAST<Type> ast) {
+      switch (ast.op()) {
+        case ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN -> {
+          compileAssign(ast);
+          return Kind.REF;
+        }
+        case ADD, SUB, MUL, DIV -> {
+          compileAs(ast.left(), Kind.INT);
+          depth++;
+          compileAs(ast.right(), Kind.INT);
+          depth--;
+          mv.visitInsn(arithmeticOp(ast.op()));
+          return Kind.INT;
+        }
+        default -> {
+          // materialize the condition as 0 or 1
+          var isFalse = new Label();
+          var end = new Label();
+          compileBranch(ast, false, isFalse);
+          mv.visitInsn(ICONST_1);
+          mv.visitJumpInsn(GOTO, end);
+          mv.visitLabel(isFalse);
+          mv.visitInsn(ICONST_0);
+          mv.visitLabel(end);
+          return Kind.INT;
+        }
+      }
+    }
+    
+    private int arithmeticOp(BinaryOp op) {
+      return switch (op) {
+        case ADD, ADD_ASSIGN -> IADD;
+        case SUB, SUB_ASSIGN -> ISUB;
+        case MUL, MUL_ASSIGN -> IMUL;
+        case DIV, DIV_ASSIGN -> IDIV;
+        default -> throw new IllegalStateException("Invalid arithmetic operator");
+      };
+    }
+    
+    private void compileAssign(BinaryExprAST<Type> ast) {
+      if (!(ast.left() instanceof VarExprAST<Type> left)) throw new BadExpressionException("Only variables can be assigned to");
+      var local = lookupLocal(left.name());
+      if (local != null) {
+        if (ast.op() == BinaryOp.ASSIGN) {
+          compileAs(ast.right(), local.kind());
+        } else {
+          load(local);
+          depth++;
+          compileAs(ast.right(), Kind.INT);
+          depth--;
+          mv.visitInsn(arithmeticOp(ast.op()));
+        }
+        store(local);
+      } else {
+        var global = globals.get(left.name());
+        if (global == null) throw NoSuchNameException.variable(left.name());
+        mv.visitFieldInsn(GETSTATIC, className, GLOBALS, "[" + VALUE_DESC);
+        pushInt(global);
+        depth += 2;
+        if (ast.op() == BinaryOp.ASSIGN) {
+          compileAs(ast.right(), Kind.REF);
+        } else {
+          loadGlobal(global, left.name());
+          unbox(Type.INT);
+          depth++;
+          compileAs(ast.right(), Kind.INT);
+          depth--;
+          mv.visitInsn(arithmeticOp(ast.op()));
+          box(Type.INT);
+        }
+        depth -= 2;
+        mv.visitInsn(AASTORE);
+      }
+      pushUnit();
+    }
+    
+    // Jumps to target if the condition evaluates to jumpIf, and falls through otherwise
+    private void compileBranch(ExprAST<Type> ast, boolean jumpIf, Label target) {
+      if (ast instanceof BoolLiteralExprAST<Type> literal) {
+        if (literal.value() == jumpIf) mv.visitJumpInsn(GOTO, target);
+        return;
+      }
+      if (ast instanceof UnaryExprAST<Type> unary && unary.op() == UnaryOp.NOT) {
+        compileBranch(unary.operand(), !jumpIf, target);
+        return;
+      }
+      if (ast instanceof BinaryExprAST<Type> binary) {
+        switch (binary.op()) {
+          case AND, OR -> {
+            if ((binary.op() == BinaryOp.AND) != jumpIf) {
+              // either operand alone decides
+              compileBranch(binary.left(), jumpIf, target);
+              compileBranch(binary.right(), jumpIf, target);
+            } else {
+              var skip = new Label();
+              compileBranch(binary.left(), !jumpIf, skip);
+              compileBranch(binary.right(), jumpIf, target);
+              mv.visitLabel(skip);
+            }
+            return;
+          }
+          case EQ, NEQ, LT, NLT, LE, NLE, GT, NGT, GE, NGE -> {
+            compileComparison(binary, jumpIf, target);
+            return;
+          }
+        }
+      }
+      compileAs(ast, Kind.INT);
+      mv.visitJumpInsn(jumpIf ? IFNE : IFEQ, target);
+    }
+    
+    private void compileComparison(BinaryExprAST<Type> ast, boolean jumpIf, Label target) {
+      var leftType = ast.left().data().unconditioned();
+      var rightType = ast.right().data().unconditioned();
+      var leftKind = Kind.of(leftType);
+      var rightKind = Kind.of(rightType);
+      var equality = ast.op() == BinaryOp.EQ || ast.op() == BinaryOp.NEQ;
+      var kind = equality
+        ? leftKind != Kind.REF && rightKind != Kind.REF && (leftKind == Kind.INT || rightKind == Kind.INT) ? Kind.INT : Kind.REF
+        : leftType == Type.STRING || rightType == Type.STRING ? Kind.REF : Kind.INT;
+      compileAs(ast.left(), kind);
+      depth++;
+      compileAs(ast.right(), kind);
+      depth--;
+      // the int comparison that holds when the condition is true
+      var compare = switch (ast.op()) {
+        case EQ -> IF_ICMPEQ;
+        case NEQ -> IF_ICMPNE;
+        case LT, NGE -> IF_ICMPLT;
+        case LE, NGT -> IF_ICMPLE;
+        case GT, NLE -> IF_ICMPGT;
+        default -> IF_ICMPGE;
+      };
+      if (!jumpIf) compare = negate(compare);
+      if (kind == Kind.INT) {
+        mv.visitJumpInsn(compare, target);
+      } else if (equality) {
+        mv.visitMethodInsn(INVOKEINTERFACE, VALUE, "valueEquals", "(" + VALUE_DESC + ")Z", true);
+        mv.visitJumpInsn(compare == IF_ICMPEQ ? IFNE : IFEQ, target);
+      } else {
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "compareStrings", "(" + VALUE_DESC + VALUE_DESC + ")I", false);
+        mv.visitJumpInsn(compare - IF_ICMPEQ + IFEQ, target); // compare the result with zero instead
+      }
+    }
+    
+    private static int negate(int compare) {
+      return switch (compare) {
+        case IF_ICMPEQ -> IF_ICMPNE;
+        case IF_ICMPNE -> IF_ICMPEQ;
+        case IF_ICMPLT -> IF_ICMPGE;
+        case IF_ICMPGE -> IF_ICMPLT;
+        case IF_ICMPGT -> IF_ICMPLE;
+        default -> IF_ICMPGT;
+      };
+    }
+    
+    @Override
+    public Kind visitBlockExpr(BlockExprAST<Type> ast) {
+      var localMark = nextLocal;
+      var kind = Kind.of(ast.data());
+      JumpTarget target = null;
+      if (ast.label() != null) {
+        target = new JumpTarget(ast.label(), false, kind, kind != Kind.NONE ? nextLocal++ : -1, depth);
+        targets.push(target);
+      }
+      scopes.push(new HashMap<>());
+      var stats = ast.stats();
+      var last = stats.isEmpty() ? null : stats.get(stats.size() - 1);
+      for (var stat : stats) {
+        if (stat != last || !(stat instanceof ExprAST<Type> expr)) compileEffect(stat);
+        else compileAs(expr, kind);
+      }
+      if (!(last instanceof ExprAST<Type>) && kind != Kind.NONE) pushUnit();
+      scopes.pop();
+      if (target != null) {
+        targets.pop();
+        if (kind != Kind.NONE) store(new Local(kind, target.local));
+        mv.visitLabel(target.breakLabel);
+        if (kind != Kind.NONE) load(new Local(kind, target.local));
+      }
+      nextLocal = localMark;
+      return kind;
+    }
+    
+    @Override
+    public Kind visitVarExprAST(VarExprAST<Type> ast) {
+      var local = lookupLocal(ast.name());
+      if (local != null) {
+        load(local);
+        return local.kind();
+      }
+      var global = globals.get(ast.name());
+      if (global == null) throw NoSuchNameException.variable(ast.name());
+      loadGlobal(global, ast.name());
+      return Kind.REF;
+    }
+    
+    @Override
+    public Kind visitFuncCall(FuncCallExprAST<Type> ast) {
+      var args = ast.args();
+      var function = functions.get(ast.funcName());
+      if (function != null) {
+        var params = function.params();
+        if (params.size() != args.size()) throw new IllegalArgumentException("Expected " + params.size() + " arguments; got " + args.size());
+        for (var i = 0; i < args.size(); i++) {
+          compileAs(args.get(i), descriptorKind(params.get(i).type().data()));
+          depth++;
+        }
+        depth -= args.size();
+        // the JVM can't replace its own frames, but a tail call to the same method can just rebind the parameters and start over
+        if (function == funcDef && depth == 0 && tailCalls.isTailCall(ast)) {
+          for (var i = args.size() - 1; i >= 0; i--) mv.visitVarInsn(descriptorKind(params.get(i).type().data()) == Kind.INT ? ISTORE : ASTORE, i);
+          mv.visitJumpInsn(GOTO, start);
+          return Kind.NONE;
+        }
+        mv.visitMethodInsn(INVOKESTATIC, className, function.name(), descriptor(function), false);
+        return returnKind(function);
+      }
+      var nativeFunction = natives.get(ast.funcName());
+      if (nativeFunction == null) throw NoSuchNameException.function(ast.funcName());
+      mv.visitFieldInsn(GETSTATIC, className, NATIVES, "[L" + NATIVE_FUNCTION + ";");
+      pushInt(nativeFunction);
+      mv.visitInsn(AALOAD);
+      pushInt(args.size());
+      mv.visitTypeInsn(ANEWARRAY, VALUE);
+      depth += 2;
+      for (var i = 0; i < args.size(); i++) {
+        mv.visitInsn(DUP);
+        pushInt(i);
+        depth += 2;
+        compileAs(args.get(i), Kind.REF);
+        depth -= 2;
+        mv.visitInsn(AASTORE);
+      }
+      depth -= 2;
+      mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "callNative", "(L" + NATIVE_FUNCTION + ";[" + VALUE_DESC + ")" + VALUE_DESC, false);
+      return Kind.REF;
+    }
+    
+    @Override
+    public Kind visitIndexExpr(IndexExprAST<Type> ast) {
+      // the typechecker proved the indexee is an array, but a call may have reassigned a global since its bounds were proved
+      compileAs(ast.indexee(), Kind.REF);
+      mv.visitTypeInsn(CHECKCAST, ARRAY_VALUE);
+      depth++;
+      compileAs(ast.index(), Kind.INT);
+      depth--;
+      // ints and bools come straight out of unboxed storage
+      var type = ast.data().unconditioned();
+      if (type == Type.INT) {
+        mv.visitMethodInsn(INVOKEINTERFACE, ARRAY_VALUE, "getInt", "(I)I", true);
+        return Kind.INT;
+      }
+      if (type == Type.BOOL) {
+        mv.visitMethodInsn(INVOKEINTERFACE, ARRAY_VALUE, "getBool", "(I)Z", true);
+        return Kind.INT;
+      }
+      mv.visitMethodInsn(INVOKEINTERFACE, ARRAY_VALUE, "get", "(I)" + VALUE_DESC, true);
+      return Kind.REF;
+    }
+    
+    @Override
+    public Kind visitSliceExpr(SliceExprAST<Type> ast) {
+      compileAs(ast.slicee(), Kind.REF);
+      depth++;
+      if (ast.from() != null) compileAs(ast.from(), Kind.INT);
+      else mv.visitInsn(ICONST_0);
+      if (ast.to() != null) {
+        depth++;
+        compileAs(ast.to(), Kind.INT);
+        depth--;
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "slice", "(" + VALUE_DESC + "II)" + VALUE_DESC, false);
+      } else {
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "sliceFrom", "(" + VALUE_DESC + "I)" + VALUE_DESC, false);
+      }
+      depth--;
+      return Kind.REF;
+    }
+    
+    @Override
+    public Kind visitItExpr(ItExprAST<Type> ast) {
+      throw new BadExpressionException("it does not have a value");
+    }
+    
+    @Override
+    public Kind visitIfExpr(IfExprAST<Type> ast) {
+      var elseLabel = new Label();
+      compileBranch(ast.condition(), false, elseLabel);
+      if (ast.elseBody() == null || ast.data().unconditioned() == Type.UNIT) {
+        compileEffect(ast.thenBody());
+        if (ast.elseBody() != null) {
+          var end = new Label();
+          mv.visitJumpInsn(GOTO, end);
+          mv.visitLabel(elseLabel);
+          compileEffect(ast.elseBody());
+          mv.visitLabel(end);
+        } else {
+          mv.visitLabel(elseLabel);
+        }
+        pushUnit();
+        return Kind.REF;
+      }
+      var kind = Kind.of(ast.data());
+      var end = new Label();
+      compileAs(ast.thenBody(), kind);
+      mv.visitJumpInsn(GOTO, end);
+      mv.visitLabel(elseLabel);
+      compileAs(ast.elseBody(), kind);
+      mv.visitLabel(end);
+      return kind;
+    }
+    
+    @Override
+    public Kind visitLoopExpr(LoopExprAST<Type> ast) {
+      var localMark = nextLocal;
+      var kind = Kind.of(ast.data());
+      var target = new JumpTarget(ast.label(), true, kind, kind != Kind.NONE ? nextLocal++ : -1, depth);
+      targets.push(target);
+      mv.visitLabel(target.continueLabel);
+      compileEffect(ast.body());
+      mv.visitJumpInsn(GOTO, target.continueLabel);
+      targets.pop();
+      mv.visitLabel(target.breakLabel);
+      if (kind != Kind.NONE) load(new Local(kind, target.local));
+      nextLocal = localMark;
+      return kind;
+    }
+    
+    @Override
+    public Kind visitWhileExpr(WhileExprAST<Type> ast) {
+      var target = new JumpTarget(ast.label(), true, Kind.NONE, -1, depth);
+      targets.push(target);
+      // the condition goes after the body so each iteration only takes one jump
+      var body = new Label();
+      mv.visitJumpInsn(GOTO, target.continueLabel);
+      mv.visitLabel(body);
+      compileEffect(ast.body());
+      mv.visitLabel(target.continueLabel);
+      compileBranch(ast.condition(), true, body);
+      targets.pop();
+      mv.visitLabel(target.breakLabel);
+      pushUnit();
+      return Kind.REF;
+    }
+    
+    @Override
+    public Kind visitJumpExpr(JumpExprAST<Type> ast) {
+      switch (ast.kind()) {
+        case RETURN -> {
+          if (funcDef == null) throw new BadJumpException("Returned from variable definition");
+          if (ast.targetLabel() != null) throw new IllegalStateException("return cannot target a label");
+          var kind = returnKind(funcDef);
+          if (ast.value() != null) compileAs(ast.value(), kind);
+          else pushUnit();
+          mv.visitInsn(kind == Kind.INT ? IRETURN : ARETURN);
+        }
+        case BREAK -> {
+          var target = findTarget(ast.targetLabel(), "break");
+          if (target.local < 0) {
+            if (target.loop && ast.value() != null && Kind.of(ast.value().data()) != Kind.NONE && ast.value().data().unconditioned() != Type.UNIT)
+              throw new BadTypeException("Cannot break out of a while with any value other than unit");
+            if (ast.value() != null) compileEffect(ast.value());
+          } else {
+            if (ast.value() != null) compileAs(ast.value(), target.kind);
+            else pushUnit();
+            store(new Local(target.kind, target.local));
+          }
+          jump(target, target.breakLabel);
+        }
+        case CONTINUE -> {
+          if (ast.value() != null) throw new IllegalStateException("continue cannot accept value");
+          var target = findTarget(ast.targetLabel(), "continue");
+          if (!target.loop) throw new BadExpressionException("Labeled continues cannot target labeled blocks");
+          jump(target, target.continueLabel);
+        }
+      }
+      return Kind.NONE;
+    }
+    
+    // Pops the operands that enclosing expressions inside the target left on the stack, then jumps
+    private void jump(JumpTarget target, Label label) {
+      for (var i = target.depth; i < depth; i++) mv.visitInsn(POP);
+      mv.visitJumpInsn(GOTO, label);
+    }
+    
+    private JumpTarget findTarget(String label, String jump) {
+      if (label == null) {
+        var target = targets.peek();
+        if (target == null) throw new BadJumpException("Unlabeled jump outside of any loop");
+        if (!target.loop) throw new BadExpressionException("Unlabeled " + jump + " not allowed in labeled block");
+        return target;
+      }
+      for (var target : targets) {
+        if (label.equals(target.label)) return target;
+      }
+      throw new BadJumpException("Missing label '" + label + "' (did you make a typo?)");
+    }
+    
+    @Override
+    public Kind visitArrayLiteralExpr(ArrayLiteralExprAST<Type> ast) {
+      mv.visitTypeInsn(NEW, BUILDER);
+      mv.visitInsn(DUP);
+      pushInt(ast.items().size());
+      mv.visitMethodInsn(INVOKESPECIAL, BUILDER, "<init>", "(I)V", false);
+      depth++;
+      for (var item : ast.items()) {
+        var type = item.item().data().unconditioned();
+        if (!item.spread() && (type == Type.INT || type == Type.BOOL)) {
+          compileAs(item.item(), Kind.INT);
+          mv.visitMethodInsn(INVOKEVIRTUAL, BUILDER, type == Type.INT ? "addInt" : "addBool", type == Type.INT ? "(I)L" + BUILDER + ";" : "(Z)L" + BUILDER + ";", false);
+        } else {
+          compileAs(item.item(), Kind.REF);
+          mv.visitMethodInsn(INVOKEVIRTUAL, BUILDER, item.spread() ? "addAll" : "add", "(" + VALUE_DESC + ")L" + BUILDER + ";", false);
+        }
+      }
+      depth--;
+      mv.visitMethodInsn(INVOKEVIRTUAL, BUILDER, "build", "()L" + ARRAY_VALUE + ";", false);
+      return Kind.REF;
+    }
+    
+    @Override
+    public Kind visitStringLiteralExpr(StringLiteralExprAST<Type> ast) {
+      // a dynamic constant, so the StringValue is built the first time this literal runs and reused after that
+      mv.visitLdcInsn(new ConstantDynamic("string", "L" + STRING_VALUE + ";", STRING_BOOTSTRAP, ast.value()));
+      return Kind.REF;
+    }
+    
+    @Override
+    public Kind visitIntLiteralExpr(IntLiteralExprAST<Type> ast) {
+      pushInt(ast.value());
+      return Kind.INT;
+    }
+    
+    @Override
+    public Kind visitBoolLiteralExpr(BoolLiteralExprAST<Type> ast) {
+      mv.visitInsn(ast.value() ? ICONST_1 : ICONST_0);
+      return Kind.INT;
+    }
+    
+    @Override
+    public Kind visitUnitLiteralExpr(UnitLiteralExprAST<Type> ast) {
+      pushUnit();
+      return Kind.REF;
+    }
+    
+  }
+  
+}
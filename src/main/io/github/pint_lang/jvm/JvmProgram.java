@@ -0,0 +1,58 @@
+package io.github.pint_lang.jvm;
+
+import io.github.pint_lang.Builtins;
+import io.github.pint_lang.eval.*;
+
+import java.lang.invoke.MethodHandles;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.lang.invoke.MethodType.methodType;
+
+// A program compiled to a hidden class, with one static method per function plus init$ for the globals
+public class JvmProgram {
+  
+  static final String GLOBALS = "globals$";
+  static final String NATIVES = "natives$";
+  static final String INIT = "init$";
+  
+  private final MethodHandles.Lookup lookup;
+  private final String[] natives;
+  private final int globalCount;
+  
+  JvmProgram(MethodHandles.Lookup lookup, String[] natives, int globalCount) {
+    if (lookup == null) throw new NullPointerException("lookup must not be null");
+    if (natives == null) throw new NullPointerException("natives must not be null");
+    this.lookup = lookup;
+    this.natives = natives;
+    this.globalCount = globalCount;
+  }
+  
+  // Called by the main method of classes compiled for pintc
+  public static void launch(MethodHandles.Lookup lookup, String[] natives, int globalCount) {
+    var functions = new LinkedHashMap<String, NativeFunction>();
+    Builtins.define(functions);
+    new JvmProgram(lookup, natives, globalCount).run(functions);
+  }
+  
+  public void run(Map<String, NativeFunction> natives) {
+    var functions = new NativeFunction[this.natives.length];
+    for (var i = 0; i < functions.length; i++) {
+      functions[i] = natives.get(this.natives[i]);
+      if (functions[i] == null) throw NoSuchNameException.function(this.natives[i]);
+    }
+    var type = lookup.lookupClass();
+    try {
+      lookup.findStaticSetter(type, GLOBALS, Value[].class).invoke(new Value[globalCount]);
+      lookup.findStaticSetter(type, NATIVES, NativeFunction[].class).invoke(functions);
+      lookup.findStatic(type, INIT, methodType(void.class)).invoke();
+      var mainValue = (Value) lookup.findStatic(type, "main", methodType(Value.class)).invoke();
+      if (!(mainValue instanceof UnitValue)) throw new BadTypeException("main() must return unit");
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Generated code threw a checked exception", e);
+    }
+  }
+  
+}
@@ -0,0 +1,48 @@
+package io.github.pint_lang.jvm;
+
+import io.github.pint_lang.eval.*;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+
+// Operations too bulky to emit inline, called from generated code
+public final class JvmRuntime {
+  
+  private JvmRuntime() {}
+  
+  public static Value global(Value[] globals, int index, String name) {
+    var value = globals[index];
+    if (value == null) throw NoSuchNameException.variable(name);
+    return value;
+  }
+  
+  // Bootstraps the dynamic constant of a string literal
+  public static StringValue string(MethodHandles.Lookup lookup, String name, Class<?> type, String value) {
+    return Value.of(value);
+  }
+  
+  public static Value callNative(NativeFunction function, Value[] args) {
+    return function.call(Arrays.asList(args));
+  }
+  
+  public static int compareStrings(Value left, Value right) {
+    return ((StringValue) left).value().compareTo(((StringValue) right).value());
+  }
+  
+  public static int stringLength(Value value) {
+    return ((StringValue) value).value().length();
+  }
+  
+  public static int arrayLength(Value value) {
+    return ((ArrayValue) value).length();
+  }
+  
+  public static Value slice(Value array, int from, int to) {
+    return ((ArrayValue) array).slice(from, to);
+  }
+  
+  public static Value sliceFrom(Value array, int from) {
+    return slice(array, from, arrayLength(array));
+  }
+  
+}
@@ -0,0 +1,150 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.eval.*;
+
+final class ArrayNodes {
+  
+  private ArrayNodes() {}
+  
+  static final class IndexNode extends Node {
+    
+    private Node indexee;
+    private Node index;
+    
+    IndexNode(Node indexee, Node index) {
+      this.indexee = adopt(indexee);
+      this.index = adopt(index);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var array = indexee.execute(frame);
+      if (frame.jumping()) return null;
+      var i = index.executeInt(frame);
+      if (frame.jumping()) return null;
+      // typechecking proved this is an array, but a call may have reassigned a global since its bounds were proved
+      return ((ArrayValue) array).get(i);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      var array = indexee.execute(frame);
+      if (frame.jumping()) return 0;
+      var i = index.executeInt(frame);
+      if (frame.jumping()) return 0;
+      return ((ArrayValue) array).getInt(i);
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      var array = indexee.execute(frame);
+      if (frame.jumping()) return false;
+      var i = index.executeInt(frame);
+      if (frame.jumping()) return false;
+      return ((ArrayValue) array).getBool(i);
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (indexee == child) indexee = replacement;
+      if (index == child) index = replacement;
+    }
+    
+  }
+  
+  static final class SliceNode extends Node {
+    
+    private Node slicee;
+    private Node from;
+    private Node to;
+    
+    SliceNode(Node slicee, Node from, Node to) {
+      this.slicee = adopt(slicee);
+      this.from = adopt(from);
+      this.to = adopt(to);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var array = slicee.execute(frame);
+      if (frame.jumping()) return null;
+      var arrayValue = (ArrayValue) array;
+      var fromIndex = 0;
+      if (from != null) {
+        fromIndex = from.executeInt(frame);
+        if (frame.jumping()) return null;
+      }
+      var toIndex = arrayValue.length();
+      if (to != null) {
+        toIndex = to.executeInt(frame);
+        if (frame.jumping()) return null;
+      }
+      return arrayValue.slice(fromIndex, toIndex);
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (slicee == child) slicee = replacement;
+      if (from == child) from = replacement;
+      if (to == child) to = replacement;
+    }
+    
+  }
+  
+  // Ints and bools are added unboxed, so that arrays of them are built without boxing a single item
+  enum ItemKind {
+    
+    REF,
+    INT,
+    BOOL,
+    SPREAD
+    
+  }
+  
+  static final class ArrayLiteralNode extends Node {
+    
+    private final Node[] items;
+    private final ItemKind[] kinds;
+    
+    ArrayLiteralNode(Node[] items, ItemKind[] kinds) {
+      if (items == null) throw new NullPointerException("items must not be null");
+      if (kinds == null) throw new NullPointerException("kinds must not be null");
+      this.items = items;
+      this.kinds = kinds;
+      for (var item : items) adopt(item);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var builder = new ArrayBuilder(items.length);
+      for (var i = 0; i < items.length; i++) {
+        switch (kinds[i]) {
+          case INT -> {
+            var value = items[i].executeInt(frame);
+            if (frame.jumping()) return null;
+            builder.addInt(value);
+          }
+          case BOOL -> {
+            var value = items[i].executeBool(frame);
+            if (frame.jumping()) return null;
+            builder.addBool(value);
+          }
+          case REF, SPREAD -> {
+            var value = items[i].execute(frame);
+            if (frame.jumping()) return null;
+            if (kinds[i] == ItemKind.SPREAD) builder.addAll(value);
+            else builder.add(value);
+          }
+        }
+      }
+      return builder.build();
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      replaceIn(items, child, replacement);
+    }
+    
+  }
+  
+}
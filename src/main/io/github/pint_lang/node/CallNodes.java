@@ -0,0 +1,164 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.ast.JumpKind;
+import io.github.pint_lang.eval.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+final class CallNodes {
+  
+  private CallNodes() {}
+  
+  // Resolves its callee by name on first execution, then replaces itself with a call node that holds the callee directly
+  static final class UninitializedCallNode extends Node {
+    
+    private final String name;
+    private final Node[] args;
+    private final boolean tail;
+    private final Map<String, FunctionNode> functions;
+    private final Map<String, NativeFunction> natives;
+    
+    UninitializedCallNode(String name, Node[] args, boolean tail, Map<String, FunctionNode> functions, Map<String, NativeFunction> natives) {
+      if (name == null) throw new NullPointerException("name must not be null");
+      if (args == null) throw new NullPointerException("args must not be null");
+      if (functions == null) throw new NullPointerException("functions must not be null");
+      if (natives == null) throw new NullPointerException("natives must not be null");
+      this.name = name;
+      this.args = args;
+      this.tail = tail;
+      this.functions = functions;
+      this.natives = natives;
+      for (var arg : args) adopt(arg);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var function = functions.get(name);
+      if (function != null) {
+        if (args.length != function.params().length) throw new IllegalArgumentException("Expected " + function.params().length + " arguments; got " + args.length);
+        var call = tail ? new TailCallNode(function, args) : new DirectCallNode(function, args);
+        replace(() -> call);
+        return call.execute(frame);
+      }
+      var nativeFunction = natives.get(name);
+      if (nativeFunction == null) throw NoSuchNameException.function(name);
+      var call = new NativeCallNode(nativeFunction, args);
+      replace(() -> call);
+      return call.execute(frame);
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      replaceIn(args, child, replacement);
+    }
+    
+  }
+  
+  static final class DirectCallNode extends Node {
+    
+    private final FunctionNode function;
+    private final Node[] args;
+    
+    DirectCallNode(FunctionNode function, Node[] args) {
+      if (function == null) throw new NullPointerException("function must not be null");
+      if (args == null) throw new NullPointerException("args must not be null");
+      this.function = function;
+      this.args = args;
+      for (var arg : args) adopt(arg);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var params = function.params();
+      var callee = function.newFrame();
+      for (var i = 0; i < args.length; i++) {
+        var param = params[i];
+        switch (param.storage()) {
+          case INT -> callee.ints[param.index()] = args[i].executeInt(frame);
+          case BOOL -> callee.ints[param.index()] = args[i].executeBool(frame) ? 1 : 0;
+          default -> callee.refs[param.index()] = args[i].execute(frame);
+        }
+        if (frame.jumping()) return null;
+      }
+      return function.call(callee);
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      replaceIn(args, child, replacement);
+    }
+    
+  }
+  
+  // Unwinds like a return, leaving the callee and its frame for the enclosing FunctionNode.call to run in place of a nested call
+  static final class TailCallNode extends Node {
+    
+    private final FunctionNode function;
+    private final Node[] args;
+    
+    TailCallNode(FunctionNode function, Node[] args) {
+      if (function == null) throw new NullPointerException("function must not be null");
+      if (args == null) throw new NullPointerException("args must not be null");
+      this.function = function;
+      this.args = args;
+      for (var arg : args) adopt(arg);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var params = function.params();
+      var callee = function.newFrame(frame.spare);
+      for (var i = 0; i < args.length; i++) {
+        var param = params[i];
+        switch (param.storage()) {
+          case INT -> callee.ints[param.index()] = args[i].executeInt(frame);
+          case BOOL -> callee.ints[param.index()] = args[i].executeBool(frame) ? 1 : 0;
+          default -> callee.refs[param.index()] = args[i].execute(frame);
+        }
+        if (frame.jumping()) return null;
+      }
+      frame.tailFunction = function;
+      frame.tailFrame = callee;
+      frame.jump(JumpKind.RETURN, null, null);
+      return null;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      replaceIn(args, child, replacement);
+    }
+    
+  }
+  
+  static final class NativeCallNode extends Node {
+    
+    private final NativeFunction function;
+    private final Node[] args;
+    
+    NativeCallNode(NativeFunction function, Node[] args) {
+      if (function == null) throw new NullPointerException("function must not be null");
+      if (args == null) throw new NullPointerException("args must not be null");
+      this.function = function;
+      this.args = args;
+      for (var arg : args) adopt(arg);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var values = new Value[args.length];
+      for (var i = 0; i < args.length; i++) {
+        values[i] = args[i].execute(frame);
+        if (frame.jumping()) return null;
+      }
+      return function.call(Arrays.asList(values));
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      replaceIn(args, child, replacement);
+    }
+    
+  }
+  
+}
@@ -0,0 +1,78 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.eval.BadExpressionException;
+import io.github.pint_lang.eval.Value;
+
+final class ConstantNodes {
+  
+  private ConstantNodes() {}
+  
+  static final class ConstantNode extends Node {
+    
+    private final Value value;
+    
+    ConstantNode(Value value) {
+      if (value == null) throw new NullPointerException("value must not be null");
+      this.value = value;
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      return value;
+    }
+    
+  }
+  
+  static final class IntConstantNode extends Node {
+    
+    private final int value;
+    private final Value boxed;
+    
+    // boxed once here, so executing the node never boxes it again
+    IntConstantNode(int value) {
+      this.value = value;
+      this.boxed = Value.of(value);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      return boxed;
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      return value;
+    }
+    
+  }
+  
+  static final class BoolConstantNode extends Node {
+    
+    private final boolean value;
+    
+    BoolConstantNode(boolean value) {
+      this.value = value;
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      return Value.of(value);
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      return value;
+    }
+    
+  }
+  
+  static final class ItNode extends Node {
+    
+    @Override
+    public Value execute(Frame frame) {
+      throw new BadExpressionException("it does not have a value");
+    }
+    
+  }
+  
+}
@@ -0,0 +1,198 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.ast.JumpKind;
+import io.github.pint_lang.eval.*;
+
+final class ControlNodes {
+  
+  private ControlNodes() {}
+  
+  static class BlockNode extends Node {
+    
+    protected final Node[] stats;
+    
+    BlockNode(Node[] stats) {
+      if (stats == null) throw new NullPointerException("stats must not be null");
+      this.stats = stats;
+      for (var stat : stats) adopt(stat);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      Value lastValue = Value.UNIT;
+      for (var stat : stats) {
+        lastValue = stat.execute(frame);
+        if (frame.jumping()) return null;
+      }
+      return lastValue;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      replaceIn(stats, child, replacement);
+    }
+    
+  }
+  
+  static final class LabeledBlockNode extends BlockNode {
+    
+    private final String label;
+    
+    LabeledBlockNode(String label, Node[] stats) {
+      super(stats);
+      if (label == null) throw new NullPointerException("label must not be null");
+      this.label = label;
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = super.execute(frame);
+      if (frame.jumpKind == JumpKind.BREAK) {
+        if (frame.jumpLabel == null) throw new BadExpressionException("Unlabeled break not allowed in labeled block");
+        if (frame.jumpLabel.equals(label)) return frame.catchJump();
+      } else if (frame.jumpKind == JumpKind.CONTINUE) {
+        if (frame.jumpLabel == null) throw new BadExpressionException("Unlabeled continue not allowed in labeled block");
+        if (frame.jumpLabel.equals(label)) throw new BadExpressionException("Labeled continues cannot target labeled blocks");
+      }
+      return value; // any breaks or continues that make it here target other labels
+    }
+    
+  }
+  
+  static final class IfNode extends Node {
+    
+    private Node condition;
+    private Node thenBody;
+    private Node elseBody;
+    
+    IfNode(Node condition, Node thenBody, Node elseBody) {
+      this.condition = adopt(condition);
+      this.thenBody = adopt(thenBody);
+      this.elseBody = adopt(elseBody);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var cond = condition.executeBool(frame);
+      if (frame.jumping()) return null;
+      if (elseBody == null) {
+        if (cond) thenBody.execute(frame);
+        return frame.jumping() ? null : Value.UNIT; // without an else, the if is unit whatever its body is
+      }
+      return cond ? thenBody.execute(frame) : elseBody.execute(frame);
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (condition == child) condition = replacement;
+      if (thenBody == child) thenBody = replacement;
+      if (elseBody == child) elseBody = replacement;
+    }
+    
+  }
+  
+  // Returns true if the jump leaving a loop body is a break or continue for that loop
+  private static boolean catches(Frame frame, String label) {
+    return frame.jumpKind != JumpKind.RETURN && (frame.jumpLabel == null || frame.jumpLabel.equals(label));
+  }
+  
+  static final class LoopNode extends Node {
+    
+    private final String label;
+    private Node body;
+    
+    LoopNode(String label, Node body) {
+      this.label = label;
+      this.body = adopt(body);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      while (true) {
+        body.execute(frame);
+        if (!frame.jumping()) continue; // ignore body value
+        if (!catches(frame, label)) return null; // a return, or a jump for an outer label
+        if (frame.jumpKind == JumpKind.BREAK) return frame.catchJump(); // break out of this loop, with given value or unit
+        frame.catchJump(); // continue to next loop
+      }
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (body == child) body = replacement;
+    }
+    
+  }
+  
+  static final class WhileNode extends Node {
+    
+    private final String label;
+    private Node condition;
+    private Node body;
+    
+    WhileNode(String label, Node condition, Node body) {
+      this.label = label;
+      this.condition = adopt(condition);
+      this.body = adopt(body);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      while (true) {
+        var cond = condition.executeBool(frame);
+        if (frame.jumping()) return null; // note that break and continue don't work in the condition
+        if (!cond) break;
+        body.execute(frame);
+        if (!frame.jumping()) continue; // ignore body value
+        if (!catches(frame, label)) return null; // a return, or a jump for an outer label
+        if (frame.jumpKind == JumpKind.BREAK) {
+          if (!(frame.catchJump() instanceof UnitValue)) throw new BadTypeException("Cannot break out of a while with any value other than unit");
+          break; // break out of loop
+        }
+        frame.catchJump(); // continue to next loop
+      }
+      return Value.UNIT;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (condition == child) condition = replacement;
+      if (body == child) body = replacement;
+    }
+    
+  }
+  
+  static final class JumpNode extends Node {
+    
+    private final JumpKind kind;
+    private final String label;
+    private Node value;
+    
+    JumpNode(JumpKind kind, String label, Node value) {
+      if (kind == null) throw new NullPointerException("kind must not be null");
+      if (kind == JumpKind.RETURN && label != null) throw new IllegalStateException("return cannot target a label");
+      if (kind == JumpKind.CONTINUE && value != null) throw new IllegalStateException("continue cannot accept value");
+      this.kind = kind;
+      this.label = label;
+      this.value = adopt(value);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      Value result = Value.UNIT;
+      if (value != null) {
+        result = value.execute(frame);
+        if (frame.jumping()) return null;
+      }
+      frame.jump(kind, label, result);
+      return null;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (value == child) value = replacement;
+    }
+    
+  }
+  
+}
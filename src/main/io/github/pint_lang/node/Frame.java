@@ -0,0 +1,51 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.ast.JumpKind;
+import io.github.pint_lang.eval.BadJumpException;
+import io.github.pint_lang.eval.Value;
+
+// The locals of one call, laid out by SlotResolver, plus the jump (if any) currently unwinding through it
+public final class Frame {
+  
+  private static final Value[] NO_VALUES = new Value[0];
+  private static final int[] NO_INTS = new int[0];
+  
+  final Value[] refs;
+  final int[] ints;
+  JumpKind jumpKind;
+  String jumpLabel;
+  Value jumpValue;
+  // Set by a tail call along with a RETURN jump
+  FunctionNode tailFunction;
+  Frame tailFrame;
+  // The frame of the call this one replaced through a tail call, which is free for the next tail call to fill in
+  Frame spare;
+  
+  public Frame(int refSize, int intSize) {
+    this.refs = refSize == 0 ? NO_VALUES : new Value[refSize];
+    this.ints = intSize == 0 ? NO_INTS : new int[intSize];
+  }
+  
+  boolean jumping() {
+    return jumpKind != null;
+  }
+  
+  void jump(JumpKind kind, String label, Value value) {
+    jumpKind = kind;
+    jumpLabel = label;
+    jumpValue = value;
+  }
+  
+  Value catchJump() {
+    var value = jumpValue;
+    jumpKind = null;
+    jumpLabel = null;
+    jumpValue = null;
+    return value;
+  }
+  
+  BadJumpException missingLabel() {
+    return new BadJumpException(jumpLabel != null ? "Missing label '" + jumpLabel + "' (did you make a typo?)" : "Unlabeled jump outside of any loop");
+  }
+  
+}
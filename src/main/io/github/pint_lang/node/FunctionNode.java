@@ -0,0 +1,72 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.ast.JumpKind;
+import io.github.pint_lang.eval.SlotResolver;
+import io.github.pint_lang.eval.Value;
+
+// The root of a function's tree, or of a global variable's initializer (which has no parameters)
+public final class FunctionNode extends Node {
+  
+  private final String name;
+  private final SlotResolver.Slot[] params;
+  private final int refSize;
+  private final int intSize;
+  private Node body;
+  
+  public FunctionNode(String name, SlotResolver.Slot[] params, int refSize, int intSize, Node body) {
+    if (name == null) throw new NullPointerException("name must not be null");
+    if (params == null) throw new NullPointerException("params must not be null");
+    if (body == null) throw new NullPointerException("body must not be null");
+    this.name = name;
+    this.params = params;
+    this.refSize = refSize;
+    this.intSize = intSize;
+    this.body = adopt(body);
+  }
+  
+  public String name() {
+    return name;
+  }
+  
+  public SlotResolver.Slot[] params() {
+    return params;
+  }
+  
+  public Frame newFrame() {
+    return new Frame(refSize, intSize);
+  }
+  
+  Frame newFrame(Frame spare) {
+    return spare != null && spare.refs.length >= refSize && spare.ints.length >= intSize ? spare : newFrame();
+  }
+  
+  // Runs the body, leaving any jump for the caller to report
+  @Override
+  public Value execute(Frame frame) {
+    return body.execute(frame);
+  }
+  
+  // Runs the body as a function call, catching its return and running any tail calls it ends in
+  public Value call(Frame frame) {
+    var function = this;
+    while (true) {
+      var value = function.body.execute(frame);
+      if (!frame.jumping()) return value;
+      else if (frame.jumpKind != JumpKind.RETURN) throw frame.missingLabel();
+      else if (frame.tailFunction == null) return frame.catchJump();
+      function = frame.tailFunction;
+      var callee = frame.tailFrame;
+      frame.tailFunction = null;
+      frame.tailFrame = null;
+      frame.catchJump();
+      callee.spare = frame;
+      frame = callee;
+    }
+  }
+  
+  @Override
+  protected void replaceChild(Node child, Node replacement) {
+    if (body == child) body = replacement;
+  }
+  
+}
@@ -0,0 +1,56 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.eval.*;
+
+import java.util.function.Supplier;
+
+// A node of an executable tree; uninitialized nodes replace themselves in their parent with a specialized node once they have seen their operands
+public abstract class Node {
+  
+  private Node parent;
+  
+  protected final <T extends Node> T adopt(T child) {
+    if (child != null) ((Node) child).parent = this;
+    return child;
+  }
+  
+  // Does nothing if a reentrant execution of this node (e.g. in a recursive call) has already replaced it
+  protected final void replace(Supplier<? extends Node> replacement) {
+    if (parent == null) return;
+    var node = replacement.get();
+    parent.replaceChild(this, node);
+    node.parent = parent;
+    parent = null;
+  }
+  
+  protected void replaceChild(Node child, Node replacement) {
+    throw new IllegalStateException(getClass().getSimpleName() + " has no replaceable children");
+  }
+  
+  protected static Node[] replaceIn(Node[] children, Node child, Node replacement) {
+    for (var i = 0; i < children.length; i++) {
+      if (children[i] == child) children[i] = replacement;
+    }
+    return children;
+  }
+  
+  // Returns null when a jump cuts evaluation short, leaving the jump in the frame
+  public abstract Value execute(Frame frame);
+  
+  // Evaluates an int-typed node without boxing; check frame.jumping() afterwards
+  public int executeInt(Frame frame) {
+    var value = execute(frame);
+    if (frame.jumping()) return 0;
+    if (!(value instanceof IntValue intValue)) throw new BadTypeException("Expected an int");
+    return intValue.value();
+  }
+  
+  // Evaluates a bool-typed node without boxing; check frame.jumping() afterwards
+  public boolean executeBool(Frame frame) {
+    var value = execute(frame);
+    if (frame.jumping()) return false;
+    if (!(value instanceof BoolValue boolValue)) throw new BadTypeException("Expected a bool");
+    return boolValue.value();
+  }
+  
+}
@@ -0,0 +1,206 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.eval.*;
+import io.github.pint_lang.node.ArrayNodes.*;
+import io.github.pint_lang.node.CallNodes.*;
+import io.github.pint_lang.node.ConstantNodes.*;
+import io.github.pint_lang.node.ControlNodes.*;
+import io.github.pint_lang.node.OperatorNodes.*;
+import io.github.pint_lang.node.VariableNodes.*;
+import io.github.pint_lang.opt.TailCallAnalysis;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.Map;
+
+// Builds uninitialized node trees from the typed AST, with locals laid out by SlotResolver
+public class NodeBuilder implements StatASTVisitor<Type, Node> {
+  
+  private final SlotResolver slots;
+  private final TailCallAnalysis tailCalls;
+  private final Value[] globals;
+  private final Map<String, FunctionNode> functions;
+  private final Map<String, NativeFunction> natives;
+  
+  public NodeBuilder(SlotResolver slots, TailCallAnalysis tailCalls, Value[] globals, Map<String, FunctionNode> functions, Map<String, NativeFunction> natives) {
+    if (slots == null) throw new NullPointerException("slots must not be null");
+    if (tailCalls == null) throw new NullPointerException("tailCalls must not be null");
+    if (globals == null) throw new NullPointerException("globals must not be null");
+    if (functions == null) throw new NullPointerException("functions must not be null");
+    if (natives == null) throw new NullPointerException("natives must not be null");
+    this.slots = slots;
+    this.tailCalls = tailCalls;
+    this.globals = globals;
+    this.functions = functions;
+    this.natives = natives;
+  }
+  
+  public FunctionNode buildFunction(FuncDefAST<Type> ast) {
+    return new FunctionNode(ast.name(), slots.paramSlots(ast), slots.frameSize(ast), slots.intFrameSize(ast), visitBlockExpr(ast.body()));
+  }
+  
+  public FunctionNode buildGlobal(VarDefAST<Type> ast) {
+    return new FunctionNode(ast.name(), new SlotResolver.Slot[0], slots.frameSize(ast), slots.intFrameSize(ast), ast.value().accept(this));
+  }
+  
+  private SlotResolver.Slot slot(VarExprAST<Type> ast) {
+    var slot = slots.slot(ast);
+    if (slot == null) throw NoSuchNameException.variable(ast.name());
+    return slot;
+  }
+  
+  private Node[] buildAll(java.util.List<? extends StatAST<Type>> stats) {
+    var nodes = new Node[stats.size()];
+    for (var i = 0; i < nodes.length; i++) nodes[i] = stats.get(i).accept(this);
+    return nodes;
+  }
+  
+  @Override
+  public Node visitVarDef(VarDefAST<Type> ast) {
+    var slot = slots.slot(ast);
+    var value = ast.value().accept(this);
+    return switch (slot.storage()) {
+      case INT -> new DefineIntNode(slot.index(), value);
+      case BOOL -> new DefineBoolNode(slot.index(), value);
+      case REF -> new DefineRefNode(slot.index(), value);
+      case GLOBAL -> throw new IllegalStateException("Local variable resolved to a global slot");
+    };
+  }
+  
+  @Override
+  public Node visitNopStat(NopStatAST<Type> ast) {
+    return new ConstantNode(Value.UNIT);
+  }
+  
+  @Override
+  public Node visitUnaryExpr(UnaryExprAST<Type> ast) {
+    var operand = ast.operand().accept(this);
+    return switch (ast.op()) {
+      case PLUS -> new PlusNode(operand);
+      case NEG -> new NegNode(operand);
+      case NOT -> new NotNode(operand);
+      case ABS -> new UninitializedAbsNode(operand);
+    };
+  }
+  
+  @Override
+  public Node visitBinaryExpr(BinaryExprAST<Type> ast) {
+    switch (ast.op()) {
+      case ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN -> {
+        if (!(ast.left() instanceof VarExprAST<Type> left)) throw new BadExpressionException("Only variables can be assigned to");
+        var slot = slot(left);
+        var right = ast.right().accept(this);
+        return switch (slot.storage()) {
+          case INT -> new AssignIntNode(ast.op(), slot.index(), right);
+          case BOOL -> ast.op() == BinaryOp.ASSIGN ? new AssignBoolNode(slot.index(), right) : new AssignRefNode(ast.op(), slot.index(), right);
+          case REF -> new AssignRefNode(ast.op(), slot.index(), right);
+          case GLOBAL -> new AssignGlobalNode(ast.op(), left.name(), globals, slot.index(), right);
+        };
+      }
+    }
+    var left = ast.left().accept(this);
+    var right = ast.right().accept(this);
+    return switch (ast.op()) {
+      case AND -> new AndNode(left, right);
+      case OR -> new OrNode(left, right);
+      case ADD, SUB, MUL, DIV -> new UninitializedArithmeticNode(ast.op(), left, right);
+      default -> new UninitializedCompareNode(ast.op(), left, right);
+    };
+  }
+  
+  @Override
+  public Node visitBlockExpr(BlockExprAST<Type> ast) {
+    var stats = buildAll(ast.stats());
+    return ast.label() != null ? new LabeledBlockNode(ast.label(), stats) : new BlockNode(stats);
+  }
+  
+  @Override
+  public Node visitVarExprAST(VarExprAST<Type> ast) {
+    var slot = slot(ast);
+    return switch (slot.storage()) {
+      case INT -> new ReadIntNode(slot.index());
+      case BOOL -> new ReadBoolNode(slot.index());
+      case REF -> new ReadRefNode(slot.index());
+      case GLOBAL -> new ReadGlobalNode(ast.name(), globals, slot.index());
+    };
+  }
+  
+  @Override
+  public Node visitFuncCall(FuncCallExprAST<Type> ast) {
+    return new UninitializedCallNode(ast.funcName(), buildAll(ast.args()), tailCalls.isTailCall(ast), functions, natives);
+  }
+  
+  @Override
+  public Node visitIndexExpr(IndexExprAST<Type> ast) {
+    return new IndexNode(ast.indexee().accept(this), ast.index().accept(this));
+  }
+  
+  @Override
+  public Node visitSliceExpr(SliceExprAST<Type> ast) {
+    var from = ast.from() != null ? ast.from().accept(this) : null;
+    var to = ast.to() != null ? ast.to().accept(this) : null;
+    return new SliceNode(ast.slicee().accept(this), from, to);
+  }
+  
+  @Override
+  public Node visitItExpr(ItExprAST<Type> ast) {
+    return new ItNode();
+  }
+  
+  @Override
+  public Node visitIfExpr(IfExprAST<Type> ast) {
+    var elseBody = ast.elseBody() != null ? ast.elseBody().accept(this) : null;
+    return new IfNode(ast.condition().accept(this), ast.thenBody().accept(this), elseBody);
+  }
+  
+  @Override
+  public Node visitLoopExpr(LoopExprAST<Type> ast) {
+    return new LoopNode(ast.label(), ast.body().accept(this));
+  }
+  
+  @Override
+  public Node visitWhileExpr(WhileExprAST<Type> ast) {
+    return new WhileNode(ast.label(), ast.condition().accept(this), ast.body().accept(this));
+  }
+  
+  @Override
+  public Node visitJumpExpr(JumpExprAST<Type> ast) {
+    var value = ast.value() != null ? ast.value().accept(this) : null;
+    return new JumpNode(ast.kind(), ast.targetLabel(), value);
+  }
+  
+  @Override
+  public Node visitArrayLiteralExpr(ArrayLiteralExprAST<Type> ast) {
+    var items = ast.items();
+    var nodes = new Node[items.size()];
+    var kinds = new ItemKind[items.size()];
+    for (var i = 0; i < nodes.length; i++) {
+      var item = items.get(i);
+      var type = item.item().data().unconditioned();
+      nodes[i] = item.item().accept(this);
+      kinds[i] = item.spread() ? ItemKind.SPREAD : type == Type.INT ? ItemKind.INT : type == Type.BOOL ? ItemKind.BOOL : ItemKind.REF;
+    }
+    return new ArrayLiteralNode(nodes, kinds);
+  }
+  
+  @Override
+  public Node visitStringLiteralExpr(StringLiteralExprAST<Type> ast) {
+    return new ConstantNode(Value.of(ast.value()));
+  }
+  
+  @Override
+  public Node visitIntLiteralExpr(IntLiteralExprAST<Type> ast) {
+    return new IntConstantNode(ast.value());
+  }
+  
+  @Override
+  public Node visitBoolLiteralExpr(BoolLiteralExprAST<Type> ast) {
+    return new BoolConstantNode(ast.value());
+  }
+  
+  @Override
+  public Node visitUnitLiteralExpr(UnitLiteralExprAST<Type> ast) {
+    return new ConstantNode(Value.UNIT);
+  }
+  
+}
@@ -0,0 +1,56 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.eval.*;
+import io.github.pint_lang.opt.TailCallAnalysis;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+// Runs a program as trees of self-specializing nodes, built from the typed AST
+public class NodeInterpreter {
+  
+  private final DefsAST<Type> defs;
+  private final Map<String, NativeFunction> natives;
+  
+  public NodeInterpreter(DefsAST<Type> defs, Map<String, NativeFunction> natives) {
+    if (defs == null) throw new NullPointerException("defs must not be null");
+    if (natives == null) throw new NullPointerException("natives must not be null");
+    this.defs = defs;
+    this.natives = natives;
+  }
+  
+  public void run() {
+    var slots = new SlotResolver(defs);
+    var globals = new Value[slots.globalCount()];
+    var functions = new HashMap<String, FunctionNode>();
+    var builder = new NodeBuilder(slots, new TailCallAnalysis(defs), globals, functions, natives);
+    var vars = new ArrayList<VarDefAST<Type>>();
+    for (var def : defs.defs()) {
+      if (natives.containsKey(def.name()) || functions.containsKey(def.name()) || vars.stream().anyMatch(other -> other.name().equals(def.name())))
+        throw new BadDefinitionException("Duplicate global definition '" + def.name() + "'");
+      if (def instanceof FuncDefAST<Type> funcDef) {
+        if (funcDef.params().stream().map(FuncDefAST.Param::name).distinct().count() != funcDef.params().size()) throw new BadDefinitionException("Function with duplicate parameters");
+        functions.put(funcDef.name(), builder.buildFunction(funcDef));
+      } else if (def instanceof VarDefAST<Type> varDef) {
+        vars.add(varDef);
+      }
+    }
+    var main = functions.get("main");
+    if (main == null) throw new BadDefinitionException("Missing a main method");
+    for (var v : vars) {
+      var init = builder.buildGlobal(v);
+      var frame = init.newFrame();
+      var value = init.execute(frame);
+      if (frame.jumpKind == JumpKind.RETURN) throw new BadJumpException("Returned from variable definition");
+      else if (frame.jumping()) throw frame.missingLabel();
+      globals[slots.globalIndex(v.name())] = value;
+    }
+    if (main.params().length != 0) throw new IllegalArgumentException("Expected " + main.params().length + " arguments; got 0");
+    var mainValue = main.call(main.newFrame());
+    if (!(mainValue instanceof UnitValue)) throw new BadTypeException("main() must return unit");
+  }
+  
+}
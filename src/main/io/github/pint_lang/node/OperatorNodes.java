@@ -0,0 +1,481 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.ast.BinaryOp;
+import io.github.pint_lang.eval.*;
+
+// The uninitialized nodes specialize on the first operands they see, which the typechecker keeps stable afterwards
+final class OperatorNodes {
+  
+  private OperatorNodes() {}
+  
+  abstract static class UnaryNode extends Node {
+    
+    protected Node operand;
+    
+    UnaryNode(Node operand) {
+      this.operand = adopt(operand);
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (operand == child) operand = replacement;
+    }
+    
+  }
+  
+  abstract static class BinaryNode extends Node {
+    
+    protected Node left;
+    protected Node right;
+    
+    BinaryNode(Node left, Node right) {
+      this.left = adopt(left);
+      this.right = adopt(right);
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (left == child) left = replacement;
+      if (right == child) right = replacement;
+    }
+    
+  }
+  
+  abstract static class IntNode extends BinaryNode {
+    
+    IntNode(Node left, Node right) {
+      super(left, right);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = executeInt(frame);
+      return frame.jumping() ? null : Value.of(value);
+    }
+    
+  }
+  
+  abstract static class BoolNode extends BinaryNode {
+    
+    BoolNode(Node left, Node right) {
+      super(left, right);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = executeBool(frame);
+      return frame.jumping() ? null : Value.of(value);
+    }
+    
+  }
+  
+  static final class UninitializedArithmeticNode extends BinaryNode {
+    
+    private final BinaryOp op;
+    
+    UninitializedArithmeticNode(BinaryOp op, Node left, Node right) {
+      super(left, right);
+      if (op == null) throw new NullPointerException("op must not be null");
+      this.op = op;
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var leftValue = left.execute(frame);
+      if (frame.jumping()) return null;
+      var rightValue = right.execute(frame);
+      if (frame.jumping()) return null;
+      if (!(leftValue instanceof IntValue leftInt) || !(rightValue instanceof IntValue rightInt)) throw new BadTypeException("Binary arithmetic operators only applies to ints");
+      var l = leftInt.value();
+      var r = rightInt.value();
+      return Value.of(switch (op) {
+        case ADD -> {
+          replace(() -> new IntAddNode(left, right));
+          yield l + r;
+        }
+        case SUB -> {
+          replace(() -> new IntSubNode(left, right));
+          yield l - r;
+        }
+        case MUL -> {
+          replace(() -> new IntMulNode(left, right));
+          yield l * r;
+        }
+        case DIV -> {
+          replace(() -> new IntDivNode(left, right));
+          yield l / r;
+        }
+        default -> throw new IllegalStateException("Invalid arithmetic operator");
+      });
+    }
+    
+  }
+  
+  static final class IntAddNode extends IntNode {
+    
+    IntAddNode(Node left, Node right) {
+      super(left, right);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      var l = left.executeInt(frame);
+      if (frame.jumping()) return 0;
+      return l + right.executeInt(frame);
+    }
+    
+  }
+  
+  static final class IntSubNode extends IntNode {
+    
+    IntSubNode(Node left, Node right) {
+      super(left, right);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      var l = left.executeInt(frame);
+      if (frame.jumping()) return 0;
+      return l - right.executeInt(frame);
+    }
+    
+  }
+  
+  static final class IntMulNode extends IntNode {
+    
+    IntMulNode(Node left, Node right) {
+      super(left, right);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      var l = left.executeInt(frame);
+      if (frame.jumping()) return 0;
+      return l * right.executeInt(frame);
+    }
+    
+  }
+  
+  static final class IntDivNode extends IntNode {
+    
+    IntDivNode(Node left, Node right) {
+      super(left, right);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      var l = left.executeInt(frame);
+      if (frame.jumping()) return 0;
+      var r = right.executeInt(frame);
+      if (frame.jumping()) return 0;
+      return l / r;
+    }
+    
+  }
+  
+  static final class PlusNode extends UnaryNode {
+    
+    PlusNode(Node operand) {
+      super(operand);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = operand.execute(frame);
+      if (frame.jumping()) return null;
+      if (!(value instanceof IntValue)) throw new BadTypeException("Unary + operator only applies to ints");
+      return value;
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      return operand.executeInt(frame);
+    }
+    
+  }
+  
+  static final class NegNode extends UnaryNode {
+    
+    NegNode(Node operand) {
+      super(operand);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = executeInt(frame);
+      return frame.jumping() ? null : Value.of(value);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      return -operand.executeInt(frame);
+    }
+    
+  }
+  
+  static final class NotNode extends UnaryNode {
+    
+    NotNode(Node operand) {
+      super(operand);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = executeBool(frame);
+      return frame.jumping() ? null : Value.of(value);
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      return !operand.executeBool(frame);
+    }
+    
+  }
+  
+  static final class UninitializedAbsNode extends UnaryNode {
+    
+    UninitializedAbsNode(Node operand) {
+      super(operand);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = operand.execute(frame);
+      if (frame.jumping()) return null;
+      if (value instanceof IntValue intValue) {
+        replace(() -> new IntAbsNode(operand));
+        return Value.of(Math.abs(intValue.value()));
+      } else if (value instanceof StringValue stringValue) {
+        replace(() -> new StringLengthNode(operand));
+        return Value.of(stringValue.value().length());
+      } else if (value instanceof ArrayValue arrayValue) {
+        replace(() -> new ArrayLengthNode(operand));
+        return Value.of(arrayValue.length());
+      } else {
+        throw new BadTypeException("Unary | | operator only applies to ints, strings and arrays");
+      }
+    }
+    
+  }
+  
+  static final class IntAbsNode extends UnaryNode {
+    
+    IntAbsNode(Node operand) {
+      super(operand);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = executeInt(frame);
+      return frame.jumping() ? null : Value.of(value);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      return Math.abs(operand.executeInt(frame));
+    }
+    
+  }
+  
+  static final class StringLengthNode extends UnaryNode {
+    
+    StringLengthNode(Node operand) {
+      super(operand);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = executeInt(frame);
+      return frame.jumping() ? null : Value.of(value);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      var value = operand.execute(frame);
+      if (frame.jumping()) return 0;
+      return ((StringValue) value).value().length();
+    }
+    
+  }
+  
+  static final class ArrayLengthNode extends UnaryNode {
+    
+    ArrayLengthNode(Node operand) {
+      super(operand);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = executeInt(frame);
+      return frame.jumping() ? null : Value.of(value);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      var value = operand.execute(frame);
+      if (frame.jumping()) return 0;
+      return ((ArrayValue) value).length();
+    }
+    
+  }
+  
+  static final class AndNode extends BoolNode {
+    
+    AndNode(Node left, Node right) {
+      super(left, right);
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      return left.executeBool(frame) && !frame.jumping() && right.executeBool(frame);
+    }
+    
+  }
+  
+  static final class OrNode extends BoolNode {
+    
+    OrNode(Node left, Node right) {
+      super(left, right);
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      var l = left.executeBool(frame);
+      if (frame.jumping()) return false;
+      return l || right.executeBool(frame);
+    }
+    
+  }
+  
+  static boolean test(BinaryOp op, int comparison) {
+    return switch (op) {
+      case EQ -> comparison == 0;
+      case NEQ -> comparison != 0;
+      case LT, NGE -> comparison < 0;
+      case LE, NGT -> comparison <= 0;
+      case GT, NLE -> comparison > 0;
+      case GE, NLT -> comparison >= 0;
+      default -> throw new IllegalStateException("Invalid comparison operator");
+    };
+  }
+  
+  static final class UninitializedCompareNode extends BinaryNode {
+    
+    private final BinaryOp op;
+    
+    UninitializedCompareNode(BinaryOp op, Node left, Node right) {
+      super(left, right);
+      if (op == null) throw new NullPointerException("op must not be null");
+      this.op = op;
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var leftValue = left.execute(frame);
+      if (frame.jumping()) return null;
+      var rightValue = right.execute(frame);
+      if (frame.jumping()) return null;
+      var equality = op == BinaryOp.EQ || op == BinaryOp.NEQ;
+      if (leftValue instanceof IntValue leftInt && rightValue instanceof IntValue rightInt) {
+        replace(() -> new IntCompareNode(op, left, right));
+        return Value.of(test(op, Integer.compare(leftInt.value(), rightInt.value())));
+      } else if (equality && leftValue instanceof BoolValue leftBool && rightValue instanceof BoolValue rightBool) {
+        replace(() -> new BoolEqualsNode(op, left, right));
+        return Value.of((leftBool.value() == rightBool.value()) == (op == BinaryOp.EQ));
+      } else if (equality) {
+        replace(() -> new ValueEqualsNode(op, left, right));
+        return Value.of(leftValue.valueEquals(rightValue) == (op == BinaryOp.EQ));
+      } else if (leftValue instanceof IntValue) {
+        throw new BadTypeException("ints can only be compared with ints");
+      } else if (leftValue instanceof StringValue leftString) {
+        if (!(rightValue instanceof StringValue rightString)) throw new BadTypeException("strings can only be compared with strings");
+        replace(() -> new StringCompareNode(op, left, right));
+        return Value.of(test(op, leftString.value().compareTo(rightString.value())));
+      } else {
+        throw new BadTypeException("Binary comparison operators only apply to ints and strings");
+      }
+    }
+    
+  }
+  
+  static final class IntCompareNode extends BoolNode {
+    
+    private final BinaryOp op;
+    
+    IntCompareNode(BinaryOp op, Node left, Node right) {
+      super(left, right);
+      this.op = op;
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      var l = left.executeInt(frame);
+      if (frame.jumping()) return false;
+      var r = right.executeInt(frame);
+      if (frame.jumping()) return false;
+      return test(op, Integer.compare(l, r));
+    }
+    
+  }
+  
+  static final class BoolEqualsNode extends BoolNode {
+    
+    private final boolean equal;
+    
+    BoolEqualsNode(BinaryOp op, Node left, Node right) {
+      super(left, right);
+      this.equal = op == BinaryOp.EQ;
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      var l = left.executeBool(frame);
+      if (frame.jumping()) return false;
+      var r = right.executeBool(frame);
+      if (frame.jumping()) return false;
+      return (l == r) == equal;
+    }
+    
+  }
+  
+  static final class StringCompareNode extends BoolNode {
+    
+    private final BinaryOp op;
+    
+    StringCompareNode(BinaryOp op, Node left, Node right) {
+      super(left, right);
+      this.op = op;
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      var l = left.execute(frame);
+      if (frame.jumping()) return false;
+      var r = right.execute(frame);
+      if (frame.jumping()) return false;
+      return test(op, ((StringValue) l).value().compareTo(((StringValue) r).value()));
+    }
+    
+  }
+  
+  static final class ValueEqualsNode extends BoolNode {
+    
+    private final boolean equal;
+    
+    ValueEqualsNode(BinaryOp op, Node left, Node right) {
+      super(left, right);
+      this.equal = op == BinaryOp.EQ;
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      var l = left.execute(frame);
+      if (frame.jumping()) return false;
+      var r = right.execute(frame);
+      if (frame.jumping()) return false;
+      return l.valueEquals(r) == equal;
+    }
+    
+  }
+  
+}
@@ -0,0 +1,299 @@
+package io.github.pint_lang.node;
+
+import io.github.pint_lang.ast.BinaryOp;
+import io.github.pint_lang.eval.*;
+
+final class VariableNodes {
+  
+  private VariableNodes() {}
+  
+  static int assign(BinaryOp op, int left, int right) {
+    return switch (op) {
+      case ASSIGN -> right;
+      case ADD_ASSIGN -> left + right;
+      case SUB_ASSIGN -> left - right;
+      case MUL_ASSIGN -> left * right;
+      case DIV_ASSIGN -> left / right;
+      default -> throw new IllegalStateException("Invalid assignment operator");
+    };
+  }
+  
+  static Value assign(BinaryOp op, Value left, Value right) {
+    if (op == BinaryOp.ASSIGN) return right;
+    if (!(left instanceof IntValue leftInt) || !(right instanceof IntValue rightInt)) throw new BadTypeException("Arithmetic assignment operators only apply to ints");
+    return Value.of(assign(op, leftInt.value(), rightInt.value()));
+  }
+  
+  static final class ReadIntNode extends Node {
+    
+    private final int index;
+    
+    ReadIntNode(int index) {
+      this.index = index;
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      return Value.of(frame.ints[index]);
+    }
+    
+    @Override
+    public int executeInt(Frame frame) {
+      return frame.ints[index];
+    }
+    
+  }
+  
+  static final class ReadBoolNode extends Node {
+    
+    private final int index;
+    
+    ReadBoolNode(int index) {
+      this.index = index;
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      return Value.of(frame.ints[index] != 0);
+    }
+    
+    @Override
+    public boolean executeBool(Frame frame) {
+      return frame.ints[index] != 0;
+    }
+    
+  }
+  
+  static final class ReadRefNode extends Node {
+    
+    private final int index;
+    
+    ReadRefNode(int index) {
+      this.index = index;
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      return frame.refs[index];
+    }
+    
+  }
+  
+  static final class ReadGlobalNode extends Node {
+    
+    private final String name;
+    private final Value[] globals;
+    private final int index;
+    
+    ReadGlobalNode(String name, Value[] globals, int index) {
+      if (name == null) throw new NullPointerException("name must not be null");
+      if (globals == null) throw new NullPointerException("globals must not be null");
+      this.name = name;
+      this.globals = globals;
+      this.index = index;
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var value = globals[index];
+      if (value == null) throw NoSuchNameException.variable(name);
+      return value;
+    }
+    
+  }
+  
+  static final class DefineIntNode extends Node {
+    
+    private final int index;
+    private Node value;
+    
+    DefineIntNode(int index, Node value) {
+      this.index = index;
+      this.value = adopt(value);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var result = value.executeInt(frame);
+      if (frame.jumping()) return null;
+      frame.ints[index] = result;
+      return Value.UNIT;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (value == child) value = replacement;
+    }
+    
+  }
+  
+  static final class DefineBoolNode extends Node {
+    
+    private final int index;
+    private Node value;
+    
+    DefineBoolNode(int index, Node value) {
+      this.index = index;
+      this.value = adopt(value);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var result = value.executeBool(frame);
+      if (frame.jumping()) return null;
+      frame.ints[index] = result ? 1 : 0;
+      return Value.UNIT;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (value == child) value = replacement;
+    }
+    
+  }
+  
+  static final class DefineRefNode extends Node {
+    
+    private final int index;
+    private Node value;
+    
+    DefineRefNode(int index, Node value) {
+      this.index = index;
+      this.value = adopt(value);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var result = value.execute(frame);
+      if (frame.jumping()) return null;
+      frame.refs[index] = result;
+      return Value.UNIT;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (value == child) value = replacement;
+    }
+    
+  }
+  
+  static final class AssignIntNode extends Node {
+    
+    private final BinaryOp op;
+    private final int index;
+    private Node value;
+    
+    AssignIntNode(BinaryOp op, int index, Node value) {
+      if (op == null) throw new NullPointerException("op must not be null");
+      this.op = op;
+      this.index = index;
+      this.value = adopt(value);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var left = frame.ints[index];
+      var right = value.executeInt(frame);
+      if (frame.jumping()) return null;
+      frame.ints[index] = assign(op, left, right);
+      return Value.UNIT;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (value == child) value = replacement;
+    }
+    
+  }
+  
+  static final class AssignBoolNode extends Node {
+    
+    private final int index;
+    private Node value;
+    
+    AssignBoolNode(int index, Node value) {
+      this.index = index;
+      this.value = adopt(value);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var result = value.executeBool(frame);
+      if (frame.jumping()) return null;
+      frame.ints[index] = result ? 1 : 0;
+      return Value.UNIT;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (value == child) value = replacement;
+    }
+    
+  }
+  
+  static final class AssignRefNode extends Node {
+    
+    private final BinaryOp op;
+    private final int index;
+    private Node value;
+    
+    AssignRefNode(BinaryOp op, int index, Node value) {
+      if (op == null) throw new NullPointerException("op must not be null");
+      this.op = op;
+      this.index = index;
+      this.value = adopt(value);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var left = frame.refs[index];
+      var right = value.execute(frame);
+      if (frame.jumping()) return null;
+      frame.refs[index] = assign(op, left, right);
+      return Value.UNIT;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (value == child) value = replacement;
+    }
+    
+  }
+  
+  static final class AssignGlobalNode extends Node {
+    
+    private final BinaryOp op;
+    private final String name;
+    private final Value[] globals;
+    private final int index;
+    private Node value;
+    
+    AssignGlobalNode(BinaryOp op, String name, Value[] globals, int index, Node value) {
+      if (op == null) throw new NullPointerException("op must not be null");
+      if (name == null) throw new NullPointerException("name must not be null");
+      if (globals == null) throw new NullPointerException("globals must not be null");
+      this.op = op;
+      this.name = name;
+      this.globals = globals;
+      this.index = index;
+      this.value = adopt(value);
+    }
+    
+    @Override
+    public Value execute(Frame frame) {
+      var left = globals[index];
+      if (left == null) throw NoSuchNameException.variable(name);
+      var right = value.execute(frame);
+      if (frame.jumping()) return null;
+      globals[index] = assign(op, left, right);
+      return Value.UNIT;
+    }
+    
+    @Override
+    protected void replaceChild(Node child, Node replacement) {
+      if (value == child) value = replacement;
+    }
+    
+  }
+  
+}
@@ -0,0 +1,284 @@
+package io.github.pint_lang.opt;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+// Folds operators over literals, prunes branches whose condition is a literal and drops statements with neither a value nor an effect
+public class ConstantFoldVisitor implements DefASTVisitor<Type, DefAST<Type>>, StatASTVisitor<Type, StatAST<Type>> {
+  
+  // Only locals are tracked, since reading a global before it's defined is an error and so not pure
+  private final ArrayDeque<HashSet<String>> scopes = new ArrayDeque<>();
+  
+  public DefsAST<Type> visitDefs(DefsAST<Type> ast) {
+    var defs = new ArrayList<DefAST<Type>>(ast.defs().size());
+    for (var def : ast.defs()) defs.add(visitDef(def));
+    return new DefsAST<>(defs, ast.data());
+  }
+  
+  @Override
+  public FuncDefAST<Type> visitFuncDef(FuncDefAST<Type> ast) {
+    var scope = new HashSet<String>();
+    for (var param : ast.params()) scope.add(param.name());
+    scopes.push(scope);
+    var body = visitBlockExpr(ast.body());
+    scopes.pop();
+    return new FuncDefAST<>(ast.name(), ast.params(), ast.returnType(), body, ast.data());
+  }
+  
+  @Override
+  public VarDefAST<Type> visitVarDef(VarDefAST<Type> ast) {
+    var value = fold(ast.value());
+    if (!scopes.isEmpty()) scopes.peek().add(ast.name());
+    return value == ast.value() ? ast : new VarDefAST<>(ast.name(), ast.type(), value, ast.data());
+  }
+  
+  @Override
+  public StatAST<Type> visitNopStat(NopStatAST<Type> ast) {
+    return ast;
+  }
+  
+  private ExprAST<Type> fold(ExprAST<Type> ast) {
+    return (ExprAST<Type>) ast.accept(this);
+  }
+  
+  @Override
+  public ExprAST<Type> visitUnaryExpr(UnaryExprAST<Type> ast) {
+    var operand = fold(ast.operand());
+    switch (ast.op()) {
+      case PLUS -> {
+        if (operand instanceof IntLiteralExprAST<Type> literal) return new IntLiteralExprAST<>(literal.value(), ast.data());
+      }
+      case NEG -> {
+        if (operand instanceof IntLiteralExprAST<Type> literal) return new IntLiteralExprAST<>(-literal.value(), ast.data());
+      }
+      case NOT -> {
+        if (operand instanceof BoolLiteralExprAST<Type> literal) return new BoolLiteralExprAST<>(!literal.value(), ast.data());
+      }
+      case ABS -> {
+        if (operand instanceof IntLiteralExprAST<Type> literal) return new IntLiteralExprAST<>(Math.abs(literal.value()), ast.data());
+        if (operand instanceof StringLiteralExprAST<Type> literal) return new IntLiteralExprAST<>(literal.value().length(), ast.data());
+      }
+    }
+    return operand == ast.operand() ? ast : new UnaryExprAST<>(ast.op(), operand, ast.data());
+  }
+  
+  @Override
+  public ExprAST<Type> visitBinaryExpr(BinaryExprAST<Type> ast) {
+    switch (ast.op()) {
+      case ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN -> {
+        var right = fold(ast.right());
+        return right == ast.right() ? ast : new BinaryExprAST<>(ast.op(), ast.left(), right, ast.data());
+      }
+      case AND, OR -> {
+        return foldLogic(ast);
+      }
+    }
+    var left = fold(ast.left());
+    var right = fold(ast.right());
+    if (left instanceof IntLiteralExprAST<Type> l && right instanceof IntLiteralExprAST<Type> r) {
+      var a = l.value();
+      var b = r.value();
+      switch (ast.op()) {
+        case ADD -> {
+          return new IntLiteralExprAST<>(a + b, ast.data());
+        }
+        case SUB -> {
+          return new IntLiteralExprAST<>(a - b, ast.data());
+        }
+        case MUL -> {
+          return new IntLiteralExprAST<>(a * b, ast.data());
+        }
+        case DIV -> {
+          if (b != 0) return new IntLiteralExprAST<>(a / b, ast.data());
+        }
+        default -> {
+          return new BoolLiteralExprAST<>(test(ast.op(), Integer.compare(a, b)), ast.data());
+        }
+      }
+    } else if (left instanceof StringLiteralExprAST<Type> l && right instanceof StringLiteralExprAST<Type> r) {
+      return new BoolLiteralExprAST<>(test(ast.op(), l.value().compareTo(r.value())), ast.data());
+    } else if (left instanceof BoolLiteralExprAST<Type> l && right instanceof BoolLiteralExprAST<Type> r) {
+      if (ast.op() == BinaryOp.EQ) return new BoolLiteralExprAST<>(l.value() == r.value(), ast.data());
+      if (ast.op() == BinaryOp.NEQ) return new BoolLiteralExprAST<>(l.value() != r.value(), ast.data());
+    }
+    return left == ast.left() && right == ast.right() ? ast : new BinaryExprAST<>(ast.op(), left, right, ast.data());
+  }
+  
+  private ExprAST<Type> foldLogic(BinaryExprAST<Type> ast) {
+    // `and` short-circuits on false and `or` on true
+    var shortCircuit = ast.op() == BinaryOp.OR;
+    var left = fold(ast.left());
+    if (left instanceof BoolLiteralExprAST<Type> literal) {
+      return literal.value() == shortCircuit ? new BoolLiteralExprAST<>(shortCircuit, ast.data()) : fold(ast.right());
+    }
+    var right = fold(ast.right());
+    if (right instanceof BoolLiteralExprAST<Type> literal) {
+      if (literal.value() != shortCircuit) return left;
+      if (isPure(left)) return new BoolLiteralExprAST<>(shortCircuit, ast.data());
+    }
+    return left == ast.left() && right == ast.right() ? ast : new BinaryExprAST<>(ast.op(), left, right, ast.data());
+  }
+  
+  private static boolean test(BinaryOp op, int comparison) {
+    return switch (op) {
+      case EQ -> comparison == 0;
+      case NEQ -> comparison != 0;
+      case LT, NGE -> comparison < 0;
+      case NLT, GE -> comparison >= 0;
+      case LE, NGT -> comparison <= 0;
+      case NLE, GT -> comparison > 0;
+      default -> throw new IllegalStateException("Invalid comparison operator");
+    };
+  }
+  
+  @Override
+  public BlockExprAST<Type> visitBlockExpr(BlockExprAST<Type> ast) {
+    scopes.push(new HashSet<>());
+    var stats = new ArrayList<StatAST<Type>>(ast.stats().size());
+    var changed = false;
+    for (var i = 0; i < ast.stats().size(); i++) {
+      var stat = ast.stats().get(i).accept(this);
+      changed |= stat != ast.stats().get(i);
+      // the last statement is the block's value, so it's always kept
+      if (i < ast.stats().size() - 1 && (stat instanceof NopStatAST<Type> || stat instanceof ExprAST<Type> expr && isPure(expr))) {
+        changed = true;
+        continue;
+      }
+      stats.add(stat);
+    }
+    scopes.pop();
+    return changed ? new BlockExprAST<>(ast.label(), stats, ast.data()) : ast;
+  }
+  
+  @Override
+  public ExprAST<Type> visitVarExprAST(VarExprAST<Type> ast) {
+    return ast;
+  }
+  
+  @Override
+  public ExprAST<Type> visitFuncCall(FuncCallExprAST<Type> ast) {
+    var args = new ArrayList<ExprAST<Type>>(ast.args().size());
+    var changed = false;
+    for (var arg : ast.args()) {
+      var folded = fold(arg);
+      changed |= folded != arg;
+      args.add(folded);
+    }
+    return changed ? new FuncCallExprAST<>(ast.funcName(), args, ast.data()) : ast;
+  }
+  
+  @Override
+  public ExprAST<Type> visitIndexExpr(IndexExprAST<Type> ast) {
+    var indexee = fold(ast.indexee());
+    var index = fold(ast.index());
+    return indexee == ast.indexee() && index == ast.index() ? ast : new IndexExprAST<>(indexee, index, ast.data());
+  }
+  
+  @Override
+  public ExprAST<Type> visitSliceExpr(SliceExprAST<Type> ast) {
+    var slicee = fold(ast.slicee());
+    var from = ast.from() != null ? fold(ast.from()) : null;
+    var to = ast.to() != null ? fold(ast.to()) : null;
+    return slicee == ast.slicee() && from == ast.from() && to == ast.to() ? ast : new SliceExprAST<>(slicee, from, to, ast.data());
+  }
+  
+  @Override
+  public ExprAST<Type> visitItExpr(ItExprAST<Type> ast) {
+    return ast;
+  }
+  
+  @Override
+  public ExprAST<Type> visitIfExpr(IfExprAST<Type> ast) {
+    var condition = fold(ast.condition());
+    if (condition instanceof BoolLiteralExprAST<Type> literal) {
+      var body = literal.value() ? ast.thenBody() : ast.elseBody();
+      if (body == null) return new UnitLiteralExprAST<>(ast.data());
+      // an if without an else is unit whatever its body is, so the body only stands in for it when the types agree
+      if (body.data().unconditioned() == ast.data().unconditioned()) return fold(body);
+    }
+    var thenBody = fold(ast.thenBody());
+    var elseBody = ast.elseBody() != null ? fold(ast.elseBody()) : null;
+    return condition == ast.condition() && thenBody == ast.thenBody() && elseBody == ast.elseBody() ? ast : new IfExprAST<>(condition, thenBody, elseBody, ast.data());
+  }
+  
+  @Override
+  public ExprAST<Type> visitLoopExpr(LoopExprAST<Type> ast) {
+    var body = fold(ast.body());
+    return body == ast.body() ? ast : new LoopExprAST<>(ast.label(), body, ast.data());
+  }
+  
+  @Override
+  public ExprAST<Type> visitWhileExpr(WhileExprAST<Type> ast) {
+    var condition = fold(ast.condition());
+    if (condition instanceof BoolLiteralExprAST<Type> literal && !literal.value()) return new UnitLiteralExprAST<>(ast.data());
+    var body = fold(ast.body());
+    return condition == ast.condition() && body == ast.body() ? ast : new WhileExprAST<>(ast.label(), condition, body, ast.data());
+  }
+  
+  @Override
+  public ExprAST<Type> visitJumpExpr(JumpExprAST<Type> ast) {
+    if (ast.value() == null) return ast;
+    var value = fold(ast.value());
+    return value == ast.value() ? ast : new JumpExprAST<>(ast.kind(), ast.targetLabel(), value, ast.data());
+  }
+  
+  @Override
+  public ExprAST<Type> visitArrayLiteralExpr(ArrayLiteralExprAST<Type> ast) {
+    var items = new ArrayList<ArrayLiteralExprAST.Item<Type>>(ast.items().size());
+    var changed = false;
+    for (var item : ast.items()) {
+      var folded = fold(item.item());
+      changed |= folded != item.item();
+      items.add(new ArrayLiteralExprAST.Item<>(folded, item.spread()));
+    }
+    return changed ? new ArrayLiteralExprAST<>(items, ast.data()) : ast;
+  }
+  
+  @Override
+  public ExprAST<Type> visitStringLiteralExpr(StringLiteralExprAST<Type> ast) {
+    return ast;
+  }
+  
+  @Override
+  public ExprAST<Type> visitIntLiteralExpr(IntLiteralExprAST<Type> ast) {
+    return ast;
+  }
+  
+  @Override
+  public ExprAST<Type> visitBoolLiteralExpr(BoolLiteralExprAST<Type> ast) {
+    return ast;
+  }
+  
+  @Override
+  public ExprAST<Type> visitUnitLiteralExpr(UnitLiteralExprAST<Type> ast) {
+    return ast;
+  }
+  
+  // Whether evaluating the expression can neither have an effect, throw nor jump
+  private boolean isPure(ExprAST<Type> ast) {
+    if (ast instanceof IntLiteralExprAST<Type> || ast instanceof BoolLiteralExprAST<Type> || ast instanceof StringLiteralExprAST<Type> || ast instanceof UnitLiteralExprAST<Type>) return true;
+    if (ast instanceof VarExprAST<Type> var) {
+      for (var scope : scopes) if (scope.contains(var.name())) return true;
+      return false;
+    }
+    if (ast instanceof UnaryExprAST<Type> unary) return isPure(unary.operand());
+    if (ast instanceof BinaryExprAST<Type> binary) {
+      return switch (binary.op()) {
+        case ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN -> false;
+        case DIV -> binary.right() instanceof IntLiteralExprAST<Type> divisor && divisor.value() != 0 && isPure(binary.left());
+        default -> isPure(binary.left()) && isPure(binary.right());
+      };
+    }
+    if (ast instanceof ArrayLiteralExprAST<Type> array) {
+      for (var item : array.items()) if (!isPure(item.item())) return false;
+      return true;
+    }
+    if (ast instanceof IfExprAST<Type> ifExpr) return isPure(ifExpr.condition()) && isPure(ifExpr.thenBody()) && (ifExpr.elseBody() == null || isPure(ifExpr.elseBody()));
+    return false;
+  }
+  
+}
@@ -0,0 +1,207 @@
+package io.github.pint_lang.opt;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+
+// Finds the functions whose result depends only on their arguments: they call no natives (which all do I/O or exit),
+// assign no globals, read no global that anything assigns, and only call other such functions
+public class PurityAnalysis implements StatASTVisitor<Type, Void> {
+  
+  private static final class Facts {
+    
+    final HashSet<String> callees = new HashSet<>();
+    final HashSet<String> globalReads = new HashSet<>();
+    boolean impure = false;
+    
+  }
+  
+  private final HashMap<String, FuncDefAST<Type>> functions = new HashMap<>();
+  private final HashMap<String, Facts> facts = new HashMap<>();
+  private final HashSet<String> assignedGlobals = new HashSet<>();
+  private final ArrayDeque<HashSet<String>> scopes = new ArrayDeque<>();
+  private Facts current;
+  
+  public PurityAnalysis(DefsAST<Type> ast) {
+    for (var def : ast.defs()) {
+      if (def instanceof FuncDefAST<Type> funcDef) functions.putIfAbsent(funcDef.name(), funcDef);
+    }
+    for (var def : ast.defs()) {
+      current = new Facts();
+      if (def instanceof FuncDefAST<Type> funcDef) {
+        var params = new HashSet<String>();
+        for (var param : funcDef.params()) params.add(param.name());
+        scopes.push(params);
+        visitBlockExpr(funcDef.body());
+        scopes.pop();
+        facts.putIfAbsent(funcDef.name(), current);
+      } else if (def instanceof VarDefAST<Type> varDef) {
+        varDef.value().accept(this);
+      }
+    }
+    current = null;
+    for (var fact : facts.values()) {
+      if (fact.globalReads.stream().anyMatch(assignedGlobals::contains)) fact.impure = true;
+    }
+    // start from everything being pure so recursive functions can be too, and only ever take it away
+    var changed = true;
+    while (changed) {
+      changed = false;
+      for (var fact : facts.values()) {
+        if (!fact.impure && fact.callees.stream().anyMatch(callee -> !isPure(callee))) {
+          fact.impure = true;
+          changed = true;
+        }
+      }
+    }
+  }
+  
+  public boolean isFunction(String name) {
+    return functions.containsKey(name);
+  }
+  
+  public boolean isPure(String name) {
+    var fact = facts.get(name);
+    return fact != null && !fact.impure;
+  }
+  
+  private boolean isLocal(String name) {
+    for (var scope : scopes) {
+      if (scope.contains(name)) return true;
+    }
+    return false;
+  }
+  
+  @Override
+  public Void visitVarDef(VarDefAST<Type> ast) {
+    ast.value().accept(this);
+    if (!scopes.isEmpty()) scopes.peek().add(ast.name());
+    return null;
+  }
+  
+  @Override
+  public Void visitNopStat(NopStatAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitUnaryExpr(UnaryExprAST<Type> ast) {
+    ast.operand().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitBinaryExpr(BinaryExprAST<Type> ast) {
+    switch (ast.op()) {
+      case ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN -> {
+        if (ast.left() instanceof VarExprAST<Type> var && !isLocal(var.name())) {
+          assignedGlobals.add(var.name());
+          current.impure = true;
+        }
+      }
+      default -> {}
+    }
+    ast.left().accept(this);
+    ast.right().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitBlockExpr(BlockExprAST<Type> ast) {
+    scopes.push(new HashSet<>());
+    for (var stat : ast.stats()) stat.accept(this);
+    scopes.pop();
+    return null;
+  }
+  
+  @Override
+  public Void visitVarExprAST(VarExprAST<Type> ast) {
+    if (!isLocal(ast.name())) current.globalReads.add(ast.name());
+    return null;
+  }
+  
+  @Override
+  public Void visitFuncCall(FuncCallExprAST<Type> ast) {
+    if (functions.containsKey(ast.funcName())) current.callees.add(ast.funcName());
+    else current.impure = true;
+    for (var arg : ast.args()) arg.accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitIndexExpr(IndexExprAST<Type> ast) {
+    ast.indexee().accept(this);
+    ast.index().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitSliceExpr(SliceExprAST<Type> ast) {
+    ast.slicee().accept(this);
+    if (ast.from() != null) ast.from().accept(this);
+    if (ast.to() != null) ast.to().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitItExpr(ItExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitIfExpr(IfExprAST<Type> ast) {
+    ast.condition().accept(this);
+    ast.thenBody().accept(this);
+    if (ast.elseBody() != null) ast.elseBody().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitLoopExpr(LoopExprAST<Type> ast) {
+    ast.body().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitWhileExpr(WhileExprAST<Type> ast) {
+    ast.condition().accept(this);
+    ast.body().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitJumpExpr(JumpExprAST<Type> ast) {
+    if (ast.value() != null) ast.value().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitArrayLiteralExpr(ArrayLiteralExprAST<Type> ast) {
+    for (var item : ast.items()) item.item().accept(this);
+    return null;
+  }
+  
+  @Override
+  public Void visitStringLiteralExpr(StringLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitIntLiteralExpr(IntLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitBoolLiteralExpr(BoolLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitUnitLiteralExpr(UnitLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+}
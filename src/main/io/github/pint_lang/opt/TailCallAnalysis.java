@@ -0,0 +1,191 @@
+package io.github.pint_lang.opt;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+// Finds the calls whose value is returned as-is from the enclosing function, so engines can reuse the caller's frame for them
+// A call is in tail position if it is the last statement of the function body, a branch of an if in tail position,
+// the value of a return, or the value of a break out of a block or loop that is itself in tail position
+public class TailCallAnalysis implements DefASTVisitor<Type, Void>, StatASTVisitor<Type, Void> {
+  
+  private record Target(String label, boolean loop, boolean tail) {}
+  
+  private final Set<FuncCallExprAST<Type>> tailCalls = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final ArrayDeque<Target> targets = new ArrayDeque<>();
+  private boolean inFunction = false;
+  private boolean tail = false;
+  
+  public TailCallAnalysis(DefsAST<Type> ast) {
+    for (var def : ast.defs()) visitDef(def);
+  }
+  
+  public boolean isTailCall(FuncCallExprAST<Type> ast) {
+    return tailCalls.contains(ast);
+  }
+  
+  private void visit(ExprAST<Type> ast, boolean tail) {
+    var outer = this.tail;
+    this.tail = tail;
+    ast.accept(this);
+    this.tail = outer;
+  }
+  
+  private Target findTarget(String label) {
+    for (var target : targets) {
+      if (label == null ? target.loop() : label.equals(target.label())) return target;
+    }
+    return null;
+  }
+  
+  @Override
+  public Void visitFuncDef(FuncDefAST<Type> ast) {
+    inFunction = true;
+    visit(ast.body(), true);
+    inFunction = false;
+    return null;
+  }
+  
+  @Override
+  public Void visitVarDef(VarDefAST<Type> ast) {
+    visit(ast.value(), false);
+    return null;
+  }
+  
+  @Override
+  public Void visitNopStat(NopStatAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitUnaryExpr(UnaryExprAST<Type> ast) {
+    visit(ast.operand(), false);
+    return null;
+  }
+  
+  @Override
+  public Void visitBinaryExpr(BinaryExprAST<Type> ast) {
+    visit(ast.left(), false);
+    visit(ast.right(), false);
+    return null;
+  }
+  
+  @Override
+  public Void visitBlockExpr(BlockExprAST<Type> ast) {
+    var tail = this.tail;
+    if (ast.label() != null) targets.push(new Target(ast.label(), false, tail));
+    var stats = ast.stats();
+    for (var i = 0; i < stats.size(); i++) {
+      var stat = stats.get(i);
+      if (stat instanceof ExprAST<Type> expr) visit(expr, tail && i == stats.size() - 1);
+      else stat.accept(this);
+    }
+    if (ast.label() != null) targets.pop();
+    return null;
+  }
+  
+  @Override
+  public Void visitVarExprAST(VarExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitFuncCall(FuncCallExprAST<Type> ast) {
+    if (tail && inFunction) tailCalls.add(ast);
+    for (var arg : ast.args()) visit(arg, false);
+    return null;
+  }
+  
+  @Override
+  public Void visitIndexExpr(IndexExprAST<Type> ast) {
+    visit(ast.indexee(), false);
+    visit(ast.index(), false);
+    return null;
+  }
+  
+  @Override
+  public Void visitSliceExpr(SliceExprAST<Type> ast) {
+    visit(ast.slicee(), false);
+    if (ast.from() != null) visit(ast.from(), false);
+    if (ast.to() != null) visit(ast.to(), false);
+    return null;
+  }
+  
+  @Override
+  public Void visitItExpr(ItExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitIfExpr(IfExprAST<Type> ast) {
+    visit(ast.condition(), false);
+    // without an else the if is unit rather than its body's value, so its body is never in tail position
+    visit(ast.thenBody(), tail && ast.elseBody() != null);
+    if (ast.elseBody() != null) visit(ast.elseBody(), tail);
+    return null;
+  }
+  
+  @Override
+  public Void visitLoopExpr(LoopExprAST<Type> ast) {
+    targets.push(new Target(ast.label(), true, tail));
+    visit(ast.body(), false);
+    targets.pop();
+    return null;
+  }
+  
+  @Override
+  public Void visitWhileExpr(WhileExprAST<Type> ast) {
+    // a while always evaluates to unit, so nothing in it can be in tail position
+    targets.push(new Target(ast.label(), true, false));
+    visit(ast.condition(), false);
+    visit(ast.body(), false);
+    targets.pop();
+    return null;
+  }
+  
+  @Override
+  public Void visitJumpExpr(JumpExprAST<Type> ast) {
+    if (ast.value() == null) return null;
+    var tail = switch (ast.kind()) {
+      case RETURN -> true;
+      case BREAK -> {
+        var target = findTarget(ast.targetLabel());
+        yield target != null && target.tail();
+      }
+      case CONTINUE -> false;
+    };
+    visit(ast.value(), tail);
+    return null;
+  }
+  
+  @Override
+  public Void visitArrayLiteralExpr(ArrayLiteralExprAST<Type> ast) {
+    for (var item : ast.items()) visit(item.item(), false);
+    return null;
+  }
+  
+  @Override
+  public Void visitStringLiteralExpr(StringLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitIntLiteralExpr(IntLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitBoolLiteralExpr(BoolLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+  @Override
+  public Void visitUnitLiteralExpr(UnitLiteralExprAST<Type> ast) {
+    return null;
+  }
+  
+}
@@ -0,0 +1,131 @@
+package io.github.pint_lang.parse;
+
+import io.github.pint_lang.ast.DefAST;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+// Parses definitions one at a time as their source is read, so only the text and tokens of the current one are held
+// A definition runs up to the next 'let' outside any brackets, since a 'let' anywhere else has to be in a block; each is
+// parsed by Parser, and a definition it would reject as part of the whole source is rejected here too
+// Block comments nest and take the longest match, so the text after one is read only until no way of reading the comment
+// can still be open, and scanning then picks up again where the longest one ends
+public final class DefReader implements Closeable {
+  
+  private final Reader in;
+  private final char[] buffer = new char[8192];
+  // the text of the current definition, and whatever has been read past it
+  private final StringBuilder text = new StringBuilder();
+  // how much of text has been scanned for the end of the current definition
+  private int scanned = 0;
+  private final ArrayDeque<DefAST<Void>> parsed = new ArrayDeque<>();
+  private boolean started = false;
+  private boolean done = false;
+  
+  public DefReader(Reader in) {
+    this.in = in;
+  }
+  
+  // The next definition, or null once there are none left
+  public DefAST<Void> next() throws IOException {
+    while (parsed.isEmpty() && !done) read();
+    return parsed.poll();
+  }
+  
+  // Reads up to the end of the definition being read, and parses it
+  private void read() throws IOException {
+    var depth = 0;
+    int c;
+    while ((c = charAt(scanned)) >= 0) {
+      if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c == '_') {
+        var start = scanned;
+        while ((c = charAt(scanned)) >= 0 && (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_')) scanned++;
+        if (depth != 0 || scanned - start != 3 || !text.substring(start, scanned).equals("let")) continue;
+        if (!started) {
+          started = true;
+          continue;
+        }
+        parse(text.substring(0, start));
+        text.delete(0, start);
+        scanned -= start;
+        return;
+      }
+      scanned++;
+      switch (c) {
+        case '(', '[', '{' -> depth++;
+        case ')', ']', '}' -> depth--;
+        case '"' -> {
+          while ((c = charAt(scanned)) >= 0 && c != '"') scanned++;
+          if (c >= 0) scanned++;
+        }
+        case '/' -> {
+          if (charAt(scanned) == '/') {
+            while ((c = charAt(scanned)) >= 0 && c != '\r' && c != '\n') scanned++;
+          } else if (charAt(scanned) == '*') {
+            var end = commentEnd(scanned - 1);
+            // an unterminated comment makes the rest of the source one definition, which Parser then rejects
+            if (end >= 0) scanned = end;
+            else while (charAt(scanned) >= 0) scanned++;
+          }
+        }
+        default -> {}
+      }
+    }
+    parse(text.toString());
+    text.setLength(0);
+    scanned = 0;
+    done = true;
+  }
+  
+  // Where the longest comment starting at start ends, or -1 if it never does; like the grammar, the body may nest comments
+  // but may also hold a lone '/' or "*x", so the set of depths the comment could be open at is followed through the text,
+  // and reading stops as soon as that set is empty
+  private int commentEnd(int start) throws IOException {
+    var end = -1;
+    // the depths open before the character at i, and before the one after it, since "*x" is read in one step
+    var here = new BitSet();
+    var after = new BitSet();
+    here.set(1);
+    for (var i = start + 2; !here.isEmpty() || !after.isEmpty(); i++) {
+      var c = charAt(i);
+      if (c < 0) break;
+      var next = charAt(i + 1);
+      var afterNext = new BitSet();
+      if (c != '*') after.or(here);
+      else if (next >= 0 && next != '/') afterNext.or(here);
+      else if (next >= 0) {
+        if (here.get(1)) end = i + 2;
+        for (var open = here.nextSetBit(2); open >= 0; open = here.nextSetBit(open + 1)) afterNext.set(open - 1);
+      }
+      if (c == '/' && next == '*') {
+        for (var open = here.nextSetBit(1); open >= 0; open = here.nextSetBit(open + 1)) afterNext.set(open + 1);
+      }
+      here = after;
+      after = afterNext;
+    }
+    return end;
+  }
+  
+  private void parse(String source) {
+    parsed.addAll(Parser.parse(source).defs());
+  }
+  
+  // The character at index in text, reading more of the source as needed, or -1 past its end
+  private int charAt(int index) throws IOException {
+    while (index >= text.length()) {
+      var read = in.read(buffer);
+      if (read < 0) return -1;
+      text.append(buffer, 0, read);
+    }
+    return text.charAt(index);
+  }
+  
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+  
+}
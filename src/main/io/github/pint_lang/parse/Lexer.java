@@ -0,0 +1,190 @@
+package io.github.pint_lang.parse;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import static io.github.pint_lang.parse.TokenKind.*;
+
+// Splits source text into the tokens the ANTLR lexer generated from Pint.g4 would produce, all up front and into flat arrays
+// Anything that lexer would report an error for throws instead
+final class Lexer {
+  
+  private static final HashMap<String, TokenKind> KEYWORDS = new HashMap<>();
+  
+  static {
+    for (var kind : TokenKind.values()) {
+      if (kind.keyword) KEYWORDS.put(kind.text, kind);
+    }
+  }
+  
+  private final String source;
+  private TokenKind[] kinds = new TokenKind[64];
+  private int[] starts = new int[64];
+  private String[] texts = new String[64];
+  private int count = 0;
+  private HashMap<Integer, BitSet> commentEnds = null;
+  
+  Lexer(String source) {
+    this.source = source;
+    var length = source.length();
+    var i = 0;
+    while (i < length) {
+      var c = source.charAt(i);
+      var next = i + 1 < length ? source.charAt(i + 1) : '\0';
+      if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+        i++;
+      } else if (c == '/' && next == '/') {
+        i += 2;
+        while (i < length && source.charAt(i) != '\r' && source.charAt(i) != '\n') i++;
+      } else if (c == '/' && next == '*') {
+        var ends = commentEnds(i);
+        // without an end ANTLR would lex a lone '/' and '*', which no program can contain back to back
+        if (ends.isEmpty()) throw error(i, "unterminated comment");
+        i += ends.length() - 1;
+      } else if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c == '_') {
+        var start = i++;
+        while (i < length && isIdPart(source.charAt(i))) i++;
+        var text = source.substring(start, i);
+        var keyword = KEYWORDS.get(text);
+        if (keyword != null) add(keyword, start, null);
+        else add(ID, start, text);
+      } else if (c >= '0' && c <= '9') {
+        var start = i++;
+        while (i < length && source.charAt(i) >= '0' && source.charAt(i) <= '9') i++;
+        add(INT_LITERAL, start, source.substring(start, i));
+      } else if (c == '"') {
+        var end = source.indexOf('"', i + 1);
+        if (end < 0) throw error(i, "unterminated string literal");
+        add(STRING_LITERAL, i, source.substring(i + 1, end));
+        i = end + 1;
+      } else {
+        var kind = punctuation(i, c, next);
+        add(kind, i, null);
+        i += kind.text.length();
+      }
+    }
+    add(EOF, length, null);
+  }
+  
+  private static boolean isIdPart(char c) {
+    return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_';
+  }
+  
+  private TokenKind punctuation(int i, char c, char next) {
+    return switch (c) {
+      case '(' -> LPAREN;
+      case ')' -> RPAREN;
+      case '[' -> LBRACK;
+      case ']' -> RBRACK;
+      case '{' -> LBRACE;
+      case '}' -> RBRACE;
+      case ',' -> COMMA;
+      case ';' -> SEMI;
+      case '@' -> AT;
+      case '|' -> BAR;
+      case '+' -> PLUS;
+      case '-' -> next == '>' ? ARROW : MINUS;
+      case '*' -> STAR;
+      case '/' -> SLASH;
+      case '=' -> EQ;
+      case '<' -> next == '=' ? LE : LT;
+      case '>' -> next == '=' ? GE : GT;
+      case '.' -> {
+        if (source.startsWith("...", i)) yield ELLIPSIS;
+        throw error(i, "unexpected '.'");
+      }
+      case ':' -> {
+        if (next == '=') yield ASSIGN;
+        if (i + 2 >= source.length() || source.charAt(i + 2) != '=') yield COLON;
+        yield switch (next) {
+          case '+' -> ADD_ASSIGN;
+          case '-' -> SUB_ASSIGN;
+          case '*' -> MUL_ASSIGN;
+          case '/' -> DIV_ASSIGN;
+          default -> COLON;
+        };
+      }
+      default -> throw error(i, "unexpected character '" + c + "'");
+    };
+  }
+  
+  // The offsets from start at which a comment starting there can end; the grammar lets comments nest but also lets a lone
+  // '/' or "*x" make up part of one, so every way of reading the body is followed and the longest wins, as in ANTLR
+  private BitSet commentEnds(int start) {
+    if (commentEnds == null) commentEnds = new HashMap<>();
+    var cached = commentEnds.get(start);
+    if (cached != null) return cached;
+    var length = source.length();
+    var reached = new BitSet();
+    var ends = new BitSet();
+    reached.set(2);
+    for (var offset = reached.nextSetBit(0); offset >= 0 && start + offset < length; offset = reached.nextSetBit(offset + 1)) {
+      var i = start + offset;
+      var c = source.charAt(i);
+      var hasNext = i + 1 < length;
+      var next = hasNext ? source.charAt(i + 1) : '\0';
+      if (c != '*') reached.set(offset + 1);
+      else if (hasNext && next != '/') reached.set(offset + 2);
+      else if (hasNext) ends.set(offset + 2);
+      if (c == '/' && next == '*') {
+        var nested = commentEnds(i);
+        for (var end = nested.nextSetBit(0); end >= 0; end = nested.nextSetBit(end + 1)) reached.set(offset + end);
+      }
+    }
+    commentEnds.put(start, ends);
+    return ends;
+  }
+  
+  private void add(TokenKind kind, int start, String text) {
+    if (count == kinds.length) {
+      kinds = Arrays.copyOf(kinds, count * 2);
+      starts = Arrays.copyOf(starts, count * 2);
+      texts = Arrays.copyOf(texts, count * 2);
+    }
+    kinds[count] = kind;
+    starts[count] = start;
+    texts[count] = text;
+    count++;
+  }
+  
+  TokenKind kind(int token) {
+    return token < count ? kinds[token] : EOF;
+  }
+  
+  int start(int token) {
+    return token < count ? starts[token] : starts[count - 1];
+  }
+  
+  // The name of an identifier, the digits of an int literal, or the contents of a string literal without its quotes
+  String text(int token) {
+    return texts[token];
+  }
+  
+  String describe(int token) {
+    var kind = kind(token);
+    return switch (kind) {
+      case ID, INT_LITERAL -> "'" + texts[token] + "'";
+      case STRING_LITERAL -> "'\"" + texts[token] + "\"'";
+      case EOF -> "<EOF>";
+      default -> "'" + kind.text + "'";
+    };
+  }
+  
+  SyntaxException errorAt(int token, String message) {
+    return error(starts[Math.min(token, count - 1)], message);
+  }
+  
+  private SyntaxException error(int offset, String message) {
+    var line = 1;
+    var lineStart = 0;
+    for (var i = 0; i < offset; i++) {
+      if (source.charAt(i) == '\n') {
+        line++;
+        lineStart = i + 1;
+      }
+    }
+    return new SyntaxException("line " + line + ":" + (offset - lineStart) + " " + message);
+  }
+  
+}
@@ -0,0 +1,110 @@
+package io.github.pint_lang.parse;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A CharStream reading an ASCII file straight out of memory, mapped rather than decoded into an int per character as
+// CharStreams.fromPath does; token text is only copied out when something asks for it
+// What this saves is heap: a file maps faster than fromPath decodes it, but PintLexer reads the mapped bytes more slowly
+// than fromPath's array, so lexing a whole file takes longer overall
+public final class MappedCharStream implements CharStream {
+  
+  private final MappedByteBuffer bytes;
+  private final int size;
+  private final String name;
+  private int index = 0;
+  
+  private MappedCharStream(MappedByteBuffer bytes, String name) {
+    this.bytes = bytes;
+    this.size = bytes.limit();
+    this.name = name;
+  }
+  
+  // Any file that isn't pure ASCII is decoded by CharStreams.fromPath instead, since only then is a byte a character
+  public static CharStream fromPath(Path path) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) return CharStreams.fromPath(path);
+      var bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (!isAscii(bytes)) return CharStreams.fromPath(path);
+      return new MappedCharStream(bytes, path.toString());
+    }
+  }
+  
+  private static boolean isAscii(MappedByteBuffer bytes) {
+    var length = bytes.limit();
+    var i = 0;
+    for (; i + 8 <= length; i += 8) {
+      if ((bytes.getLong(i) & 0x8080808080808080L) != 0) return false;
+    }
+    for (; i < length; i++) {
+      if (bytes.get(i) < 0) return false;
+    }
+    return true;
+  }
+  
+  @Override
+  public void consume() {
+    if (index >= size) throw new IllegalStateException("cannot consume EOF");
+    index++;
+  }
+  
+  @Override
+  public int LA(int i) {
+    if (i == 0) return 0;
+    var at = i > 0 ? index + i - 1 : index + i;
+    return at < 0 || at >= size ? IntStream.EOF : bytes.get(at);
+  }
+  
+  @Override
+  public int mark() {
+    return -1;
+  }
+  
+  @Override
+  public void release(int marker) {}
+  
+  @Override
+  public int index() {
+    return index;
+  }
+  
+  @Override
+  public void seek(int index) {
+    this.index = index;
+  }
+  
+  @Override
+  public int size() {
+    return size;
+  }
+  
+  @Override
+  public String getSourceName() {
+    return name;
+  }
+  
+  @Override
+  public String getText(Interval interval) {
+    var start = Math.max(interval.a, 0);
+    var stop = Math.min(interval.b, size - 1);
+    if (start > stop) return "";
+    var text = new byte[stop - start + 1];
+    bytes.get(start, text);
+    return new String(text, StandardCharsets.ISO_8859_1);
+  }
+  
+  @Override
+  public String toString() {
+    return getText(Interval.of(0, size - 1));
+  }
+  
+}
@@ -0,0 +1,406 @@
+package io.github.pint_lang.parse;
+
+import io.github.pint_lang.ast.*;
+
+import java.util.ArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static io.github.pint_lang.parse.TokenKind.*;
+
+// Builds the same DefsAST as parsing with ANTLR and running ASTConversionVisitor, without a parse tree in between
+// Binary operators are parsed by precedence climbing with the levels ANTLR gives the alternatives of expr in Pint.g4,
+// every optional part is taken whenever it can start, as ANTLR does, and the first syntax error throws
+public class Parser {
+  
+  private static final int UNARY_PRECEDENCE = 7;
+  
+  private final Lexer tokens;
+  private int token = 0;
+  private int limit = Integer.MAX_VALUE;
+  private final ArrayList<Integer> defStarts = new ArrayList<>();
+  
+  public Parser(String source) {
+    this.tokens = new Lexer(source);
+  }
+  
+  public static DefsAST<Void> parse(String source) {
+    return new Parser(source).parseFile();
+  }
+  
+  public DefsAST<Void> parseFile() {
+    var defs = new ArrayList<DefAST<Void>>();
+    while (peek() != EOF) {
+      defStarts.add(tokens.start(token));
+      defs.add(parseDef());
+    }
+    return new DefsAST<>(defs, null);
+  }
+  
+  // The offset in the source of the 'let' that begins the index-th definition parseFile returned
+  public int defStart(int index) {
+    return defStarts.get(index);
+  }
+  
+  private TokenKind peek() {
+    return token < limit ? tokens.kind(token) : EOF;
+  }
+  
+  private TokenKind peek(int ahead) {
+    return token + ahead < limit ? tokens.kind(token + ahead) : EOF;
+  }
+  
+  private boolean accept(TokenKind kind) {
+    if (peek() != kind) return false;
+    token++;
+    return true;
+  }
+  
+  private void expect(TokenKind kind) {
+    if (!accept(kind)) throw unexpected("expecting '" + kind.text + "'");
+  }
+  
+  private String expectId() {
+    if (peek() != ID) throw unexpected("expecting an identifier");
+    return tokens.text(token++);
+  }
+  
+  private SyntaxException unexpected(String expecting) {
+    return tokens.errorAt(token, "unexpected " + tokens.describe(token) + " " + expecting);
+  }
+  
+  private DefAST<Void> parseDef() {
+    expect(LET);
+    var name = expectId();
+    if (peek() == LPAREN) return parseFuncDef(name);
+    if (peek() == COLON) return parseVarDef(name);
+    throw unexpected("expecting '(' or ':'");
+  }
+  
+  private FuncDefAST<Void> parseFuncDef(String name) {
+    expect(LPAREN);
+    var params = new ArrayList<FuncDefAST.Param<Void>>();
+    while (peek() == ID) {
+      var paramName = tokens.text(token++);
+      expect(COLON);
+      params.add(new FuncDefAST.Param<>(paramName, parseType()));
+      if (!accept(COMMA)) break;
+    }
+    expect(RPAREN);
+    expect(ARROW);
+    return parseBefore(LBRACE, this::parseType, returnType -> new FuncDefAST<>(name, params, returnType, parseBlock(null), null));
+  }
+  
+  // Starts after the name, since both callers have to read past it to know they have a variable definition
+  private VarDefAST<Void> parseVarDef(String name) {
+    expect(COLON);
+    return parseBefore(ASSIGN, this::parseType, type -> {
+      expect(ASSIGN);
+      var value = parseExpr(0);
+      expect(SEMI);
+      return new VarDefAST<>(name, type, value, null);
+    });
+  }
+  
+  // Parses head and then rest, which has to start with separator. A condition type or loop condition can swallow the
+  // separator that should follow it (as the value of a jump, or an assignment in a condition type), whereas ANTLR
+  // gives the head everything it can while still leaving a separator for the rest to start at. So if the greedy parse
+  // doesn't stop at one, the head is cut off before each later separator in turn, starting from the last
+  private <H, R> R parseBefore(TokenKind separator, Supplier<H> head, Function<H, R> rest) {
+    var start = token;
+    var greedyEnd = -1;
+    try {
+      var parsed = head.get();
+      if (peek() == separator) return rest.apply(parsed);
+      greedyEnd = token;
+    } catch (SyntaxException e) {
+      // retried below
+    }
+    var outerLimit = limit;
+    var separators = new ArrayList<Integer>();
+    var depth = 0;
+    for (var i = start; i < outerLimit && depth >= 0; i++) {
+      var kind = tokens.kind(i);
+      if (kind == EOF || depth == 0 && (kind == SEMI || kind == LET) && kind != separator) break;
+      if (depth == 0 && kind == separator && i != greedyEnd) separators.add(i);
+      switch (kind) {
+        case LPAREN, LBRACK, LBRACE -> depth++;
+        case RPAREN, RBRACK, RBRACE -> depth--;
+        default -> {}
+      }
+    }
+    SyntaxException error = null;
+    for (var i = separators.size() - 1; i >= 0; i--) {
+      token = start;
+      limit = separators.get(i);
+      try {
+        var parsed = head.get();
+        if (token != limit) continue;
+        limit = outerLimit;
+        return rest.apply(parsed);
+      } catch (SyntaxException e) {
+        error = e;
+      } finally {
+        limit = outerLimit;
+      }
+    }
+    token = start;
+    if (error != null) throw error;
+    head.get();
+    throw unexpected("expecting '" + separator.text + "'");
+  }
+  
+  private TypeAST<Void> parseType() {
+    TypeAST<Void> type = switch (peek()) {
+      case ID -> new SimpleTypeAST<>(tokens.text(token++), null);
+      case UNIT -> {
+        token++;
+        yield new UnitTypeAST<>(null);
+      }
+      default -> throw unexpected("expecting a type");
+    };
+    while (true) {
+      if (peek() == LBRACK && peek(1) == RBRACK) {
+        token += 2;
+        type = new ArrayTypeAST<>(type, null);
+      } else if (accept(WHEN)) {
+        type = new ConditionTypeAST<>(type, parseExpr(0), null);
+      } else {
+        return type;
+      }
+    }
+  }
+  
+  private ExprAST<Void> parseExpr(int precedence) {
+    var unary = switch (peek()) {
+      case PLUS -> UnaryOp.PLUS;
+      case MINUS -> UnaryOp.NEG;
+      case NOT -> UnaryOp.NOT;
+      default -> null;
+    };
+    ExprAST<Void> left;
+    if (unary != null) {
+      token++;
+      left = new UnaryExprAST<>(unary, parseExpr(UNARY_PRECEDENCE), null);
+    } else {
+      left = parseFactor();
+    }
+    while (true) {
+      var not = peek() == NOT;
+      var op = binaryOp(not ? peek(1) : peek(), not);
+      if (op == null || precedence(op) < precedence) return left;
+      token += not ? 2 : 1;
+      left = new BinaryExprAST<>(op, left, parseExpr(precedence(op) + 1), null);
+    }
+  }
+  
+  private static BinaryOp binaryOp(TokenKind kind, boolean not) {
+    return switch (kind) {
+      case STAR -> not ? null : BinaryOp.MUL;
+      case SLASH -> not ? null : BinaryOp.DIV;
+      case PLUS -> not ? null : BinaryOp.ADD;
+      case MINUS -> not ? null : BinaryOp.SUB;
+      case EQ -> not ? BinaryOp.NEQ : BinaryOp.EQ;
+      case LT -> not ? BinaryOp.NLT : BinaryOp.LT;
+      case GT -> not ? BinaryOp.NGT : BinaryOp.GT;
+      case LE -> not ? BinaryOp.NLE : BinaryOp.LE;
+      case GE -> not ? BinaryOp.NGE : BinaryOp.GE;
+      case AND -> not ? null : BinaryOp.AND;
+      case OR -> not ? null : BinaryOp.OR;
+      case ASSIGN -> not ? null : BinaryOp.ASSIGN;
+      case ADD_ASSIGN -> not ? null : BinaryOp.ADD_ASSIGN;
+      case SUB_ASSIGN -> not ? null : BinaryOp.SUB_ASSIGN;
+      case MUL_ASSIGN -> not ? null : BinaryOp.MUL_ASSIGN;
+      case DIV_ASSIGN -> not ? null : BinaryOp.DIV_ASSIGN;
+      default -> null;
+    };
+  }
+  
+  private static int precedence(BinaryOp op) {
+    return switch (op) {
+      case MUL, DIV -> 6;
+      case ADD, SUB -> 5;
+      case EQ, NEQ, LT, NLT, GT, NGT, LE, NLE, GE, NGE -> 4;
+      case AND -> 3;
+      case OR -> 2;
+      case ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN -> 1;
+    };
+  }
+  
+  private static boolean startsExpr(TokenKind kind) {
+    return switch (kind) {
+      case LPAREN, UNIT, LBRACK, PLUS, MINUS, NOT, BAR, IT, LBRACE, IF, LOOP, WHILE, RETURN, BREAK, CONTINUE, TRUE, FALSE, ID, INT_LITERAL, STRING_LITERAL -> true;
+      default -> false;
+    };
+  }
+  
+  private ExprAST<Void> parseFactor() {
+    var factor = parsePrimary();
+    // '[' ']' can only end an array type, so a condition type's expression stops before it
+    while (peek() == LBRACK && peek(1) != RBRACK) {
+      token++;
+      ExprAST<Void> from = null;
+      if (peek() != ELLIPSIS) {
+        from = parseExpr(0);
+        if (accept(RBRACK)) {
+          factor = new IndexExprAST<>(factor, from, null);
+          continue;
+        }
+      }
+      expect(ELLIPSIS);
+      var to = peek() != RBRACK ? parseExpr(0) : null;
+      expect(RBRACK);
+      factor = new SliceExprAST<>(factor, from, to, null);
+    }
+    return factor;
+  }
+  
+  private ExprAST<Void> parsePrimary() {
+    return switch (peek()) {
+      case LBRACE -> parseBlock(null);
+      case LPAREN -> {
+        token++;
+        var expr = parseExpr(0);
+        expect(RPAREN);
+        yield expr;
+      }
+      case BAR -> {
+        token++;
+        var expr = parseExpr(0);
+        expect(BAR);
+        yield new UnaryExprAST<>(UnaryOp.ABS, expr, null);
+      }
+      case ID -> {
+        if (peek(1) == LPAREN) yield parseFuncCall();
+        var name = tokens.text(token++);
+        if (!accept(COLON)) yield new VarExprAST<>(name, null);
+        yield switch (peek()) {
+          case LBRACE -> parseBlock(name);
+          case LOOP -> parseLoop(name);
+          case WHILE -> parseWhile(name);
+          default -> throw unexpected("expecting '{', 'loop' or 'while' after a label");
+        };
+      }
+      case IF -> parseIf();
+      case LOOP -> parseLoop(null);
+      case WHILE -> parseWhile(null);
+      case RETURN, BREAK, CONTINUE -> parseJump();
+      case LBRACK -> parseArrayLiteral();
+      case STRING_LITERAL -> new StringLiteralExprAST<>(tokens.text(token++), null);
+      case INT_LITERAL -> {
+        var literal = tokens.text(token);
+        try {
+          var value = Integer.parseInt(literal);
+          token++;
+          yield new IntLiteralExprAST<>(value, null);
+        } catch (NumberFormatException e) {
+          throw tokens.errorAt(token, "int literal " + literal + " is out of range");
+        }
+      }
+      case TRUE -> {
+        token++;
+        yield new BoolLiteralExprAST<>(true, null);
+      }
+      case FALSE -> {
+        token++;
+        yield new BoolLiteralExprAST<>(false, null);
+      }
+      case UNIT -> {
+        token++;
+        yield new UnitLiteralExprAST<>(null);
+      }
+      case IT -> {
+        token++;
+        yield new ItExprAST<>(null);
+      }
+      default -> throw unexpected("expecting an expression");
+    };
+  }
+  
+  private BlockExprAST<Void> parseBlock(String label) {
+    expect(LBRACE);
+    var stats = new ArrayList<StatAST<Void>>();
+    while (!accept(RBRACE)) {
+      if (accept(LET)) {
+        stats.add(parseVarDef(expectId()));
+      } else if (accept(SEMI)) {
+        stats.add(new NopStatAST<>(null));
+      } else {
+        stats.add(parseExpr(0));
+        if (!accept(SEMI)) {
+          expect(RBRACE);
+          break;
+        }
+      }
+    }
+    return new BlockExprAST<>(label, stats, null);
+  }
+  
+  private FuncCallExprAST<Void> parseFuncCall() {
+    var name = tokens.text(token);
+    token += 2;
+    var args = new ArrayList<ExprAST<Void>>();
+    while (peek() != RPAREN) {
+      args.add(parseExpr(0));
+      if (!accept(COMMA)) break;
+    }
+    expect(RPAREN);
+    return new FuncCallExprAST<>(name, args, null);
+  }
+  
+  private IfExprAST<Void> parseIf() {
+    expect(IF);
+    var condition = parseExpr(0);
+    expect(THEN);
+    var thenBody = parseExpr(0);
+    var elseBody = accept(ELSE) ? parseExpr(0) : null;
+    return new IfExprAST<>(condition, thenBody, elseBody, null);
+  }
+  
+  private LoopExprAST<Void> parseLoop(String label) {
+    expect(LOOP);
+    return new LoopExprAST<>(label, parseExpr(0), null);
+  }
+  
+  private WhileExprAST<Void> parseWhile(String label) {
+    expect(WHILE);
+    return parseBefore(LOOP, () -> parseExpr(0), condition -> {
+      expect(LOOP);
+      return new WhileExprAST<>(label, condition, parseExpr(0), null);
+    });
+  }
+  
+  private JumpExprAST<Void> parseJump() {
+    var kind = switch (peek()) {
+      case RETURN -> JumpKind.RETURN;
+      case BREAK -> JumpKind.BREAK;
+      default -> JumpKind.CONTINUE;
+    };
+    token++;
+    var label = accept(AT) ? expectId() : null;
+    ExprAST<Void> value = null;
+    if (startsExpr(peek())) {
+      // ANTLR only leaves the value out when none can be parsed here, as in "break not = x" or "return[i]"
+      var start = token;
+      try {
+        value = parseExpr(0);
+      } catch (SyntaxException e) {
+        token = start;
+      }
+    }
+    return new JumpExprAST<>(kind, label, value, null);
+  }
+  
+  private ArrayLiteralExprAST<Void> parseArrayLiteral() {
+    expect(LBRACK);
+    var items = new ArrayList<ArrayLiteralExprAST.Item<Void>>();
+    while (peek() != RBRACK) {
+      var spread = accept(ELLIPSIS);
+      items.add(new ArrayLiteralExprAST.Item<>(parseExpr(0), spread));
+      if (!accept(COMMA)) break;
+    }
+    expect(RBRACK);
+    return new ArrayLiteralExprAST<>(items, null);
+  }
+  
+}
@@ -0,0 +1,21 @@
+package io.github.pint_lang.parse;
+
+public class SyntaxException extends RuntimeException {
+  
+  public SyntaxException() {
+    super();
+  }
+  
+  public SyntaxException(String message) {
+    super(message);
+  }
+  
+  public SyntaxException(String message, Throwable cause) {
+    super(message, cause);
+  }
+  
+  public SyntaxException(Throwable cause) {
+    super(cause);
+  }
+  
+}
@@ -0,0 +1,68 @@
+package io.github.pint_lang.parse;
+
+enum TokenKind {
+  
+  ID("identifier"),
+  INT_LITERAL("int literal"),
+  STRING_LITERAL("string literal"),
+  EOF("end of file"),
+  
+  LET("let", true),
+  UNIT("unit", true),
+  WHEN("when", true),
+  NOT("not", true),
+  AND("and", true),
+  OR("or", true),
+  IT("it", true),
+  IF("if", true),
+  THEN("then", true),
+  ELSE("else", true),
+  LOOP("loop", true),
+  WHILE("while", true),
+  RETURN("return", true),
+  BREAK("break", true),
+  CONTINUE("continue", true),
+  TRUE("true", true),
+  FALSE("false", true),
+  
+  LPAREN("("),
+  RPAREN(")"),
+  LBRACK("["),
+  RBRACK("]"),
+  LBRACE("{"),
+  RBRACE("}"),
+  ARROW("->"),
+  COLON(":"),
+  COMMA(","),
+  SEMI(";"),
+  AT("@"),
+  BAR("|"),
+  ELLIPSIS("..."),
+  PLUS("+"),
+  MINUS("-"),
+  STAR("*"),
+  SLASH("/"),
+  EQ("="),
+  LT("<"),
+  GT(">"),
+  LE("<="),
+  GE(">="),
+  ASSIGN(":="),
+  ADD_ASSIGN(":+="),
+  SUB_ASSIGN(":-="),
+  MUL_ASSIGN(":*="),
+  DIV_ASSIGN(":/=");
+  
+  final String text;
+  final boolean keyword;
+  
+  TokenKind(String text) {
+    this(text, false);
+  }
+  
+  TokenKind(String text, boolean keyword) {
+    this.text = text;
+    this.keyword = keyword;
+  }
+  
+}
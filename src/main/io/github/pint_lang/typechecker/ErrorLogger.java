@@ -2,6 +2,7 @@ package io.github.pint_lang.typechecker;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.List;
 
 public class ErrorLogger {
   
@@ -23,6 +24,10 @@ public class ErrorLogger {
     return !errors.isEmpty();
   }
   
+  public List<String> errors() {
+    return List.copyOf(errors);
+  }
+  
   public static <T> Fixed<T> fixed(T errorValue) {
     return new ErrorLogger().fix(errorValue);
   }
@@ -6,6 +6,8 @@ import io.github.pint_lang.ast.VarDefAST;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class GlobalLookup {
   
@@ -13,13 +15,33 @@ public class GlobalLookup {
   private final HashMap<String, FunctionType> funcs = new HashMap<>();
   
   private FunctionType current = null;
+  private Map<Lookup, Object> lookups = null;
   
   public Type getVariableType(String name) {
-    return vars.get(name);
+    var type = vars.get(name);
+    if (lookups != null) lookups.putIfAbsent(new Lookup(false, name), type);
+    return type;
   }
   
   public FunctionType getFunctionType(String name) {
-    return funcs.get(name);
+    var type = funcs.get(name);
+    if (lookups != null) lookups.putIfAbsent(new Lookup(true, name), type);
+    return type;
+  }
+  
+  // Collects every global looked up from now on, with what was found (null if nothing), until this is called again with null
+  public void recordLookups(Map<Lookup, Object> lookups) {
+    this.lookups = lookups;
+  }
+  
+  // Whether the same lookups would all find the same things now
+  public boolean wouldFind(Map<Lookup, Object> lookups) {
+    for (var entry : lookups.entrySet()) {
+      var lookup = entry.getKey();
+      var found = lookup.function() ? funcs.get(lookup.name()) : vars.get(lookup.name());
+      if (!Objects.equals(found, entry.getValue())) return false;
+    }
+    return true;
   }
   
   public FunctionType getThisFunctionType() {
@@ -31,7 +53,7 @@ public class GlobalLookup {
   }
   
   public void addVariable(String name, Type type, ErrorLogger logger) {
-    if (funcs.containsKey(name)) {
+    if (getFunctionType(name) != null) {
       logger.error("Duplicate global '" + name + "'", null);
       return;
     }
@@ -39,7 +61,7 @@ public class GlobalLookup {
   }
   
   public void addFunction(String name, FunctionType type, ErrorLogger logger) {
-    if (vars.containsKey(name)) {
+    if (getVariableType(name) != null) {
       logger.error("Duplicate global '" + name + "'", null);
       return;
     }
@@ -50,6 +72,8 @@ public class GlobalLookup {
   
   public record Param(String name, Type type) {}
   
+  public record Lookup(boolean function, String name) {}
+  
   public class BuildVisitor implements DefASTVisitor<Void, Void> {
     
     private final TypecheckVisitor typechecker;
@@ -62,15 +86,15 @@ public class GlobalLookup {
     
     @Override
     public Void visitFuncDef(FuncDefAST<Void> ast) {
-      var params = ast.params().stream().map(param -> new Param(param.name(), param.type().accept(typechecker).data())).toList();
-      var returnType = ast.returnType().accept(typechecker).data();
+      var params = ast.params().stream().map(param -> new Param(param.name(), typechecker.visitSignatureType(param.type()).data())).toList();
+      var returnType = typechecker.visitSignatureType(ast.returnType()).data();
       addFunction(ast.name(), new FunctionType(returnType, params), logger);
       return null;
     }
     
     @Override
     public Void visitVarDef(VarDefAST<Void> ast) {
-      addVariable(ast.name(), ast.type().accept(typechecker).data(), logger);
+      addVariable(ast.name(), typechecker.visitSignatureType(ast.type()).data(), logger);
       return null;
     }
     
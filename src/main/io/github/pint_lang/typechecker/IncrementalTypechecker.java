@@ -0,0 +1,111 @@
+package io.github.pint_lang.typechecker;
+
+import io.github.pint_lang.ast.*;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+// Typechecks definitions exactly as TypecheckVisitor.visitDefs does, but keeps each definition's result along with every global
+// it looked up, so checking the next version of a program only revisits the definitions that are new or would now find different globals
+// Definitions are matched by identity, so a caller reparsing part of a program should pass the unchanged DefAST objects back in
+public class IncrementalTypechecker {
+  
+  private final BiConsumer<GlobalLookup, ErrorLogger> declareBuiltins;
+  private IdentityHashMap<DefAST<Void>, Checked> checked = new IdentityHashMap<>();
+  private List<String> errors = List.of();
+  
+  public IncrementalTypechecker(BiConsumer<GlobalLookup, ErrorLogger> declareBuiltins) {
+    this.declareBuiltins = declareBuiltins;
+  }
+  
+  public DefsAST<Type> typecheck(DefsAST<Void> ast) {
+    var globals = new GlobalLookup();
+    var builtinsLogger = new ErrorLogger();
+    declareBuiltins.accept(globals, builtinsLogger);
+    var previous = checked;
+    checked = new IdentityHashMap<>();
+    var entries = new ArrayList<Checked>(ast.defs().size());
+    for (var def : ast.defs()) {
+      var entry = previous.remove(def);
+      if (entry == null) entry = new Checked(def);
+      checked.put(def, entry);
+      entries.add(entry);
+    }
+    // results were already logged when they were first checked, so replaying them discards anything logged again
+    var replayLogger = new ErrorLogger();
+    for (var entry : entries) {
+      if (!(entry.def instanceof FuncDefAST<Void> func)) continue;
+      if (entry.declared != null && globals.wouldFind(entry.declarationLookups)) globals.addFunction(func.name(), entry.declared, replayLogger);
+      else declare(entry, func, globals);
+    }
+    var defs = new ArrayList<DefAST<Type>>(entries.size());
+    var error = false;
+    for (var entry : entries) {
+      if (entry.typed == null || !globals.wouldFind(entry.lookups)) check(entry, globals);
+      else if (entry.typed instanceof VarDefAST<Type> varDef) globals.addVariable(varDef.name(), varDef.type().data(), replayLogger);
+      if (entry.typed.data() == Type.ERROR) error = true;
+      defs.add(entry.typed);
+    }
+    var errors = new ArrayList<>(builtinsLogger.errors());
+    for (var entry : entries) errors.addAll(entry.declarationErrors);
+    for (var entry : entries) errors.addAll(entry.errors);
+    this.errors = errors;
+    return new DefsAST<>(defs, error ? Type.ERROR : Type.UNIT);
+  }
+  
+  // Everything logged by the last call to typecheck, in the order TypecheckVisitor would have logged it
+  public List<String> errors() {
+    return errors;
+  }
+  
+  private static void declare(Checked entry, FuncDefAST<Void> func, GlobalLookup globals) {
+    var logger = ErrorLogger.fixed(Type.ERROR);
+    var lookups = new HashMap<GlobalLookup.Lookup, Object>();
+    entry.declared = null;
+    entry.typed = null;
+    entry.signatureTypes = new IdentityHashMap<>();
+    globals.recordLookups(lookups);
+    try {
+      func.accept(globals.new BuildVisitor(new TypecheckVisitor(logger, globals, entry.signatureTypes)));
+    } finally {
+      globals.recordLookups(null);
+    }
+    entry.declared = globals.getFunctionType(func.name());
+    entry.declarationLookups = lookups;
+    entry.declarationErrors = logger.parent().errors();
+  }
+  
+  private static void check(Checked entry, GlobalLookup globals) {
+    var logger = ErrorLogger.fixed(Type.ERROR);
+    var lookups = new HashMap<GlobalLookup.Lookup, Object>();
+    // a variable's type is only visited here, so its errors have to be logged again every time
+    if (entry.def instanceof VarDefAST<Void>) entry.signatureTypes = new IdentityHashMap<>();
+    entry.typed = null;
+    globals.recordLookups(lookups);
+    try {
+      entry.typed = entry.def.accept(new TypecheckVisitor(logger, globals, entry.signatureTypes));
+    } finally {
+      globals.recordLookups(null);
+    }
+    entry.lookups = lookups;
+    entry.errors = logger.parent().errors();
+  }
+  
+  private static final class Checked {
+    
+    final DefAST<Void> def;
+    IdentityHashMap<TypeAST<Void>, TypeAST<Type>> signatureTypes;
+    GlobalLookup.FunctionType declared = null;
+    Map<GlobalLookup.Lookup, Object> declarationLookups = Map.of();
+    List<String> declarationErrors = List.of();
+    DefAST<Type> typed = null;
+    Map<GlobalLookup.Lookup, Object> lookups = Map.of();
+    List<String> errors = List.of();
+    
+    Checked(DefAST<Void> def) {
+      this.def = def;
+    }
+    
+  }
+  
+}
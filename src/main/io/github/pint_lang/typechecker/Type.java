@@ -136,6 +136,11 @@ public sealed interface Type {
       return type.asArray();
     }
     
+    @Override
+    public Type unconditioned() {
+      return type.unconditioned();
+    }
+    
     @Override
     public Condition joinCondition(io.github.pint_lang.typechecker.conditions.Condition condition, ConditionBindings bindings) {
       var merge = this.bindings.merge(bindings);
@@ -160,6 +165,10 @@ public sealed interface Type {
     return asArray() != null;
   }
 
+  default Type unconditioned() {
+    return this;
+  }
+
   default Condition joinCondition(io.github.pint_lang.typechecker.conditions.Condition condition, ConditionBindings bindings) {
     return new Condition(this, condition, bindings);
   }
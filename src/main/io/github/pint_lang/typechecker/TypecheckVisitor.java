@@ -4,10 +4,11 @@ import io.github.pint_lang.ast.*;
 import io.github.pint_lang.typechecker.conditions.*;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.Stack;
 
-public class TypecheckVisitor implements DefASTVisitor<Void, Void>, ExprASTVisitor<Void, ExprAST<Type>>, TypeASTVisitor<Void, TypeAST<Type>> {
-
+public class TypecheckVisitor implements DefASTVisitor<Void, DefAST<Type>>, ExprASTVisitor<Void, ExprAST<Type>>, TypeASTVisitor<Void, TypeAST<Type>> {
+  
   public final ErrorLogger.Fixed<Type> logger;
   public final GlobalLookup globals;
   private final GlobalLookup.BuildVisitor globalsBuilder;
@@ -16,42 +17,72 @@ public class TypecheckVisitor implements DefASTVisitor<Void, Void>, ExprASTVisit
   private final Stack<Type> itStack = new Stack<>();
   private final StatVisitor statVisitor = new StatVisitor();
   private final ConditionBuildVisitor conditionBuildVisitor;
+  private final IdentityHashMap<TypeAST<Void>, TypeAST<Type>> signatureTypes;
   
   public TypecheckVisitor(ErrorLogger.Fixed<Type> logger, GlobalLookup globals) {
+    this(logger, globals, new IdentityHashMap<>());
+  }
+  
+  TypecheckVisitor(ErrorLogger.Fixed<Type> logger, GlobalLookup globals, IdentityHashMap<TypeAST<Void>, TypeAST<Type>> signatureTypes) {
     this.logger = logger;
     this.globals = globals;
     this.globalsBuilder = globals.new BuildVisitor(this);
     this.jumpStack = new JumpScopeStack();
     this.varStack = new VarScopeStack();
     this.conditionBuildVisitor = new ConditionBuildVisitor(logger.parent());
+    this.signatureTypes = signatureTypes;
   }
   
-  public void visitDefs(DefsAST<Void> ast) {
-    for (var def : ast.defs()) {
-      if (def instanceof FuncDefAST<Void>) def.accept(globalsBuilder);
+  public DefsAST<Type> visitDefs(DefsAST<Void> ast) {
+    for (var def : ast.defs()) declare(def);
+    var defs = new ArrayList<DefAST<Type>>(ast.defs().size());
+    var error = false;
+    for (var defAST : ast.defs()) {
+      var def = defAST.accept(this);
+      if (def.data() == Type.ERROR) error = true;
+      defs.add(def);
     }
-    for (var def : ast.defs()) def.accept(this);
+    return new DefsAST<>(defs, error ? Type.ERROR : Type.UNIT);
+  }
+  
+  // Functions can be called before they're defined, so every function has to be declared before any definition is checked
+  public void declare(DefAST<Void> def) {
+    if (def instanceof FuncDefAST<Void>) def.accept(globalsBuilder);
   }
   
   @Override
-  public Void visitFuncDef(FuncDefAST<Void> ast) {
+  public FuncDefAST<Type> visitFuncDef(FuncDefAST<Void> ast) {
+    Type type = Type.UNIT;
     var funcType = globals.getFunctionType(ast.name());
     globals.setThisFunctionType(funcType);
-    var value = ast.body().accept(this);
-    if (value.data() != Type.ERROR && !value.data().canBe(funcType.returnType())) logger.error("Tried to return wrong type");
+    var params = ast.params().stream().map(param -> new FuncDefAST.Param<>(param.name(), visitSignatureType(param.type()))).toList();
+    var returnType = visitSignatureType(ast.returnType());
+    var value = visitBlockExpr(ast.body());
+    if (value.data() != Type.ERROR && !value.data().canBe(funcType.returnType())) type = logger.error("Tried to return wrong type");
     globals.setThisFunctionType(null);
-    return null;
+    return new FuncDefAST<>(ast.name(), params, returnType, value, value.data() == Type.ERROR ? Type.ERROR : type);
   }
   
   @Override
-  public Void visitVarDef(VarDefAST<Void> ast) {
-    var type = ast.type().accept(this).data();
+  public VarDefAST<Type> visitVarDef(VarDefAST<Void> ast) {
+    Type type = Type.UNIT;
+    var varType = visitSignatureType(ast.type());
     var value = ast.value().accept(this);
-    if (!value.data().canBe(type)) logger.error("Tried to initialize a variable with the wrong type");
+    if (!value.data().canBe(varType.data())) type = logger.error("Tried to initialize a variable with the wrong type");
     ast.accept(globalsBuilder);
-    return null;
+    return new VarDefAST<>(ast.name(), varType, value, type);
   }
-
+  
+  // Signature types are visited both when building globals and when checking the definition itself, so they're cached to avoid logging errors twice
+  public TypeAST<Type> visitSignatureType(TypeAST<Void> ast) {
+    var type = signatureTypes.get(ast);
+    if (type == null) {
+      type = ast.accept(this);
+      signatureTypes.put(ast, type);
+    }
+    return type;
+  }
+  
   @Override
   public SimpleTypeAST<Type> visitSimpleType(SimpleTypeAST<Void> ast) {
     return new SimpleTypeAST<>(ast.name(), switch (ast.name()) {
@@ -61,18 +92,18 @@ public class TypecheckVisitor implements DefASTVisitor<Void, Void>, ExprASTVisit
       default -> logger.error("No such type as '" + ast.name() + "'");
     });
   }
-
+  
   @Override
   public UnitTypeAST<Type> visitUnitType(UnitTypeAST<Void> ast) {
     return new UnitTypeAST<>(Type.UNIT);
   }
-
+  
   @Override
   public ArrayTypeAST<Type> visitArrayType(ArrayTypeAST<Void> ast) {
     var innerType = ast.innerType().accept(this);
     return new ArrayTypeAST<>(innerType, new Type.Array(innerType.data()));
   }
-
+  
   @Override
   public ConditionTypeAST<Type> visitConditionType(ConditionTypeAST<Void> ast) {
     var type = ast.type().accept(this);
@@ -150,8 +181,11 @@ public class TypecheckVisitor implements DefASTVisitor<Void, Void>, ExprASTVisit
     var name = ast.name();
     var local = varStack.getVar(name);
     if (local != null) return new VarExprAST<>(name, local);
-    var params = globals.getThisFunctionType().params();
-    for (var param : params) if (param.name().equals(name)) return new VarExprAST<>(name, param.type());
+    // a global variable's value is checked outside of any function
+    var function = globals.getThisFunctionType();
+    if (function != null) {
+      for (var param : function.params()) if (param.name().equals(name)) return new VarExprAST<>(name, param.type());
+    }
     var global = globals.getVariableType(name);
     if (global != null) return new VarExprAST<>(name, global);
     return new VarExprAST<>(name, logger.error("No such variable as '" + name + "'"));
@@ -175,6 +209,7 @@ public class TypecheckVisitor implements DefASTVisitor<Void, Void>, ExprASTVisit
     return new FuncCallExprAST<>(ast.funcName(), args, hasError ? Type.ERROR : funcType.returnType());
   }
   
+  // The bounds proved here only hold until a call reassigns a global, so the engines still read through ArrayValue's checked accessors
   @Override
   public IndexExprAST<Type> visitIndexExpr(IndexExprAST<Void> ast) {
     var indexee = ast.indexee().accept(this);
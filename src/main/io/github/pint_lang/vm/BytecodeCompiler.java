@@ -0,0 +1,789 @@
+package io.github.pint_lang.vm;
+
+import io.github.pint_lang.ast.*;
+import io.github.pint_lang.eval.*;
+import io.github.pint_lang.opt.TailCallAnalysis;
+import io.github.pint_lang.typechecker.Type;
+
+import java.util.*;
+
+import static io.github.pint_lang.vm.Opcode.*;
+
+public class BytecodeCompiler {
+  
+  private final HashMap<String, Integer> natives = new HashMap<>();
+  private final HashMap<String, Integer> functions = new HashMap<>();
+  private final HashMap<String, Integer> globals = new HashMap<>();
+  private final ArrayList<FuncDefAST<Type>> funcDefs = new ArrayList<>();
+  private final ArrayList<Kind> globalKinds = new ArrayList<>();
+  private final Set<String> memoized;
+  private TailCallAnalysis tailCalls;
+  
+  public BytecodeCompiler(Collection<String> nativeNames) {
+    this(nativeNames, Set.of());
+  }
+  
+  // Calls to the memoized functions are never compiled as tail calls, since only CALL looks in their tables
+  public BytecodeCompiler(Collection<String> nativeNames, Set<String> memoized) {
+    for (var name : nativeNames) natives.put(name, natives.size());
+    this.memoized = Set.copyOf(memoized);
+  }
+  
+  public Program compile(DefsAST<Type> ast) {
+    var varDefs = new ArrayList<VarDefAST<Type>>();
+    for (var def : ast.defs()) {
+      if (natives.containsKey(def.name()) || functions.containsKey(def.name()) || globals.containsKey(def.name()))
+        throw new BadDefinitionException("Duplicate global definition '" + def.name() + "'");
+      if (def instanceof FuncDefAST<Type> funcDef) {
+        functions.put(funcDef.name(), funcDefs.size());
+        funcDefs.add(funcDef);
+      } else if (def instanceof VarDefAST<Type> varDef) {
+        globals.put(varDef.name(), varDefs.size());
+        globalKinds.add(Kind.of(varDef.type().data()));
+        varDefs.add(varDef);
+      }
+    }
+    var main = functions.get("main");
+    if (main == null) throw new BadDefinitionException("Missing a main method");
+    if (!funcDefs.get(main).params().isEmpty()) throw new IllegalArgumentException("Expected " + funcDefs.get(main).params().size() + " arguments; got 0");
+    tailCalls = new TailCallAnalysis(ast);
+    var chunks = new Chunk[funcDefs.size()];
+    for (var i = 0; i < chunks.length; i++) chunks[i] = new ChunkCompiler(funcDefs.get(i)).compileFunction();
+    var init = new ChunkCompiler(null).compileInit(varDefs);
+    var globalNames = varDefs.stream().map(VarDefAST::name).toArray(String[]::new);
+    var nativeNames = new String[natives.size()];
+    for (var entry : natives.entrySet()) nativeNames[entry.getValue()] = entry.getKey();
+    return new Program(chunks, init, main, globalNames, nativeNames);
+  }
+  
+  private static Kind[] paramKinds(FuncDefAST<Type> funcDef) {
+    return funcDef.params().stream().map(param -> Kind.of(param.type().data())).toArray(Kind[]::new);
+  }
+  
+  private record Local(Kind kind, int register) {}
+  
+  private static final class JumpTarget {
+    
+    final String label;
+    final boolean loop;
+    final Kind kind;
+    final int register; // -1 if the target has no value besides unit, since register 0 is as real as any other
+    final ArrayList<Integer> breaks = new ArrayList<>();
+    final ArrayList<Integer> continues = new ArrayList<>();
+    
+    JumpTarget(String label, boolean loop, Kind kind, int register) {
+      this.label = label;
+      this.loop = loop;
+      this.kind = kind;
+      this.register = register;
+    }
+    
+  }
+  
+  private class ChunkCompiler implements StatASTVisitor<Type, Integer> {
+    
+    private final FuncDefAST<Type> funcDef;
+    private int[] code = new int[64];
+    private int size = 0;
+    private final ArrayList<Value> constants = new ArrayList<>();
+    private final HashMap<Value, Integer> constantIndices = new HashMap<>();
+    private final ArrayDeque<HashMap<String, Local>> scopes = new ArrayDeque<>();
+    private final ArrayDeque<JumpTarget> targets = new ArrayDeque<>();
+    private int intTop = 0, refTop = 1; // ref register 0 always holds unit
+    private int intMax = 0, refMax = 1;
+    
+    private ChunkCompiler(FuncDefAST<Type> funcDef) {
+      this.funcDef = funcDef;
+    }
+    
+    private Chunk compileFunction() {
+      var params = new HashMap<String, Local>();
+      for (var param : funcDef.params()) {
+        var kind = Kind.of(param.type().data());
+        params.put(param.name(), new Local(kind, alloc(kind)));
+      }
+      scopes.push(params);
+      var returnKind = Kind.of(funcDef.returnType().data());
+      var body = compileAs(funcDef.body(), returnKind);
+      if (Kind.of(funcDef.body().data()) != Kind.NONE) emitReturn(returnKind, body);
+      return finish(funcDef.name(), paramKinds(funcDef), returnKind);
+    }
+    
+    private Chunk compileInit(List<VarDefAST<Type>> varDefs) {
+      for (var varDef : varDefs) {
+        var value = compileAs(varDef.value(), Kind.REF);
+        emit(GSET, globals.get(varDef.name()), value);
+        reset(0, 1);
+      }
+      emit(RETR, 0);
+      return finish("<init>", new Kind[0], Kind.REF);
+    }
+    
+    private Chunk finish(String name, Kind[] params, Kind returnKind) {
+      return new Chunk(name, Arrays.copyOf(code, size), constants.toArray(Value[]::new), intMax, refMax, params, returnKind);
+    }
+    
+    private void emit(int... ops) {
+      if (size + ops.length > code.length) code = Arrays.copyOf(code, Math.max(code.length * 2, size + ops.length));
+      System.arraycopy(ops, 0, code, size, ops.length);
+      size += ops.length;
+    }
+    
+    // Emits a jump whose target is filled in later by patch; returns the position to patch
+    private int emitJump(int op, int... operands) {
+      emit(op);
+      emit(operands);
+      emit(-1);
+      return size - 1;
+    }
+    
+    private void patch(int position) {
+      code[position] = size;
+    }
+    
+    private int constant(Value value) {
+      return constantIndices.computeIfAbsent(value, ignored -> {
+        constants.add(value);
+        return constants.size() - 1;
+      });
+    }
+    
+    private int alloc(Kind kind) {
+      return switch (kind) {
+        case INT -> {
+          intMax = Math.max(intMax, intTop + 1);
+          yield intTop++;
+        }
+        case REF -> {
+          refMax = Math.max(refMax, refTop + 1);
+          yield refTop++;
+        }
+        case NONE -> -1;
+      };
+    }
+    
+    private void reset(int intMark, int refMark) {
+      intTop = intMark;
+      refTop = refMark;
+    }
+    
+    private void move(Kind kind, int dst, int src) {
+      if (dst == src || kind == Kind.NONE) return;
+      emit(kind == Kind.INT ? IMOV : RMOV, dst, src);
+    }
+    
+    private void emitReturn(Kind kind, int register) {
+      emit(kind == Kind.INT ? RETI : RETR, register);
+    }
+    
+    // Every visit leaves its result either in an existing register below the marks it started with (a local or the unit register)
+    // or in a freshly allocated register exactly at the mark of its kind, with nothing else left allocated
+    private int compileAs(ExprAST<Type> ast, Kind kind) {
+      var intMark = intTop;
+      var refMark = refTop;
+      int register = ast.accept(this);
+      var astKind = Kind.of(ast.data());
+      if (astKind == kind) return register;
+      reset(intMark, refMark);
+      if (astKind == Kind.NONE || kind == Kind.NONE) return alloc(kind); // unreachable or discarded anyway
+      if (kind == Kind.REF) {
+        var dst = alloc(Kind.REF);
+        emit(ast.data().unconditioned() == Type.BOOL ? BOXB : BOX, dst, register);
+        return dst;
+      }
+      throw new IllegalStateException("Cannot convert a ref register to an int register");
+    }
+    
+    // Copies a local into a temporary if evaluating the following operands may reassign it before it is used
+    private int compileOperand(ExprAST<Type> ast, Kind kind, List<? extends ExprAST<Type>> following) {
+      var mark = mark(kind);
+      var register = compileAs(ast, kind);
+      if (register >= mark || kind == Kind.NONE || following.stream().noneMatch(BytecodeCompiler::assigns)) return register;
+      var dst = alloc(kind);
+      move(kind, dst, register);
+      return dst;
+    }
+    
+    private int mark(Kind kind) {
+      return kind == Kind.INT ? intTop : refTop;
+    }
+    
+    private void compileEffect(StatAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      ast.accept(this);
+      if (!(ast instanceof VarDefAST<Type>)) reset(intMark, refMark);
+    }
+    
+    private Local lookupLocal(String name) {
+      for (var scope : scopes) {
+        var local = scope.get(name);
+        if (local != null) return local;
+      }
+      return null;
+    }
+    
+    @Override
+    public Integer visitVarDef(VarDefAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var kind = Kind.of(ast.type().data());
+      var value = compileAs(ast.value(), kind);
+      reset(intMark, refMark);
+      var register = alloc(kind);
+      move(kind, register, value);
+      scopes.peek().put(ast.name(), new Local(kind, register));
+      return 0;
+    }
+    
+    @Override
+    public Integer visitNopStat(NopStatAST<Type> ast) {
+      return 0;
+    }
+    
+    @Override
+    public Integer visitUnaryExpr(UnaryExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var operandType = ast.operand().data().unconditioned();
+      switch (ast.op()) {
+        case PLUS -> {
+          return compileAs(ast.operand(), Kind.INT);
+        }
+        case NEG, NOT -> {
+          var operand = compileAs(ast.operand(), Kind.INT);
+          reset(intMark, refMark);
+          var dst = alloc(Kind.INT);
+          emit(ast.op() == UnaryOp.NEG ? INEG : NOT, dst, operand);
+          return dst;
+        }
+        case ABS -> {
+          var operandKind = operandType == Type.INT || operandType == Type.NEVER ? Kind.INT : Kind.REF;
+          var operand = compileAs(ast.operand(), operandKind);
+          reset(intMark, refMark);
+          var dst = alloc(Kind.INT);
+          if (operandType == Type.STRING) emit(SLEN, dst, operand);
+          else if (operandType != Type.NEVER && operandType.canBeArray()) emit(ALEN, dst, operand);
+          else emit(IABS, dst, operand);
+          return dst;
+        }
+      }
+      throw new IllegalStateException("Invalid unary operator");
+    }
+    
+    @Override
+    public Integer visitBinaryExpr(BinaryExprAST<Type> ast) {
+      return switch (ast.op()) {
+        case ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN -> compileAssign(ast);
+        case AND, OR -> compileLogical(ast);
+        case EQ, NEQ -> compileEquality(ast);
+        case LT, NLT, LE, NLE, GT, NGT, GE, NGE -> compileComparison(ast);
+        case ADD, SUB, MUL, DIV -> compileArithmetic(ast, switch (ast.op()) {
+          case ADD -> IADD;
+          case SUB -> ISUB;
+          case MUL -> IMUL;
+          default -> IDIV;
+        });
+      };
+    }
+    
+    private int compileAssign(BinaryExprAST<Type> ast) {
+      if (!(ast.left() instanceof VarExprAST<Type> left)) throw new BadExpressionException("Only variables can be assigned to");
+      var intMark = intTop;
+      var refMark = refTop;
+      var local = lookupLocal(left.name());
+      if (local != null) {
+        if (ast.op() == BinaryOp.ASSIGN) {
+          move(local.kind(), local.register(), compileAs(ast.right(), local.kind()));
+        } else {
+          var leftRegister = compileOperand(left, Kind.INT, List.of(ast.right()));
+          var right = compileAs(ast.right(), Kind.INT);
+          emit(arithmeticAssignOp(ast.op()), local.register(), leftRegister, right);
+        }
+      } else {
+        var global = globals.get(left.name());
+        if (global == null) throw NoSuchNameException.variable(left.name());
+        if (ast.op() == BinaryOp.ASSIGN) {
+          emit(GSET, global, compileAs(ast.right(), Kind.REF));
+        } else {
+          var leftBox = alloc(Kind.REF);
+          emit(GGET, leftBox, global);
+          var leftValue = alloc(Kind.INT);
+          emit(UNBOX, leftValue, leftBox);
+          var right = compileAs(ast.right(), Kind.INT);
+          emit(arithmeticAssignOp(ast.op()), leftValue, leftValue, right);
+          emit(BOX, leftBox, leftValue);
+          emit(GSET, global, leftBox);
+        }
+      }
+      reset(intMark, refMark);
+      return 0;
+    }
+    
+    private int arithmeticAssignOp(BinaryOp op) {
+      return switch (op) {
+        case ADD_ASSIGN -> IADD;
+        case SUB_ASSIGN -> ISUB;
+        case MUL_ASSIGN -> IMUL;
+        case DIV_ASSIGN -> IDIV;
+        default -> throw new IllegalStateException("Invalid assignment operator");
+      };
+    }
+    
+    private int compileLogical(BinaryExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var left = compileAs(ast.left(), Kind.INT);
+      reset(intMark, refMark);
+      var dst = alloc(Kind.INT);
+      move(Kind.INT, dst, left);
+      var end = emitJump(ast.op() == BinaryOp.AND ? JF : JT, dst); // short-circuit
+      move(Kind.INT, dst, compileAs(ast.right(), Kind.INT));
+      patch(end);
+      reset(intMark, refMark);
+      return alloc(Kind.INT);
+    }
+    
+    private int compileEquality(BinaryExprAST<Type> ast) {
+      var leftKind = Kind.of(ast.left().data());
+      var rightKind = Kind.of(ast.right().data());
+      var kind = leftKind != Kind.REF && rightKind != Kind.REF && (leftKind == Kind.INT || rightKind == Kind.INT) ? Kind.INT : Kind.REF;
+      var op = ast.op() == BinaryOp.EQ ? kind == Kind.INT ? IEQ : REQ : kind == Kind.INT ? INE : RNE;
+      return compileBinary(op, ast.left(), kind, ast.right(), kind);
+    }
+    
+    private int compileComparison(BinaryExprAST<Type> ast) {
+      var leftType = ast.left().data().unconditioned();
+      var rightType = ast.right().data().unconditioned();
+      var strings = leftType == Type.STRING || rightType == Type.STRING;
+      var kind = strings ? Kind.REF : Kind.INT;
+      var lt = strings ? SLT : ILT;
+      var le = strings ? SLE : ILE;
+      return switch (ast.op()) {
+        case LT, NGE -> compileBinary(lt, ast.left(), kind, ast.right(), kind);
+        case LE, NGT -> compileBinary(le, ast.left(), kind, ast.right(), kind);
+        case GT, NLE -> compileBinarySwapped(lt, ast.left(), kind, ast.right(), kind);
+        case GE, NLT -> compileBinarySwapped(le, ast.left(), kind, ast.right(), kind);
+        default -> throw new IllegalStateException("Invalid comparison operator");
+      };
+    }
+    
+    private int compileArithmetic(BinaryExprAST<Type> ast, int op) {
+      return compileBinary(op, ast.left(), Kind.INT, ast.right(), Kind.INT);
+    }
+    
+    private int compileBinary(int op, ExprAST<Type> left, Kind leftKind, ExprAST<Type> right, Kind rightKind) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var leftRegister = compileOperand(left, leftKind, List.of(right));
+      var rightRegister = compileAs(right, rightKind);
+      reset(intMark, refMark);
+      var dst = alloc(Kind.INT);
+      emit(op, dst, leftRegister, rightRegister);
+      return dst;
+    }
+    
+    // Evaluates left before right, but passes the operands to op the other way around
+    private int compileBinarySwapped(int op, ExprAST<Type> left, Kind leftKind, ExprAST<Type> right, Kind rightKind) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var leftRegister = compileOperand(left, leftKind, List.of(right));
+      var rightRegister = compileAs(right, rightKind);
+      reset(intMark, refMark);
+      var dst = alloc(Kind.INT);
+      emit(op, dst, rightRegister, leftRegister);
+      return dst;
+    }
+    
+    @Override
+    public Integer visitBlockExpr(BlockExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var kind = Kind.of(ast.data());
+      JumpTarget target = null;
+      if (ast.label() != null) {
+        target = new JumpTarget(ast.label(), false, kind, ast.data().unconditioned() == Type.UNIT ? -1 : alloc(kind));
+        targets.push(target);
+      }
+      scopes.push(new HashMap<>());
+      var stats = ast.stats();
+      var value = 0;
+      for (var i = 0; i < stats.size(); i++) {
+        var stat = stats.get(i);
+        if (i < stats.size() - 1 || !(stat instanceof ExprAST<Type> expr)) compileEffect(stat);
+        else value = compileAs(expr, kind);
+      }
+      scopes.pop();
+      if (target != null) {
+        targets.pop();
+        if (target.register >= 0) move(kind, target.register, value);
+        for (var position : target.breaks) patch(position);
+        reset(intMark, refMark);
+        if (target.register < 0) return kind == Kind.NONE ? -1 : 0; // the unit register
+        return alloc(kind);
+      }
+      reset(intMark, refMark);
+      if (kind == Kind.NONE || value < mark(kind)) return value; // an outer local or the unit register
+      var dst = alloc(kind);
+      move(kind, dst, value);
+      return dst;
+    }
+    
+    @Override
+    public Integer visitVarExprAST(VarExprAST<Type> ast) {
+      var local = lookupLocal(ast.name());
+      if (local != null) return local.register();
+      var global = globals.get(ast.name());
+      if (global == null) throw NoSuchNameException.variable(ast.name());
+      var intMark = intTop;
+      var refMark = refTop;
+      var box = alloc(Kind.REF);
+      emit(GGET, box, global);
+      var kind = globalKinds.get(global);
+      if (kind != Kind.INT) return box;
+      reset(intMark, refMark);
+      var dst = alloc(Kind.INT);
+      emit(ast.data().unconditioned() == Type.BOOL ? UNBOXB : UNBOX, dst, box);
+      return dst;
+    }
+    
+    @Override
+    public Integer visitFuncCall(FuncCallExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var function = functions.get(ast.funcName());
+      var args = ast.args();
+      var registers = new int[args.size()];
+      if (function != null) {
+        var params = paramKinds(funcDefs.get(function));
+        if (params.length != args.size()) throw new IllegalArgumentException("Expected " + params.length + " arguments; got " + args.size());
+        for (var i = 0; i < registers.length; i++) registers[i] = compileOperand(args.get(i), params[i], args.subList(i + 1, args.size()));
+        reset(intMark, refMark);
+        var kind = Kind.of(funcDefs.get(function).returnType().data());
+        var dst = alloc(kind);
+        // the callee's result goes straight to our caller, so it has to come back in the same register bank
+        if (tailCalls.isTailCall(ast) && !memoized.contains(ast.funcName()) && kind != Kind.NONE && kind == Kind.of(funcDef.returnType().data())) emit(TCALL, function, registers.length);
+        else emit(CALL, function, dst, registers.length);
+        emit(registers);
+        return dst;
+      }
+      var nativeFunction = natives.get(ast.funcName());
+      if (nativeFunction == null) throw NoSuchNameException.function(ast.funcName());
+      for (var i = 0; i < registers.length; i++) registers[i] = compileOperand(args.get(i), Kind.REF, args.subList(i + 1, args.size()));
+      reset(intMark, refMark);
+      var box = alloc(Kind.REF);
+      emit(NCALL, nativeFunction, box, registers.length);
+      emit(registers);
+      var kind = Kind.of(ast.data());
+      if (kind == Kind.REF) return box;
+      reset(intMark, refMark);
+      if (kind == Kind.NONE) return -1;
+      var dst = alloc(Kind.INT);
+      emit(ast.data().unconditioned() == Type.BOOL ? UNBOXB : UNBOX, dst, box);
+      return dst;
+    }
+    
+    @Override
+    public Integer visitIndexExpr(IndexExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var array = compileOperand(ast.indexee(), Kind.REF, List.of(ast.index()));
+      var index = compileAs(ast.index(), Kind.INT);
+      reset(intMark, refMark);
+      var kind = Kind.of(ast.data());
+      var dst = alloc(kind == Kind.INT ? Kind.INT : Kind.REF);
+      // ints and bools come straight out of unboxed storage
+      emit(kind == Kind.REF ? AGET : ast.data().unconditioned() == Type.BOOL ? BAGET : IAGET, dst, array, index);
+      return dst;
+    }
+    
+    @Override
+    public Integer visitSliceExpr(SliceExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var following = new ArrayList<ExprAST<Type>>(2);
+      if (ast.from() != null) following.add(ast.from());
+      if (ast.to() != null) following.add(ast.to());
+      var array = compileOperand(ast.slicee(), Kind.REF, following);
+      var from = ast.from() != null ? compileOperand(ast.from(), Kind.INT, following.subList(1, following.size())) : -1;
+      var to = ast.to() != null ? compileAs(ast.to(), Kind.INT) : -1;
+      reset(intMark, refMark);
+      var dst = alloc(Kind.REF);
+      emit(SLICE, dst, array, from, to);
+      return dst;
+    }
+    
+    @Override
+    public Integer visitItExpr(ItExprAST<Type> ast) {
+      throw new BadExpressionException("it does not have a value");
+    }
+    
+    @Override
+    public Integer visitIfExpr(IfExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var condition = compileAs(ast.condition(), Kind.INT);
+      reset(intMark, refMark);
+      var elseJump = emitJump(JF, condition);
+      var kind = Kind.of(ast.data());
+      if (ast.elseBody() == null || ast.data().unconditioned() == Type.UNIT) {
+        compileEffect(ast.thenBody());
+        if (ast.elseBody() == null) {
+          patch(elseJump);
+          return 0;
+        }
+        var endJump = emitJump(JMP);
+        patch(elseJump);
+        compileEffect(ast.elseBody());
+        patch(endJump);
+        return 0;
+      }
+      var dst = alloc(kind);
+      move(kind, dst, compileAs(ast.thenBody(), kind));
+      var endJump = Kind.of(ast.thenBody().data()) != Kind.NONE ? emitJump(JMP) : -1;
+      reset(intMark, refMark);
+      alloc(kind);
+      patch(elseJump);
+      move(kind, dst, compileAs(ast.elseBody(), kind));
+      if (endJump >= 0) patch(endJump);
+      reset(intMark, refMark);
+      return alloc(kind);
+    }
+    
+    @Override
+    public Integer visitLoopExpr(LoopExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var kind = Kind.of(ast.data());
+      var target = new JumpTarget(ast.label(), true, kind, kind == Kind.NONE || ast.data().unconditioned() == Type.UNIT ? -1 : alloc(kind));
+      targets.push(target);
+      var start = size;
+      compileEffect(ast.body());
+      emit(JMP, start);
+      targets.pop();
+      for (var position : target.continues) code[position] = start;
+      for (var position : target.breaks) patch(position);
+      reset(intMark, refMark);
+      if (kind == Kind.NONE) return -1;
+      return target.register < 0 ? 0 : alloc(kind);
+    }
+    
+    @Override
+    public Integer visitWhileExpr(WhileExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var target = new JumpTarget(ast.label(), true, Kind.REF, -1);
+      targets.push(target);
+      // the condition goes after the body so each iteration only takes one jump
+      var conditionJump = emitJump(JMP);
+      var start = size;
+      compileEffect(ast.body());
+      patch(conditionJump);
+      for (var position : target.continues) patch(position);
+      var condition = compileAs(ast.condition(), Kind.INT);
+      emit(JT, condition, start);
+      targets.pop();
+      for (var position : target.breaks) patch(position);
+      reset(intMark, refMark);
+      return 0;
+    }
+    
+    @Override
+    public Integer visitJumpExpr(JumpExprAST<Type> ast) {
+      switch (ast.kind()) {
+        case RETURN -> {
+          if (funcDef == null) throw new BadJumpException("Returned from variable definition");
+          if (ast.targetLabel() != null) throw new IllegalStateException("return cannot target a label");
+          var kind = Kind.of(funcDef.returnType().data());
+          emitReturn(kind, ast.value() != null ? compileAs(ast.value(), kind) : 0);
+        }
+        case BREAK -> {
+          var target = findTarget(ast.targetLabel(), "break");
+          if (ast.value() != null) {
+            if (target.register < 0 && Kind.of(ast.value().data()) != Kind.NONE && ast.value().data().unconditioned() != Type.UNIT)
+              throw new BadTypeException("Cannot break out of a while with any value other than unit");
+            var value = compileAs(ast.value(), target.kind);
+            if (target.register >= 0) move(target.kind, target.register, value);
+          }
+          target.breaks.add(emitJump(JMP));
+        }
+        case CONTINUE -> {
+          if (ast.value() != null) throw new IllegalStateException("continue cannot accept value");
+          var target = findTarget(ast.targetLabel(), "continue");
+          if (!target.loop) throw new BadExpressionException("Labeled continues cannot target labeled blocks");
+          target.continues.add(emitJump(JMP));
+        }
+      }
+      return -1;
+    }
+    
+    private JumpTarget findTarget(String label, String jump) {
+      if (label == null) {
+        var target = targets.peek();
+        if (target == null) throw new BadJumpException("Unlabeled jump outside of any loop");
+        if (!target.loop) throw new BadExpressionException("Unlabeled " + jump + " not allowed in labeled block");
+        return target;
+      }
+      for (var target : targets) {
+        if (label.equals(target.label)) return target;
+      }
+      throw new BadJumpException("Missing label '" + label + "' (did you make a typo?)");
+    }
+    
+    @Override
+    public Integer visitArrayLiteralExpr(ArrayLiteralExprAST<Type> ast) {
+      var intMark = intTop;
+      var refMark = refTop;
+      var items = ast.items();
+      var operands = new int[items.size() * 2];
+      var exprs = items.stream().map(ArrayLiteralExprAST.Item::item).toList();
+      for (var i = 0; i < items.size(); i++) {
+        var item = items.get(i);
+        var type = item.item().data().unconditioned();
+        var kind = item.spread() ? Kind.REF : Kind.of(type) == Kind.INT ? Kind.INT : Kind.REF;
+        operands[i * 2] = item.spread() ? ITEM_SPREAD : kind == Kind.REF ? ITEM_REF : type == Type.BOOL ? ITEM_BOOL : ITEM_INT;
+        operands[i * 2 + 1] = compileOperand(item.item(), kind, exprs.subList(i + 1, exprs.size()));
+      }
+      reset(intMark, refMark);
+      var dst = alloc(Kind.REF);
+      emit(ARRAY, dst, items.size());
+      emit(operands);
+      return dst;
+    }
+    
+    @Override
+    public Integer visitStringLiteralExpr(StringLiteralExprAST<Type> ast) {
+      var dst = alloc(Kind.REF);
+      emit(RCONST, dst, constant(Value.of(ast.value())));
+      return dst;
+    }
+    
+    @Override
+    public Integer visitIntLiteralExpr(IntLiteralExprAST<Type> ast) {
+      var dst = alloc(Kind.INT);
+      emit(ICONST, dst, ast.value());
+      return dst;
+    }
+    
+    @Override
+    public Integer visitBoolLiteralExpr(BoolLiteralExprAST<Type> ast) {
+      var dst = alloc(Kind.INT);
+      emit(ICONST, dst, ast.value() ? 1 : 0);
+      return dst;
+    }
+    
+    @Override
+    public Integer visitUnitLiteralExpr(UnitLiteralExprAST<Type> ast) {
+      return 0;
+    }
+    
+  }
+  
+  private static boolean assigns(StatAST<Type> ast) {
+    return ast.accept(new AssignFindVisitor());
+  }
+  
+  // Finds whether evaluating an expression may reassign a variable
+  private static class AssignFindVisitor implements StatASTVisitor<Type, Boolean> {
+    
+    @Override
+    public Boolean visitVarDef(VarDefAST<Type> ast) {
+      return ast.value().accept(this);
+    }
+    
+    @Override
+    public Boolean visitNopStat(NopStatAST<Type> ast) {
+      return false;
+    }
+    
+    @Override
+    public Boolean visitUnaryExpr(UnaryExprAST<Type> ast) {
+      return ast.operand().accept(this);
+    }
+    
+    @Override
+    public Boolean visitBinaryExpr(BinaryExprAST<Type> ast) {
+      return switch (ast.op()) {
+        case ASSIGN, ADD_ASSIGN, SUB_ASSIGN, MUL_ASSIGN, DIV_ASSIGN -> true;
+        default -> ast.left().accept(this) || ast.right().accept(this);
+      };
+    }
+    
+    @Override
+    public Boolean visitBlockExpr(BlockExprAST<Type> ast) {
+      return ast.stats().stream().anyMatch(stat -> stat.accept(this));
+    }
+    
+    @Override
+    public Boolean visitVarExprAST(VarExprAST<Type> ast) {
+      return false;
+    }
+    
+    @Override
+    public Boolean visitFuncCall(FuncCallExprAST<Type> ast) {
+      return ast.args().stream().anyMatch(arg -> arg.accept(this));
+    }
+    
+    @Override
+    public Boolean visitIndexExpr(IndexExprAST<Type> ast) {
+      return ast.indexee().accept(this) || ast.index().accept(this);
+    }
+    
+    @Override
+    public Boolean visitSliceExpr(SliceExprAST<Type> ast) {
+      return ast.slicee().accept(this) || ast.from() != null && ast.from().accept(this) || ast.to() != null && ast.to().accept(this);
+    }
+    
+    @Override
+    public Boolean visitItExpr(ItExprAST<Type> ast) {
+      return false;
+    }
+    
+    @Override
+    public Boolean visitIfExpr(IfExprAST<Type> ast) {
+      return ast.condition().accept(this) || ast.thenBody().accept(this) || ast.elseBody() != null && ast.elseBody().accept(this);
+    }
+    
+    @Override
+    public Boolean visitLoopExpr(LoopExprAST<Type> ast) {
+      return ast.body().accept(this);
+    }
+    
+    @Override
+    public Boolean visitWhileExpr(WhileExprAST<Type> ast) {
+      return ast.condition().accept(this) || ast.body().accept(this);
+    }
+    
+    @Override
+    public Boolean visitJumpExpr(JumpExprAST<Type> ast) {
+      return ast.value() != null && ast.value().accept(this);
+    }
+    
+    @Override
+    public Boolean visitArrayLiteralExpr(ArrayLiteralExprAST<Type> ast) {
+      return ast.items().stream().anyMatch(item -> item.item().accept(this));
+    }
+    
+    @Override
+    public Boolean visitStringLiteralExpr(StringLiteralExprAST<Type> ast) {
+      return false;
+    }
+    
+    @Override
+    public Boolean visitIntLiteralExpr(IntLiteralExprAST<Type> ast) {
+      return false;
+    }
+    
+    @Override
+    public Boolean visitBoolLiteralExpr(BoolLiteralExprAST<Type> ast) {
+      return false;
+    }
+    
+    @Override
+    public Boolean visitUnitLiteralExpr(UnitLiteralExprAST<Type> ast) {
+      return false;
+    }
+    
+  }
+  
+}
@@ -0,0 +1,15 @@
+package io.github.pint_lang.vm;
+
+import io.github.pint_lang.eval.Value;
+
+public record Chunk(String name, int[] code, Value[] constants, int intRegisters, int refRegisters, Kind[] params, Kind returnKind) {
+  
+  public Chunk {
+    if (name == null) throw new NullPointerException("name must not be null");
+    if (code == null) throw new NullPointerException("code must not be null");
+    if (constants == null) throw new NullPointerException("constants must not be null");
+    if (params == null) throw new NullPointerException("params must not be null");
+    if (returnKind == null) throw new NullPointerException("returnKind must not be null");
+  }
+  
+}
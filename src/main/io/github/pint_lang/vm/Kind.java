@@ -0,0 +1,19 @@
+package io.github.pint_lang.vm;
+
+import io.github.pint_lang.typechecker.Type;
+
+// The register bank a value of some type lives in; bools share the int bank as 0 or 1
+public enum Kind {
+  
+  INT,
+  REF,
+  NONE; // never-typed expressions don't produce a value at all
+  
+  public static Kind of(Type type) {
+    var unconditioned = type.unconditioned();
+    if (unconditioned == Type.INT || unconditioned == Type.BOOL) return INT;
+    if (unconditioned == Type.NEVER) return NONE;
+    return REF;
+  }
+  
+}
@@ -0,0 +1,57 @@
+package io.github.pint_lang.vm;
+
+// Operands follow each opcode inline in Chunk.code; i* operands are int registers (also used for bools), r* operands are ref registers
+public final class Opcode {
+  
+  private Opcode() {}
+  
+  public static final int
+    ICONST = 0, // iDst, value
+    RCONST = 1, // rDst, constant
+    IMOV = 2, // iDst, iSrc
+    RMOV = 3, // rDst, rSrc
+    BOX = 4, // rDst, iSrc
+    BOXB = 5, // rDst, iSrc
+    UNBOX = 6, // iDst, rSrc
+    UNBOXB = 7, // iDst, rSrc
+    INEG = 8, // iDst, iSrc
+    IABS = 9, // iDst, iSrc
+    NOT = 10, // iDst, iSrc
+    IADD = 11, // iDst, iLeft, iRight
+    ISUB = 12, // iDst, iLeft, iRight
+    IMUL = 13, // iDst, iLeft, iRight
+    IDIV = 14, // iDst, iLeft, iRight
+    IEQ = 15, // iDst, iLeft, iRight
+    INE = 16, // iDst, iLeft, iRight
+    ILT = 17, // iDst, iLeft, iRight
+    ILE = 18, // iDst, iLeft, iRight
+    REQ = 19, // iDst, rLeft, rRight
+    RNE = 20, // iDst, rLeft, rRight
+    SLT = 21, // iDst, rLeft, rRight
+    SLE = 22, // iDst, rLeft, rRight
+    SLEN = 23, // iDst, rString
+    ALEN = 24, // iDst, rArray
+    AGET = 25, // rDst, rArray, iIndex
+    SLICE = 26, // rDst, rArray, iFrom or -1, iTo or -1
+    ARRAY = 27, // rDst, count, (item kind, register) * count
+    GGET = 28, // rDst, global
+    GSET = 29, // global, rSrc
+    JMP = 30, // target
+    JT = 31, // iCond, target
+    JF = 32, // iCond, target
+    CALL = 33, // function, dst, count, register * count
+    NCALL = 34, // native, rDst, count, rArg * count
+    RETI = 35, // iSrc
+    RETR = 36, // rSrc
+    IAGET = 37, // iDst, rArray, iIndex
+    BAGET = 38, // iDst, rArray, iIndex
+    TCALL = 39; // function, count, register * count; replaces the current call, reusing its registers where possible
+  
+  // Item kinds for ARRAY
+  public static final int
+    ITEM_REF = 0,
+    ITEM_INT = 1,
+    ITEM_BOOL = 2,
+    ITEM_SPREAD = 3;
+  
+}
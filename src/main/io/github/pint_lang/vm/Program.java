@@ -0,0 +1,12 @@
+package io.github.pint_lang.vm;
+
+public record Program(Chunk[] functions, Chunk init, int main, String[] globals, String[] natives) {
+  
+  public Program {
+    if (functions == null) throw new NullPointerException("functions must not be null");
+    if (init == null) throw new NullPointerException("init must not be null");
+    if (globals == null) throw new NullPointerException("globals must not be null");
+    if (natives == null) throw new NullPointerException("natives must not be null");
+  }
+  
+}
@@ -0,0 +1,360 @@
+package io.github.pint_lang.vm;
+
+import io.github.pint_lang.eval.*;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static io.github.pint_lang.vm.Opcode.*;
+
+// Pint calls don't nest Java calls: the callers of the running chunk are kept on a stack of saved frames on the heap,
+// so recursion is only limited by maxDepth and memory
+public class VM {
+  
+  public static final int DEFAULT_MAX_DEPTH = 1_000_000;
+  
+  private final Program program;
+  private final NativeFunction[] natives;
+  private final Value[] globals;
+  private final int maxDepth;
+  // Indexed like the program's functions, null for those that aren't memoized
+  private final MemoTable[] memoTables;
+  private int intResult;
+  private Value refResult;
+  // Saved callers, each resuming at the CALL instruction at its pc, with the memo key of that call if it has one
+  private Chunk[] callerChunks = new Chunk[16];
+  private int[][] callerInts = new int[16][];
+  private Value[][] callerRefs = new Value[16][];
+  private int[] callerPcs = new int[16];
+  private MemoTable.Key[] callerKeys = new MemoTable.Key[16];
+  private int depth = 0;
+  
+  public VM(Program program, Map<String, NativeFunction> natives) {
+    this(program, natives, DEFAULT_MAX_DEPTH);
+  }
+  
+  public VM(Program program, Map<String, NativeFunction> natives, int maxDepth) {
+    this(program, natives, maxDepth, Map.of());
+  }
+  
+  // Calls to the functions in memo are looked up in their table first; they must be pure
+  public VM(Program program, Map<String, NativeFunction> natives, int maxDepth, Map<String, MemoTable> memo) {
+    if (program == null) throw new NullPointerException("program must not be null");
+    if (natives == null) throw new NullPointerException("natives must not be null");
+    if (maxDepth < 1) throw new IllegalArgumentException("maxDepth must be positive");
+    if (memo == null) throw new NullPointerException("memo must not be null");
+    this.program = program;
+    this.maxDepth = maxDepth;
+    this.memoTables = new MemoTable[program.functions().length];
+    for (var i = 0; i < memoTables.length; i++) memoTables[i] = memo.get(program.functions()[i].name());
+    this.natives = new NativeFunction[program.natives().length];
+    for (var i = 0; i < this.natives.length; i++) {
+      var name = program.natives()[i];
+      this.natives[i] = natives.get(name);
+      if (this.natives[i] == null) throw NoSuchNameException.function(name);
+    }
+    this.globals = new Value[program.globals().length];
+  }
+  
+  public void run() {
+    call(program.init());
+    var main = program.functions()[program.main()];
+    call(main);
+    if (main.returnKind() != Kind.REF || !(refResult instanceof UnitValue)) throw new BadTypeException("main() must return unit");
+  }
+  
+  private void call(Chunk chunk) {
+    var refs = new Value[chunk.refRegisters()];
+    refs[0] = Value.UNIT;
+    execute(chunk, new int[chunk.intRegisters()], refs);
+  }
+  
+  private void execute(Chunk chunk, int[] ints, Value[] refs) {
+    var code = chunk.code();
+    var constants = chunk.constants();
+    var pc = 0;
+    // Registers of a call finished by TCALL, so the next TCALL can pass its arguments in them instead of allocating
+    int[] spareInts = null;
+    Value[] spareRefs = null;
+    while (true) {
+      switch (code[pc]) {
+        case ICONST -> {
+          ints[code[pc + 1]] = code[pc + 2];
+          pc += 3;
+        }
+        case RCONST -> {
+          refs[code[pc + 1]] = constants[code[pc + 2]];
+          pc += 3;
+        }
+        case IMOV -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]];
+          pc += 3;
+        }
+        case RMOV -> {
+          refs[code[pc + 1]] = refs[code[pc + 2]];
+          pc += 3;
+        }
+        case BOX -> {
+          refs[code[pc + 1]] = Value.of(ints[code[pc + 2]]);
+          pc += 3;
+        }
+        case BOXB -> {
+          refs[code[pc + 1]] = Value.of(ints[code[pc + 2]] != 0);
+          pc += 3;
+        }
+        case UNBOX -> {
+          ints[code[pc + 1]] = ((IntValue) refs[code[pc + 2]]).value();
+          pc += 3;
+        }
+        case UNBOXB -> {
+          ints[code[pc + 1]] = ((BoolValue) refs[code[pc + 2]]).value() ? 1 : 0;
+          pc += 3;
+        }
+        case INEG -> {
+          ints[code[pc + 1]] = -ints[code[pc + 2]];
+          pc += 3;
+        }
+        case IABS -> {
+          ints[code[pc + 1]] = Math.abs(ints[code[pc + 2]]);
+          pc += 3;
+        }
+        case NOT -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]] ^ 1;
+          pc += 3;
+        }
+        case SLEN -> {
+          ints[code[pc + 1]] = ((StringValue) refs[code[pc + 2]]).value().length();
+          pc += 3;
+        }
+        case ALEN -> {
+          ints[code[pc + 1]] = ((ArrayValue) refs[code[pc + 2]]).length();
+          pc += 3;
+        }
+        case IADD -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]] + ints[code[pc + 3]];
+          pc += 4;
+        }
+        case ISUB -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]] - ints[code[pc + 3]];
+          pc += 4;
+        }
+        case IMUL -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]] * ints[code[pc + 3]];
+          pc += 4;
+        }
+        case IDIV -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]] / ints[code[pc + 3]];
+          pc += 4;
+        }
+        case IEQ -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]] == ints[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+        }
+        case INE -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]] != ints[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+        }
+        case ILT -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]] < ints[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+        }
+        case ILE -> {
+          ints[code[pc + 1]] = ints[code[pc + 2]] <= ints[code[pc + 3]] ? 1 : 0;
+          pc += 4;
+        }
+        case REQ -> {
+          ints[code[pc + 1]] = refs[code[pc + 2]].valueEquals(refs[code[pc + 3]]) ? 1 : 0;
+          pc += 4;
+        }
+        case RNE -> {
+          ints[code[pc + 1]] = refs[code[pc + 2]].valueEquals(refs[code[pc + 3]]) ? 0 : 1;
+          pc += 4;
+        }
+        case SLT -> {
+          ints[code[pc + 1]] = compareStrings(refs[code[pc + 2]], refs[code[pc + 3]]) < 0 ? 1 : 0;
+          pc += 4;
+        }
+        case SLE -> {
+          ints[code[pc + 1]] = compareStrings(refs[code[pc + 2]], refs[code[pc + 3]]) <= 0 ? 1 : 0;
+          pc += 4;
+        }
+        case AGET -> {
+          refs[code[pc + 1]] = ((ArrayValue) refs[code[pc + 2]]).get(ints[code[pc + 3]]);
+          pc += 4;
+        }
+        case IAGET -> {
+          ints[code[pc + 1]] = ((ArrayValue) refs[code[pc + 2]]).getInt(ints[code[pc + 3]]);
+          pc += 4;
+        }
+        case BAGET -> {
+          ints[code[pc + 1]] = ((ArrayValue) refs[code[pc + 2]]).getBool(ints[code[pc + 3]]) ? 1 : 0;
+          pc += 4;
+        }
+        case SLICE -> {
+          var array = (ArrayValue) refs[code[pc + 2]];
+          var from = code[pc + 3] >= 0 ? ints[code[pc + 3]] : 0;
+          var to = code[pc + 4] >= 0 ? ints[code[pc + 4]] : array.length();
+          refs[code[pc + 1]] = array.slice(from, to);
+          pc += 5;
+        }
+        case ARRAY -> {
+          var count = code[pc + 2];
+          var builder = new ArrayBuilder(count);
+          for (var i = 0; i < count; i++) {
+            var register = code[pc + 4 + i * 2];
+            switch (code[pc + 3 + i * 2]) {
+              case ITEM_REF -> builder.add(refs[register]);
+              case ITEM_INT -> builder.addInt(ints[register]);
+              case ITEM_BOOL -> builder.addBool(ints[register] != 0);
+              case ITEM_SPREAD -> builder.addAll(refs[register]);
+              default -> throw new IllegalStateException("Invalid array item kind");
+            }
+          }
+          refs[code[pc + 1]] = builder.build();
+          pc += 3 + count * 2;
+        }
+        case GGET -> {
+          var value = globals[code[pc + 2]];
+          if (value == null) throw NoSuchNameException.variable(program.globals()[code[pc + 2]]);
+          refs[code[pc + 1]] = value;
+          pc += 3;
+        }
+        case GSET -> {
+          globals[code[pc + 1]] = refs[code[pc + 2]];
+          pc += 3;
+        }
+        case JMP -> pc = code[pc + 1];
+        case JT -> pc = ints[code[pc + 1]] != 0 ? code[pc + 2] : pc + 3;
+        case JF -> pc = ints[code[pc + 1]] == 0 ? code[pc + 2] : pc + 3;
+        case CALL -> {
+          var callee = program.functions()[code[pc + 1]];
+          var count = code[pc + 3];
+          var params = callee.params();
+          MemoTable.Key key = null;
+          var table = memoTables[code[pc + 1]];
+          if (table != null) {
+            // ints and bools alike are boxed as ints, which is all the VM needs to tell them apart again
+            var args = new Value[count];
+            for (var i = 0; i < count; i++) {
+              var register = code[pc + 4 + i];
+              args[i] = params[i] == Kind.INT ? Value.of(ints[register]) : refs[register];
+            }
+            key = new MemoTable.Key(args);
+            var result = table.get(key);
+            if (result != null) {
+              switch (callee.returnKind()) {
+                case INT -> ints[code[pc + 2]] = ((IntValue) result).value();
+                case REF -> refs[code[pc + 2]] = result;
+                case NONE -> {}
+              }
+              pc += 4 + count;
+              break;
+            }
+          }
+          var calleeInts = new int[callee.intRegisters()];
+          var calleeRefs = new Value[callee.refRegisters()];
+          calleeRefs[0] = Value.UNIT;
+          var intIndex = 0;
+          var refIndex = 1;
+          for (var i = 0; i < count; i++) {
+            var register = code[pc + 4 + i];
+            switch (params[i]) {
+              case INT -> calleeInts[intIndex++] = ints[register];
+              case REF -> calleeRefs[refIndex++] = refs[register];
+              case NONE -> {}
+            }
+          }
+          pushCaller(chunk, ints, refs, pc, key);
+          ints = calleeInts;
+          refs = calleeRefs;
+          chunk = callee;
+          code = chunk.code();
+          constants = chunk.constants();
+          pc = 0;
+        }
+        case TCALL -> {
+          var callee = program.functions()[code[pc + 1]];
+          var count = code[pc + 2];
+          var params = callee.params();
+          var calleeInts = spareInts != null && spareInts.length >= callee.intRegisters() ? spareInts : new int[callee.intRegisters()];
+          var calleeRefs = spareRefs != null && spareRefs.length >= callee.refRegisters() ? spareRefs : new Value[callee.refRegisters()];
+          calleeRefs[0] = Value.UNIT;
+          var intIndex = 0;
+          var refIndex = 1;
+          for (var i = 0; i < count; i++) {
+            var register = code[pc + 3 + i];
+            switch (params[i]) {
+              case INT -> calleeInts[intIndex++] = ints[register];
+              case REF -> calleeRefs[refIndex++] = refs[register];
+              case NONE -> {}
+            }
+          }
+          spareInts = ints;
+          spareRefs = refs;
+          ints = calleeInts;
+          refs = calleeRefs;
+          chunk = callee;
+          code = chunk.code();
+          constants = chunk.constants();
+          pc = 0;
+        }
+        case NCALL -> {
+          var count = code[pc + 3];
+          var args = new Value[count];
+          for (var i = 0; i < count; i++) args[i] = refs[code[pc + 4 + i]];
+          refs[code[pc + 2]] = natives[code[pc + 1]].call(Arrays.asList(args));
+          pc += 4 + count;
+        }
+        case RETI, RETR -> {
+          if (code[pc] == RETI) intResult = ints[code[pc + 1]];
+          else refResult = refs[code[pc + 1]];
+          if (depth == 0) return;
+          depth--;
+          chunk = callerChunks[depth];
+          ints = callerInts[depth];
+          refs = callerRefs[depth];
+          pc = callerPcs[depth];
+          var key = callerKeys[depth];
+          callerChunks[depth] = null;
+          callerInts[depth] = null;
+          callerRefs[depth] = null;
+          callerKeys[depth] = null;
+          code = chunk.code();
+          constants = chunk.constants();
+          var returnKind = program.functions()[code[pc + 1]].returnKind();
+          switch (returnKind) {
+            case INT -> ints[code[pc + 2]] = intResult;
+            case REF -> refs[code[pc + 2]] = refResult;
+            case NONE -> {}
+          }
+          if (key != null) memoTables[code[pc + 1]].put(key, returnKind == Kind.INT ? Value.of(intResult) : refResult);
+          pc += 4 + code[pc + 3];
+        }
+        default -> throw new IllegalStateException("Invalid opcode " + code[pc] + " in " + chunk.name());
+      }
+    }
+  }
+  
+  private void pushCaller(Chunk chunk, int[] ints, Value[] refs, int pc, MemoTable.Key key) {
+    if (depth == maxDepth) throw new CallDepthException("Exceeded the maximum call depth of " + maxDepth);
+    if (depth == callerChunks.length) {
+      var length = depth * 2;
+      callerChunks = Arrays.copyOf(callerChunks, length);
+      callerInts = Arrays.copyOf(callerInts, length);
+      callerRefs = Arrays.copyOf(callerRefs, length);
+      callerPcs = Arrays.copyOf(callerPcs, length);
+      callerKeys = Arrays.copyOf(callerKeys, length);
+    }
+    callerChunks[depth] = chunk;
+    callerInts[depth] = ints;
+    callerRefs[depth] = refs;
+    callerPcs[depth] = pc;
+    callerKeys[depth] = key;
+    depth++;
+  }
+  
+  private static int compareStrings(Value left, Value right) {
+    return ((StringValue) left).value().compareTo(((StringValue) right).value());
+  }
+  
+}
@@ -0,0 +1,93 @@
+package io.github.pint_lang;
+
+import io.github.pint_lang.ast.DefsAST;
+import io.github.pint_lang.eval.AstEvalVisitor;
+import io.github.pint_lang.eval.CstInterpreter;
+import io.github.pint_lang.eval.NativeFunction;
+import io.github.pint_lang.eval.StringValue;
+import io.github.pint_lang.eval.Value;
+import io.github.pint_lang.jvm.JvmCompiler;
+import io.github.pint_lang.node.NodeInterpreter;
+import io.github.pint_lang.opt.ConstantFoldVisitor;
+import io.github.pint_lang.typechecker.ErrorLogger;
+import io.github.pint_lang.typechecker.Type;
+import io.github.pint_lang.vm.BytecodeCompiler;
+import io.github.pint_lang.vm.VM;
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs every file in src/test/engines on each engine, with and without ConstantFoldVisitor, and checks that they print
+// exactly what the cst engine does, up to any index out of bounds; the files lean on labeled blocks, jumps with values,
+// nested loops, slices and spreads
+class EngineTest {
+  
+  private static final List<String> ENGINES = List.of("vm", "jvm", "ast", "node");
+  
+  @TestFactory
+  Stream<DynamicTest> enginesAgreeWithCst() throws IOException {
+    return corpus(Path.of("src/test/engines")).flatMap(path -> Stream.of(false, true).map(fold -> DynamicTest.dynamicTest(path + (fold ? " (folded)" : ""), () -> {
+      var source = Files.readString(path, StandardCharsets.UTF_8);
+      var logger = ErrorLogger.fixed(Type.ERROR);
+      var defs = PintFrontEnd.typecheck(PintFrontEnd.parseDefs(source), logger);
+      assertEquals(List.of(), logger.parent().errors());
+      if (fold) defs = new ConstantFoldVisitor().visitDefs(defs);
+      var expected = run("cst", source, defs);
+      assertFalse(expected.isEmpty(), "printed nothing");
+      for (var engine : ENGINES) assertEquals(expected, run(engine, source, defs), engine);
+    })));
+  }
+  
+  private static String run(String engine, String source, DefsAST<Type> defs) {
+    var out = new StringBuilder();
+    var natives = natives(out);
+    try {
+      switch (engine) {
+        case "vm" -> new VM(new BytecodeCompiler(natives.keySet()).compile(defs), natives).run();
+        case "jvm" -> new JvmCompiler(natives.keySet()).compile(defs).run(natives);
+        case "ast" -> new AstEvalVisitor(defs, natives).run();
+        case "node" -> new NodeInterpreter(defs, natives).run();
+        case "cst" -> new CstInterpreter(PintFrontEnd.parse(CharStreams.fromString(source)), natives).run();
+      }
+    } catch (IndexOutOfBoundsException e) {
+      // a program that fails at run time has to fail the same way everywhere, after printing the same things
+      out.append("threw ").append(e.getMessage());
+    }
+    return out.toString();
+  }
+  
+  // The builtins, except that printing goes to out
+  private static Map<String, NativeFunction> natives(StringBuilder out) {
+    var natives = new LinkedHashMap<String, NativeFunction>();
+    Builtins.define(natives);
+    natives.put("prints", args -> print(out, ((StringValue) args.get(0)).value()));
+    natives.put("printi", args -> print(out, args.get(0).valueToString()));
+    natives.put("printsln", args -> print(out, ((StringValue) args.get(0)).value() + "\n"));
+    natives.put("printiln", args -> print(out, args.get(0).valueToString() + "\n"));
+    natives.put("println", args -> print(out, "\n"));
+    return natives;
+  }
+  
+  private static Value print(StringBuilder out, String text) {
+    out.append(text);
+    return Value.UNIT;
+  }
+  
+  private static Stream<Path> corpus(Path directory) throws IOException {
+    try (var paths = Files.walk(directory)) {
+      return paths.filter(path -> path.toString().endsWith(".pint")).sorted().toList().stream();
+    }
+  }
+  
+}
@@ -0,0 +1,72 @@
+package io.github.pint_lang;
+
+import io.github.pint_lang.parse.Parser;
+import io.github.pint_lang.typechecker.ErrorLogger;
+import io.github.pint_lang.typechecker.Type;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// An editor hands IncrementalFrontEnd whatever is on screen, so every file in src/test/malformed has to leave it holding
+// the last program that parsed, and typing a program out one character at a time has to match the full pipeline throughout
+class IncrementalFrontEndTest {
+  
+  private static final String VALID = "let main() -> unit {\n  printiln(1);\n}\n";
+  
+  @TestFactory
+  Stream<DynamicTest> malformedEditsKeepTheLastGoodResult() throws IOException {
+    return corpus(Path.of("src/test/malformed")).map(path -> DynamicTest.dynamicTest(path.toString(), () -> {
+      var malformed = Files.readString(path, StandardCharsets.UTF_8);
+      var frontEnd = new IncrementalFrontEnd(VALID);
+      var defs = frontEnd.defs();
+      var typed = frontEnd.typedDefs();
+      frontEnd.edit(0, VALID.length(), malformed);
+      assertNotNull(frontEnd.syntaxError());
+      assertEquals(malformed, frontEnd.text());
+      assertEquals(VALID, frontEnd.source());
+      assertEquals(defs, frontEnd.defs());
+      assertSame(typed, frontEnd.typedDefs());
+      assertEquals(List.of(), frontEnd.typeErrors());
+      frontEnd.edit(0, malformed.length(), VALID);
+      assertNull(frontEnd.syntaxError());
+      assertEquals(defs, frontEnd.defs());
+    }));
+  }
+  
+  @Test
+  void typingAProgramMatchesTheFullPipeline() {
+    var program = "let main() -> unit {\n  printiln(k(1));\n}\nlet v: int := 2;\nlet k(n: int) -> int {\n  n + v\n}\n";
+    var frontEnd = new IncrementalFrontEnd("");
+    var lastGood = "";
+    for (var i = 0; i < program.length(); i++) {
+      frontEnd.edit(i, 0, program.substring(i, i + 1));
+      var text = program.substring(0, i + 1);
+      assertEquals(text, frontEnd.text());
+      if (frontEnd.syntaxError() == null) lastGood = text;
+      assertEquals(lastGood, frontEnd.source());
+      var logger = ErrorLogger.fixed(Type.ERROR);
+      var defs = Parser.parse(lastGood);
+      assertEquals(defs, frontEnd.defs());
+      assertEquals(PintFrontEnd.typecheck(defs, logger), frontEnd.typedDefs());
+      assertEquals(logger.parent().errors(), frontEnd.typeErrors());
+    }
+    assertNull(frontEnd.syntaxError());
+    assertEquals(List.of(), frontEnd.typeErrors());
+  }
+  
+  private static Stream<Path> corpus(Path directory) throws IOException {
+    try (var paths = Files.list(directory)) {
+      return paths.filter(path -> path.toString().endsWith(".pint")).sorted().toList().stream();
+    }
+  }
+  
+}
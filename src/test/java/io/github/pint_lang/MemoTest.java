@@ -0,0 +1,107 @@
+package io.github.pint_lang;
+
+import io.github.pint_lang.ast.DefsAST;
+import io.github.pint_lang.eval.AstEvalVisitor;
+import io.github.pint_lang.eval.MemoTable;
+import io.github.pint_lang.eval.NativeFunction;
+import io.github.pint_lang.eval.Value;
+import io.github.pint_lang.typechecker.ErrorLogger;
+import io.github.pint_lang.typechecker.Type;
+import io.github.pint_lang.vm.BytecodeCompiler;
+import io.github.pint_lang.vm.VM;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// src/test/memo.pint reaches the memoized fib through a tail call and has the memoized count call itself in tail position;
+// every one of those calls has to go through its table, on the vm engine as on the ast engine; and --memo has to refuse
+// any function that calls a native, assigns a global, or reads one that is assigned, even only through its callees
+class MemoTest {
+  
+  private static final String PURITY = """
+    let counter: int := 0;
+    let limit: int := 10;
+    let square(n: int) -> int { n * n }
+    let capped(n: int) -> int { if n > limit then limit else n }
+    let shadowed(n: int) -> int { let counter: int := n; counter :+= 1; counter }
+    let shout(n: int) -> int { printiln(n); n }
+    let bump(n: int) -> int { counter :+= n; n }
+    let peek(n: int) -> int { n + counter }
+    let viaPeek(n: int) -> int { square(peek(n)) }
+    let viaViaPeek(n: int) -> int { viaPeek(n) + 1 }
+    let even(n: int) -> bool { if n = 0 then true else odd(n - 1) }
+    let odd(n: int) -> bool { if n = 0 then false else even(n - 1) }
+    let evenLoud(n: int) -> bool { if n = 0 then true else oddLoud(n - 1) }
+    let oddLoud(n: int) -> bool { if n = 0 then { printsln("odd"); false } else evenLoud(n - 1) }
+    let main() -> unit { let n: int := bump(shout(1)); }
+    """;
+  
+  @Test
+  void tailCallsGoThroughTheTable() throws IOException {
+    var logger = ErrorLogger.fixed(Type.ERROR);
+    var defs = PintFrontEnd.typecheck(PintFrontEnd.parseDefs(Path.of("src/test/memo.pint")), logger);
+    assertTrue(logger.parent().errors().isEmpty());
+    for (var engine : List.of("vm", "ast")) {
+      var printed = new ArrayList<String>();
+      var memo = run(engine, defs, printed);
+      assertEquals(List.of("196418", "196418", "10", "10"), printed, engine);
+      assertCounts(memo.get("fib"), 26, 28, engine);
+      assertCounts(memo.get("count"), 1, 11, engine);
+    }
+  }
+  
+  @Test
+  void onlyPureFunctionsAreMemoized() {
+    var logger = ErrorLogger.fixed(Type.ERROR);
+    var defs = PintFrontEnd.typecheck(PintFrontEnd.parseDefs(PURITY), logger);
+    assertTrue(logger.parent().errors().isEmpty(), () -> logger.parent().errors().toString());
+    var names = new LinkedHashSet<>(List.of("square", "capped", "shadowed", "even", "odd", "shout", "bump", "peek", "viaPeek", "viaViaPeek", "evenLoud", "oddLoud", "limit", "missing"));
+    var err = System.err;
+    var warnings = new ByteArrayOutputStream();
+    System.setErr(new PrintStream(warnings, true, StandardCharsets.UTF_8));
+    Map<String, MemoTable> memo;
+    try {
+      memo = Main.memoTables(defs, names);
+    } finally {
+      System.setErr(err);
+    }
+    assertEquals(List.of("square", "capped", "shadowed", "even", "odd"), List.copyOf(memo.keySet()));
+    var refused = warnings.toString(StandardCharsets.UTF_8);
+    for (var name : List.of("shout", "bump", "peek", "viaPeek", "viaViaPeek", "evenLoud", "oddLoud")) assertTrue(refused.contains("cannot memoize '" + name + "', which is not pure"), name);
+    for (var name : List.of("limit", "missing")) assertTrue(refused.contains("cannot memoize '" + name + "', which is not a function"), name);
+  }
+  
+  private static Map<String, MemoTable> run(String engine, DefsAST<Type> defs, List<String> printed) {
+    var natives = new LinkedHashMap<String, NativeFunction>();
+    Builtins.define(natives);
+    natives.put("printiln", args -> {
+      printed.add(args.get(0).valueToString());
+      return Value.UNIT;
+    });
+    var memo = new LinkedHashMap<String, MemoTable>();
+    memo.put("fib", new MemoTable());
+    memo.put("count", new MemoTable());
+    switch (engine) {
+      case "vm" -> new VM(new BytecodeCompiler(natives.keySet(), memo.keySet()).compile(defs), natives, VM.DEFAULT_MAX_DEPTH, memo).run();
+      case "ast" -> new AstEvalVisitor(defs, natives, memo).run();
+    }
+    return memo;
+  }
+  
+  private static void assertCounts(MemoTable table, long hits, long misses, String engine) {
+    assertEquals(hits, table.hits(), engine + " hits");
+    assertEquals(misses, table.misses(), engine + " misses");
+  }
+  
+}
@@ -0,0 +1,132 @@
+package io.github.pint_lang;
+
+import io.github.pint_lang.ast.DefAST;
+import io.github.pint_lang.parse.DefReader;
+import io.github.pint_lang.parse.Parser;
+import io.github.pint_lang.parse.SyntaxException;
+import io.github.pint_lang.typechecker.ErrorLogger;
+import io.github.pint_lang.typechecker.Type;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// readDefs streams a file through DefReader instead of parsing it whole, so it has to typecheck every .pint file under
+// src/test exactly like typecheck(parseDefs(...)), with the same errors; DefReader reads 8 KB at a time, so block comments
+// are also placed across that boundary at every offset, nested, holding a 'let', and never closed
+class ReadDefsTest {
+  
+  private static final int BUFFER = 8192;
+  
+  private static final List<String> COMMENTS = List.of(
+    "/* plain */",
+    "/**/",
+    "/* outer /* inner */ still outer */",
+    "/* /* /* deep */ */ let x: int := 1; */",
+    "/* lone / and * and *x /* and */ nested */",
+    "/* /* closed once */",
+    "/*/ */"
+  );
+  
+  private static final List<String> UNTERMINATED = List.of(
+    "/* never closed",
+    "/* /* let x: int := 1;",
+    // the grammar reads "**" as a star and the character after it, leaving the '/' in the comment
+    "/***/"
+  );
+  
+  @TempDir
+  Path temp;
+  
+  @TestFactory
+  Stream<DynamicTest> readingMatchesParsingWhole() throws IOException {
+    return corpus(Path.of("src/test")).map(path -> DynamicTest.dynamicTest(path.toString(), () -> assertReadsLikeParse(path)));
+  }
+  
+  @TestFactory
+  Stream<DynamicTest> commentsAcrossTheBufferAreRead() {
+    return COMMENTS.stream().map(comment -> DynamicTest.dynamicTest(comment, () -> {
+      for (var shift = 0; shift <= comment.length() + 1; shift++) {
+        var source = straddling(comment, shift);
+        assertEquals(Parser.parse(source).defs(), readAll(source), "shift " + shift);
+        var path = temp.resolve("straddling.pint");
+        Files.writeString(path, source, StandardCharsets.UTF_8);
+        assertReadsLikeParse(path);
+      }
+    }));
+  }
+  
+  @Test
+  void unterminatedCommentsAcrossTheBufferAreRejected() {
+    for (var comment : UNTERMINATED) {
+      for (var shift = 0; shift <= comment.length() + 1; shift++) {
+        var source = straddling(comment, shift);
+        assertThrows(SyntaxException.class, () -> Parser.parse(source), comment);
+        assertThrows(SyntaxException.class, () -> readAll(source), comment + " at shift " + shift);
+      }
+    }
+  }
+  
+  // A program whose comment starts shift characters before the end of DefReader's first buffer
+  private static String straddling(String comment, int shift) {
+    var head = "let a: int := 1;\n";
+    return head + " ".repeat(BUFFER - shift - head.length()) + comment + "\nlet b: int := 2;\nlet main() -> unit {\n  printiln(a + b);\n}\n";
+  }
+  
+  private static List<DefAST<Void>> readAll(String source) throws IOException {
+    var defs = new ArrayList<DefAST<Void>>();
+    try (var reader = new DefReader(new StringReader(source))) {
+      for (var def = reader.next(); def != null; def = reader.next()) defs.add(def);
+    }
+    return defs;
+  }
+  
+  // The typed definitions, errors, and anything ANTLR prints must all match, or else both must throw the same exception
+  private static void assertReadsLikeParse(Path path) {
+    var expectedLogger = ErrorLogger.fixed(Type.ERROR);
+    var expectedErr = new StringBuilder();
+    var expected = outcome(() -> PintFrontEnd.typecheck(PintFrontEnd.parseDefs(path), expectedLogger), expectedErr);
+    var actualLogger = ErrorLogger.fixed(Type.ERROR);
+    var actualErr = new StringBuilder();
+    var actual = outcome(() -> PintFrontEnd.readDefs(path, actualLogger), actualErr);
+    assertEquals(expected, actual);
+    assertEquals(expectedLogger.parent().errors(), actualLogger.parent().errors());
+    assertEquals(expectedErr.toString(), actualErr.toString());
+  }
+  
+  // What call returns, or the class of whatever it throws, with what it prints to stderr appended to err
+  private static Object outcome(Callable<?> call, StringBuilder err) {
+    var stderr = System.err;
+    var captured = new ByteArrayOutputStream();
+    System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+    try {
+      return call.call();
+    } catch (Exception e) {
+      return e.getClass();
+    } finally {
+      System.setErr(stderr);
+      err.append(captured.toString(StandardCharsets.UTF_8));
+    }
+  }
+  
+  private static Stream<Path> corpus(Path directory) throws IOException {
+    try (var paths = Files.walk(directory)) {
+      return paths.filter(path -> path.toString().endsWith(".pint")).sorted().toList().stream();
+    }
+  }
+  
+}
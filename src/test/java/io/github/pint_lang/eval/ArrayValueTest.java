@@ -0,0 +1,100 @@
+package io.github.pint_lang.eval;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every representation of the same items has to be valueEquals to every other and hash the same, both below and above the
+// length where flat arrays start caching their hash, and no array is equal to a value that isn't one
+class ArrayValueTest {
+  
+  private static final List<Integer> LENGTHS = List.of(0, 1, 5, 40, ArrayValue.HASHED_LENGTH - 1, ArrayValue.HASHED_LENGTH, 1000);
+  
+  @TestFactory
+  Stream<DynamicTest> representationsOfIntsAgree() {
+    return LENGTHS.stream().map(length -> DynamicTest.dynamicTest("ints, length " + length, () -> {
+      var items = IntStream.range(0, length).map(i -> i * 7 - 300).toArray();
+      var changed = items.clone();
+      if (length > 0) changed[length - 1]++;
+      assertAgree(ints(items), ints(changed));
+    }));
+  }
+  
+  @TestFactory
+  Stream<DynamicTest> representationsOfBoolsAgree() {
+    return LENGTHS.stream().map(length -> DynamicTest.dynamicTest("bools, length " + length, () -> {
+      var items = new boolean[length];
+      for (var i = 0; i < length; i++) items[i] = i % 3 == 0;
+      var changed = items.clone();
+      if (length > 0) changed[length - 1] = !changed[length - 1];
+      assertAgree(bools(items), bools(changed));
+    }));
+  }
+  
+  @Test
+  void arraysOfArraysAgree() {
+    var inner = ints(IntStream.range(0, ArrayValue.HASHED_LENGTH).toArray());
+    var changed = ints(IntStream.range(1, ArrayValue.HASHED_LENGTH + 1).toArray());
+    assertAgree(inner.stream().map(array -> Value.array(array, array)).toList(), changed.stream().map(array -> Value.array(array, array)).toList());
+  }
+  
+  @Test
+  void arraysOnlyEqualArrays() {
+    var values = List.of(Value.of(0), Value.of(1), Value.of(""), Value.of("[]"), Value.TRUE, Value.FALSE, Value.UNIT);
+    for (var array : Stream.concat(ints(new int[0]).stream(), ints(new int[] { 0 }).stream()).toList()) {
+      for (var value : values) {
+        assertFalse(array.valueEquals(value), () -> array.valueToString() + " = " + value.valueToString());
+        assertFalse(value.valueEquals(array), () -> value.valueToString() + " = " + array.valueToString());
+      }
+    }
+    assertFalse(Value.array(new int[0]).valueEquals(Value.array(0)));
+    assertFalse(Value.array(Value.array(0)).valueEquals(Value.array(0)));
+  }
+  
+  // The same items flat, as a view into a larger array, boxed one by one, and split in two and concatenated
+  private static List<ArrayValue> ints(int[] items) {
+    var padded = new int[items.length + 2];
+    System.arraycopy(items, 0, padded, 1, items.length);
+    var half = items.length / 2;
+    return List.of(
+      Value.of(items),
+      Value.of(padded).slice(1, items.length + 1),
+      Value.of(Arrays.stream(items).mapToObj(Value::of).toArray(Value[]::new)),
+      RopeArrayValue.concat(Value.of(Arrays.copyOfRange(items, 0, half)), Value.of(Arrays.copyOfRange(items, half, items.length)))
+    );
+  }
+  
+  private static List<ArrayValue> bools(boolean[] items) {
+    var padded = new boolean[items.length + 2];
+    System.arraycopy(items, 0, padded, 1, items.length);
+    var boxed = new Value[items.length];
+    for (var i = 0; i < items.length; i++) boxed[i] = Value.of(items[i]);
+    var half = items.length / 2;
+    return List.of(
+      Value.of(items),
+      Value.of(padded).slice(1, items.length + 1),
+      Value.of(boxed),
+      RopeArrayValue.concat(Value.of(Arrays.copyOfRange(items, 0, half)), Value.of(Arrays.copyOfRange(items, half, items.length)))
+    );
+  }
+  
+  // Hashes twice, so a cached hash is checked as well as a computed one
+  private static void assertAgree(List<ArrayValue> same, List<ArrayValue> different) {
+    var hash = same.get(0).valueHash();
+    for (var array : same) {
+      assertEquals(hash, array.valueHash(), array.getClass().getSimpleName());
+      assertEquals(hash, array.valueHash(), array.getClass().getSimpleName());
+      for (var other : same) assertTrue(array.valueEquals(other), () -> array.getClass().getSimpleName() + " = " + other.getClass().getSimpleName());
+      if (array.length() == 0) continue;
+      for (var other : different) assertFalse(array.valueEquals(other), () -> array.getClass().getSimpleName() + " = " + other.getClass().getSimpleName());
+    }
+  }
+  
+}
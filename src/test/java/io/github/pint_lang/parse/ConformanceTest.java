@@ -0,0 +1,111 @@
+package io.github.pint_lang.parse;
+
+import io.github.pint_lang.PintFrontEnd;
+import io.github.pint_lang.ast.ASTConversionVisitor;
+import io.github.pint_lang.ast.DefsAST;
+import io.github.pint_lang.gen.PintLexer;
+import io.github.pint_lang.gen.PintParser;
+import org.antlr.v4.runtime.*;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Checks Parser against ANTLR and ASTConversionVisitor on every .pint file under src/test: they have to reject the same
+// files and build equal ASTs for the rest, and the files in src/test/malformed have to get the same syntax errors as before
+class ConformanceTest {
+  
+  @TestFactory
+  Stream<DynamicTest> parsersAgree() throws IOException {
+    return corpus(Path.of("src/test")).map(path -> DynamicTest.dynamicTest(path.toString(), () -> assertNull(check(read(path)))));
+  }
+  
+  @TestFactory
+  Stream<DynamicTest> syntaxErrorsAreReportedAsBefore() throws IOException {
+    return corpus(Path.of("src/test/malformed")).map(path -> DynamicTest.dynamicTest(path.toString(), () -> {
+      var source = read(path);
+      var expected = stderrOf(() -> new PintParser(new CommonTokenStream(new PintLexer(CharStreams.fromString(source)))).file());
+      assertFalse(expected.isEmpty(), "not malformed");
+      assertEquals(expected, stderrOf(() -> PintFrontEnd.parseDefs(source)));
+    }));
+  }
+  
+  // Returns null if both parsers agree on source, or else how they differ
+  static String check(String source) {
+    var expected = parseWithAntlr(source);
+    DefsAST<Void> actual;
+    try {
+      actual = Parser.parse(source);
+    } catch (SyntaxException e) {
+      return expected != null ? "rejected a program ANTLR accepts (" + e.getMessage() + ")" : null;
+    }
+    if (expected == null) return "accepted a program ANTLR rejects";
+    var expectedDefs = expected.defs();
+    var actualDefs = actual.defs();
+    for (var i = 0; i < Math.min(expectedDefs.size(), actualDefs.size()); i++) {
+      if (!expectedDefs.get(i).equals(actualDefs.get(i))) return "built a different AST for definition " + (i + 1);
+    }
+    if (expectedDefs.size() != actualDefs.size()) return "found " + actualDefs.size() + " definitions instead of " + expectedDefs.size();
+    return null;
+  }
+  
+  private static DefsAST<Void> parseWithAntlr(String source) {
+    var errors = new BaseErrorListener() {
+      
+      boolean any = false;
+      
+      @Override
+      public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+        any = true;
+      }
+      
+    };
+    var lexer = new PintLexer(CharStreams.fromString(source));
+    lexer.removeErrorListeners();
+    lexer.addErrorListener(errors);
+    var parser = new PintParser(new CommonTokenStream(lexer));
+    parser.removeErrorListeners();
+    parser.addErrorListener(errors);
+    var file = parser.file();
+    if (errors.any) return null;
+    try {
+      return new ASTConversionVisitor().visitFile(file);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+  
+  private static Stream<Path> corpus(Path directory) throws IOException {
+    try (var paths = Files.walk(directory)) {
+      return paths.filter(path -> path.toString().endsWith(".pint")).sorted().toList().stream();
+    }
+  }
+  
+  private static String read(Path path) throws IOException {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+  
+  // What ANTLR's console listeners print while running parse; converting a recovered tree may still throw afterwards
+  private static String stderrOf(Runnable parse) {
+    var err = System.err;
+    var captured = new ByteArrayOutputStream();
+    System.setErr(new PrintStream(captured, true, StandardCharsets.UTF_8));
+    try {
+      parse.run();
+    } catch (RuntimeException e) {
+      // only the errors matter
+    } finally {
+      System.setErr(err);
+    }
+    return captured.toString(StandardCharsets.UTF_8);
+  }
+  
+}
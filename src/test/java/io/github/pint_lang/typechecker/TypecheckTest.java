@@ -0,0 +1,29 @@
+package io.github.pint_lang.typechecker;
+
+import io.github.pint_lang.PintFrontEnd;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The programs under src/test have to typecheck without errors
+class TypecheckTest {
+  
+  @TestFactory
+  Stream<DynamicTest> programsAreAccepted() {
+    return Stream.of("main.pint", "syntax.pint", "bench.pint").map(Path.of("src/test")::resolve)
+      .map(path -> DynamicTest.dynamicTest(path.toString(), () -> assertEquals("", errors(Files.readString(path, StandardCharsets.UTF_8)))));
+  }
+  
+  private static String errors(String source) {
+    var logger = ErrorLogger.fixed(Type.ERROR);
+    PintFrontEnd.typecheck(PintFrontEnd.parseDefs(source), logger);
+    return String.join("\n", logger.parent().errors());
+  }
+  
+}